@@ -0,0 +1,380 @@
+package com.richard.activitytracker.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.richard.activitytracker.ActivityTrackerApplication;
+import com.richard.activitytracker.service.impl.ActivitySubscriptionIndex;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures STOMP fan-out on one node: starts the application in this JVM on a random port with
+ * its in-memory H2 database, opens {@code loadtest.sessions} authenticated sessions over loopback
+ * subscribed to {@code loadtest.destination}, POSTs activities at {@code loadtest.rate} per second
+ * and times each activity from just before its POST to its arrival at every session. The send
+ * time travels in the activity's details, so the clocks compared are this JVM's own.
+ * <p>
+ * {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.sessions=2000 -Dloadtest.rate=100};
+ * extra program arguments ({@code -Dloadtest.app-args="--spring.threads.virtual.enabled=true"})
+ * go to the application. Results land in {@code target/loadtest}: one JSON report per run and a
+ * row per run in {@code fanout-runs.csv}.
+ */
+public final class FanOutLoadHarness {
+    private static final String MARKER = "lt:";
+    private static final byte[] MARKER_BYTES = MARKER.getBytes(StandardCharsets.US_ASCII);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final LoadSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+    private final Recorder deliveryLatency = new Recorder(3);
+    private final Recorder writeLatency = new Recorder(3);
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong writesSent = new AtomicLong();
+    private final AtomicLong writesFailed = new AtomicLong();
+    private final AtomicInteger transportErrors = new AtomicInteger();
+    private volatile long windowStart = Long.MAX_VALUE;
+    private volatile long windowEnd = Long.MAX_VALUE;
+    private String baseUrl;
+
+    private FanOutLoadHarness(LoadSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        // Devtools would restart the application in a second class loader, running this twice.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--activity.websocket.admission.enabled=false",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.com.richard.activitytracker=WARN",
+                "--logging.level.com.richard.activitytracker.handler=WARN",
+                "--logging.level.com.richard.activitytracker.security=ERROR"));
+        for (String arg : args) {
+            if (!arg.isBlank()) {
+                appArgs.add(arg);
+            }
+        }
+        int exitCode;
+        try (ConfigurableApplicationContext context = SpringApplication.run(ActivityTrackerApplication.class, appArgs.toArray(String[]::new))) {
+            exitCode = new FanOutLoadHarness(settings).run(context);
+        }
+        System.exit(exitCode);
+    }
+
+    private int run(ConfigurableApplicationContext context) throws Exception {
+        Instant startedAt = Instant.now();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        List<String> tokens = registerUsers();
+
+        long heapBefore = usedHeapAfterGc();
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new ByteArrayMessageConverter() {
+            // Frames are read raw, whatever their content type.
+            @Override
+            protected boolean supportsMimeType(MessageHeaders headers) {
+                return true;
+            }
+        });
+        long connectStarted = System.nanoTime();
+        List<StompSession> sessions = connect(stompClient, tokens);
+        double secondsToConnect = (System.nanoTime() - connectStarted) / 1e9;
+        long heapAfter = usedHeapAfterGc();
+        System.out.printf("Connected %d/%d sessions in %.1fs%n", sessions.size(), settings.sessions(), secondsToConnect);
+
+        long windowWrites = drive(tokens);
+        Thread.sleep(settings.drain().toMillis());
+
+        Histogram deliveries = deliveryLatency.getIntervalHistogram();
+        Histogram writes = writeLatency.getIntervalHistogram();
+        double windowSeconds = settings.duration().toNanos() / 1e9;
+        LoadReport report = new LoadReport(
+                startedAt,
+                new LoadReport.Environment(Runtime.getRuntime().availableProcessors(), System.getProperty("java.version"),
+                        Runtime.getRuntime().maxMemory(),
+                        context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false)),
+                settings,
+                new LoadReport.Connections(sessions.size(), settings.sessions() - sessions.size(), secondsToConnect, transportErrors.get()),
+                new LoadReport.Writes(writesSent.get(), writesFailed.get(), windowWrites / windowSeconds, millis(writes)),
+                new LoadReport.Deliveries(windowWrites * expectedReceivers(sessions.size()), delivered.get(), delivered.get() / windowSeconds),
+                millis(deliveries),
+                new LoadReport.Memory(heapBefore, heapAfter, sessions.isEmpty() ? 0 : (heapAfter - heapBefore) / sessions.size()));
+
+        sessions.forEach(StompSession::disconnect);
+        stompClient.stop();
+        write(report);
+        return sessions.size() == settings.sessions() && writesFailed.get() == 0 ? 0 : 1;
+    }
+
+    private List<String> registerUsers() throws IOException, InterruptedException {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < settings.users(); i++) {
+            String username = "lt" + run + "u" + i;
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "username", username, "email", username + "@loadtest.local", "password", "loadtest-password"));
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException("Registering " + username + " failed: " + response.statusCode() + " " + response.body());
+            }
+            tokens.add(objectMapper.readTree(response.body()).get("token").asText());
+        }
+        return tokens;
+    }
+
+    /**
+     * Opens every session and waits until it is subscribed: a subscription to the unfiltered topic
+     * is confirmed by its snapshot frame, any other destination gets a fixed settling time.
+     */
+    private List<StompSession> connect(WebSocketStompClient stompClient, List<String> tokens) throws InterruptedException {
+        boolean confirmedBySnapshot = ActivitySubscriptionIndex.ALL_ACTIVITIES.equals(settings.destination());
+        CountDownLatch subscribed = new CountDownLatch(settings.sessions());
+        Semaphore connecting = new Semaphore(settings.connectConcurrency());
+        List<CompletableFuture<StompSession>> futures = new ArrayList<>();
+        for (int i = 0; i < settings.sessions(); i++) {
+            connecting.acquire();
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + tokens.get(i % tokens.size()));
+            SessionHandler handler = new SessionHandler(subscribed, confirmedBySnapshot);
+            CompletableFuture<StompSession> future = stompClient.connectAsync(
+                    baseUrl.replace("http", "ws") + "/ws", (WebSocketHttpHeaders) null, connectHeaders, handler);
+            future.whenComplete((session, error) -> {
+                connecting.release();
+                if (error != null) {
+                    handler.confirm();
+                }
+            });
+            futures.add(future);
+        }
+        if (confirmedBySnapshot) {
+            subscribed.await(60, TimeUnit.SECONDS);
+        } else {
+            Thread.sleep(1000);
+        }
+        List<StompSession> sessions = new ArrayList<>();
+        for (CompletableFuture<StompSession> future : futures) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                sessions.add(future.join());
+            }
+        }
+        return sessions;
+    }
+
+    /** Writes at a fixed rate through warmup and the measurement window; returns writes inside the window. */
+    private long drive(List<String> tokens) {
+        long intervalNanos = (long) (1e9 / settings.writesPerSecond());
+        long start = System.nanoTime();
+        long warmupEnd = start + settings.warmup().toNanos();
+        long end = warmupEnd + settings.duration().toNanos();
+        windowStart = warmupEnd;
+        windowEnd = end;
+        long windowWrites = 0;
+        try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long due = start + i * intervalNanos;
+                if (due >= end) {
+                    break;
+                }
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (due >= warmupEnd) {
+                    windowWrites++;
+                }
+                String token = tokens.get((int) (i % tokens.size()));
+                writers.execute(() -> write(token));
+            }
+        }
+        return windowWrites;
+    }
+
+    private void write(String token) {
+        long sent = System.nanoTime();
+        String body = "{\"action\":\"LOADTEST\",\"details\":\"" + MARKER + sent + "\"}";
+        try {
+            HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/activities"))
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + token)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            writesSent.incrementAndGet();
+            if (response.statusCode() / 100 != 2) {
+                writesFailed.incrementAndGet();
+            } else if (sent >= windowStart) {
+                writeLatency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent));
+            }
+        } catch (IOException e) {
+            writesSent.incrementAndGet();
+            writesFailed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Every session receives every activity on the unfiltered topic; filtered topics are not predictable here. */
+    private int expectedReceivers(int sessions) {
+        return ActivitySubscriptionIndex.ALL_ACTIVITIES.equals(settings.destination()) ? sessions : 0;
+    }
+
+    /** Records one latency per marker in the frame: a batched frame carries several activities. */
+    private void received(byte[] payload) {
+        long now = System.nanoTime();
+        for (int i = indexOf(payload, 0); i >= 0; i = indexOf(payload, i + MARKER_BYTES.length)) {
+            long sent = 0;
+            int digit = i + MARKER_BYTES.length;
+            boolean negative = digit < payload.length && payload[digit] == '-';
+            if (negative) {
+                digit++;
+            }
+            for (; digit < payload.length && payload[digit] >= '0' && payload[digit] <= '9'; digit++) {
+                sent = sent * 10 + (payload[digit] - '0');
+            }
+            sent = negative ? -sent : sent;
+            if (sent >= windowStart && sent < windowEnd) {
+                delivered.incrementAndGet();
+                deliveryLatency.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sent));
+            }
+        }
+    }
+
+    private static int indexOf(byte[] payload, int from) {
+        outer:
+        for (int i = from; i <= payload.length - MARKER_BYTES.length; i++) {
+            for (int j = 0; j < MARKER_BYTES.length; j++) {
+                if (payload[i + j] != MARKER_BYTES[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static LoadReport.Latency millis(Histogram histogram) {
+        return new LoadReport.Latency(
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private void write(LoadReport report) throws IOException {
+        Path directory = settings.outputDirectory();
+        Files.createDirectories(directory);
+        Path json = directory.resolve("fanout-" + FILE_TIMESTAMP.format(report.startedAt()) + ".json");
+        objectMapper.writeValue(json.toFile(), report);
+        Path csv = directory.resolve("fanout-runs.csv");
+        if (!Files.exists(csv)) {
+            Files.writeString(csv, LoadReport.csvHeader() + System.lineSeparator());
+        }
+        Files.writeString(csv, report.csvRow() + System.lineSeparator(), StandardOpenOption.APPEND);
+        System.out.println(objectMapper.writeValueAsString(report));
+        System.out.println("Report written to " + json.toAbsolutePath());
+    }
+
+    private final class SessionHandler extends StompSessionHandlerAdapter {
+        private final CountDownLatch subscribed;
+        private final boolean confirmedBySnapshot;
+        private boolean confirmed;
+
+        private SessionHandler(CountDownLatch subscribed, boolean confirmedBySnapshot) {
+            this.subscribed = subscribed;
+            this.confirmedBySnapshot = confirmedBySnapshot;
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            session.subscribe(settings.destination(), this);
+            if (!confirmedBySnapshot) {
+                confirm();
+            }
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return byte[].class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            received((byte[]) payload);
+            confirm();
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+            transportErrors.incrementAndGet();
+            confirm();
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            transportErrors.incrementAndGet();
+            confirm();
+        }
+
+        private synchronized void confirm() {
+            if (!confirmed) {
+                confirmed = true;
+                subscribed.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.richard.activitytracker.loadtest;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/** One run's results, written as JSON and summarized as a CSV row so runs can be compared. */
+record LoadReport(
+        Instant startedAt,
+        Environment environment,
+        LoadSettings settings,
+        Connections connections,
+        Writes writes,
+        Deliveries deliveries,
+        Latency deliveryLatencyMillis,
+        Memory memory) {
+
+    record Environment(int availableProcessors, String javaVersion, long maxHeapBytes, boolean virtualThreads) {
+    }
+
+    record Connections(int opened, int failed, double secondsToConnect, int transportErrors) {
+    }
+
+    record Writes(long sent, long failed, double perSecond, Latency latencyMillis) {
+    }
+
+    /** Only activities written inside the measurement window count; expected is writes x sessions. */
+    record Deliveries(long expected, long received, double perSecond) {
+    }
+
+    record Latency(double p50, double p99, double p999, double max) {
+    }
+
+    /** Heap used after a GC with every session open, minus before connecting; client and server share the JVM. */
+    record Memory(long heapBeforeBytes, long heapAfterBytes, long bytesPerSession) {
+    }
+
+    static String csvHeader() {
+        return "startedAt,sessions,writesPerSecond,durationSeconds,writesSent,writesFailed,"
+                + "deliveriesExpected,deliveriesReceived,deliveriesPerSecond,p50Millis,p99Millis,p999Millis,maxMillis,bytesPerSession";
+    }
+
+    String csvRow() {
+        return String.join(",",
+                startedAt.toString(),
+                String.valueOf(settings.sessions()),
+                String.valueOf(settings.writesPerSecond()),
+                String.valueOf(settings.duration().toSeconds()),
+                String.valueOf(writes.sent()),
+                String.valueOf(writes.failed()),
+                String.valueOf(deliveries.expected()),
+                String.valueOf(deliveries.received()),
+                String.format(Locale.ROOT, "%.1f", deliveries.perSecond()),
+                String.format(Locale.ROOT, "%.3f", deliveryLatencyMillis.p50()),
+                String.format(Locale.ROOT, "%.3f", deliveryLatencyMillis.p99()),
+                String.format(Locale.ROOT, "%.3f", deliveryLatencyMillis.p999()),
+                String.format(Locale.ROOT, "%.3f", deliveryLatencyMillis.max()),
+                String.valueOf(memory.bytesPerSession()));
+    }
+}
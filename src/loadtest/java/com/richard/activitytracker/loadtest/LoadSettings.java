@@ -0,0 +1,30 @@
+package com.richard.activitytracker.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/** Run parameters, read from {@code loadtest.*} system properties. */
+record LoadSettings(
+        int sessions,
+        int users,
+        double writesPerSecond,
+        Duration warmup,
+        Duration duration,
+        Duration drain,
+        String destination,
+        int connectConcurrency,
+        Path outputDirectory) {
+
+    static LoadSettings fromSystemProperties() {
+        return new LoadSettings(
+                Integer.getInteger("loadtest.sessions", 500),
+                Integer.getInteger("loadtest.users", 10),
+                Double.parseDouble(System.getProperty("loadtest.rate", "50")),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5)),
+                Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30)),
+                Duration.ofSeconds(Long.getLong("loadtest.drain-seconds", 3)),
+                System.getProperty("loadtest.destination", "/topic/activities"),
+                Integer.getInteger("loadtest.connect-concurrency", 64),
+                Path.of(System.getProperty("loadtest.output", "target/loadtest")));
+    }
+}
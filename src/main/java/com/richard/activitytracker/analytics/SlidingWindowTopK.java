@@ -0,0 +1,74 @@
+package com.richard.activitytracker.analytics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate top-K over a sliding time window. The window is split into a ring of buckets, each
+ * holding its own {@link SpaceSavingCounter}; expired buckets are recycled and queries merge the
+ * live ones.
+ */
+public class SlidingWindowTopK<K> {
+
+    private final long bucketMillis;
+    private final SpaceSavingCounter<K>[] buckets;
+    private final long[] bucketEpochs;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @SuppressWarnings("unchecked")
+    public SlidingWindowTopK(Duration window, int bucketCount, int capacityPerBucket) {
+        if (bucketCount <= 0 || window.toMillis() < bucketCount) {
+            throw new IllegalArgumentException("window must hold at least one millisecond per bucket");
+        }
+        this.bucketMillis = window.toMillis() / bucketCount;
+        this.buckets = new SpaceSavingCounter[bucketCount];
+        this.bucketEpochs = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new SpaceSavingCounter<>(capacityPerBucket);
+            bucketEpochs[i] = -1;
+        }
+    }
+
+    public void record(K key, long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        int slot = (int) (epoch % buckets.length);
+        lock.lock();
+        try {
+            if (bucketEpochs[slot] != epoch) {
+                buckets[slot].clear();
+                bucketEpochs[slot] = epoch;
+            }
+            buckets[slot].offer(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<HeavyHitter<K>> top(int limit, long nowMillis) {
+        long oldestLiveEpoch = nowMillis / bucketMillis - buckets.length + 1;
+        Map<K, long[]> merged = new HashMap<>();
+        lock.lock();
+        try {
+            for (int i = 0; i < buckets.length; i++) {
+                if (bucketEpochs[i] >= oldestLiveEpoch) {
+                    buckets[i].mergeInto(merged);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<HeavyHitter<K>> result = new ArrayList<>(merged.size());
+        merged.forEach((key, acc) -> result.add(new HeavyHitter<>(key, acc[0], acc[1])));
+        result.sort(Comparator.comparingLong(HeavyHitter<K>::count).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public record HeavyHitter<K>(K key, long count, long error) {
+    }
+}
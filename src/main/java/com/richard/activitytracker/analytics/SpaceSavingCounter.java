@@ -0,0 +1,77 @@
+package com.richard.activitytracker.analytics;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitter summary. Tracks at most {@code capacity} keys; when full, a new key
+ * replaces the current minimum and inherits its count as the over-estimation error.
+ * Not thread-safe, callers guard access.
+ */
+public class SpaceSavingCounter<K> {
+
+    private final int capacity;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final TreeSet<Entry<K>> byCount = new TreeSet<>(
+            Comparator.<Entry<K>>comparingLong(e -> e.count).thenComparingLong(e -> e.seq));
+    private long nextSeq;
+
+    public SpaceSavingCounter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void offer(K key) {
+        Entry<K> entry = entries.get(key);
+        if (entry != null) {
+            byCount.remove(entry);
+            entry.count++;
+            byCount.add(entry);
+            return;
+        }
+        if (entries.size() < capacity) {
+            entry = new Entry<>(key, 1, 0, nextSeq++);
+        } else {
+            Entry<K> min = byCount.pollFirst();
+            entries.remove(min.key);
+            entry = new Entry<>(key, min.count + 1, min.count, nextSeq++);
+        }
+        entries.put(key, entry);
+        byCount.add(entry);
+    }
+
+    public void mergeInto(Map<K, long[]> target) {
+        for (Entry<K> entry : entries.values()) {
+            long[] acc = target.computeIfAbsent(entry.key, k -> new long[2]);
+            acc[0] += entry.count;
+            acc[1] += entry.error;
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        byCount.clear();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        private long count;
+        private final long error;
+        private final long seq;
+
+        private Entry(K key, long count, long error, long seq) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.richard.activitytracker.analytics;
+
+import com.richard.activitytracker.exception.InvalidRequestException;
+
+import java.time.Duration;
+
+public enum StatsWindow {
+    ONE_MINUTE("1m", Duration.ofMinutes(1), 12),
+    FIFTEEN_MINUTES("15m", Duration.ofMinutes(15), 15),
+    ONE_HOUR("1h", Duration.ofHours(1), 12);
+
+    private final String label;
+    private final Duration duration;
+    private final int buckets;
+
+    StatsWindow(String label, Duration duration, int buckets) {
+        this.label = label;
+        this.duration = duration;
+        this.buckets = buckets;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public static StatsWindow fromLabel(String label) {
+        for (StatsWindow window : values()) {
+            if (window.label.equalsIgnoreCase(label)) {
+                return window;
+            }
+        }
+        throw new InvalidRequestException("Unsupported window: " + label + " (expected 1m, 15m or 1h)");
+    }
+}
@@ -0,0 +1,80 @@
+package com.richard.activitytracker.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Envelope handling shared by the transports: JSON encoding, node tagging, echo suppression and
+ * metrics. Propagation delay compares wall clocks across nodes, so it is only as good as their
+ * clock sync.
+ */
+@Slf4j
+public abstract class AbstractClusterBus implements ClusterBus {
+
+    private final String nodeId;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    protected AbstractClusterBus(String nodeId, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    protected abstract void send(String channel, String message);
+
+    protected abstract void listen(String channel, Consumer<String> listener);
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(String channel, Object payload) {
+        try {
+            ClusterEnvelope envelope = new ClusterEnvelope(nodeId, System.currentTimeMillis(), objectMapper.valueToTree(payload));
+            send(channel, objectMapper.writeValueAsString(envelope));
+            Counter.builder("cluster.bus.published")
+                    .description("Messages this node published to the cluster bus")
+                    .tag("channel", channel)
+                    .register(meterRegistry)
+                    .increment();
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Failed to publish to cluster channel {}: {}", channel, e.getMessage());
+        }
+    }
+
+    @Override
+    public <T> void subscribe(String channel, Class<T> type, Consumer<T> handler) {
+        Timer propagation = Timer.builder("cluster.bus.propagation")
+                .description("Delay between a peer publishing a message and this node receiving it")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Counter received = Counter.builder("cluster.bus.received")
+                .description("Messages this node received from peers")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        listen(channel, message -> {
+            try {
+                ClusterEnvelope envelope = objectMapper.readValue(message, ClusterEnvelope.class);
+                if (nodeId.equals(envelope.nodeId())) {
+                    return;
+                }
+                propagation.record(Math.max(0, System.currentTimeMillis() - envelope.sentAt()), TimeUnit.MILLISECONDS);
+                received.increment();
+                handler.accept(objectMapper.treeToValue(envelope.payload(), type));
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.error("Failed to handle message on cluster channel {}: {}", channel, e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.richard.activitytracker.cluster;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.service.ActivityStatsService;
+import com.richard.activitytracker.service.LastSeenService;
+import com.richard.activitytracker.service.impl.ActivityEventLog;
+import com.richard.activitytracker.service.impl.ActivityVersionTracker;
+import com.richard.activitytracker.util.TransactionCallbacks;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares committed activities with the other nodes. The writing node publishes once; each peer
+ * replays the activity into its own in-memory views and fans it out to its own WebSocket and SSE
+ * subscribers, so clients see every write whichever node they are connected to.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActivityClusterRelay {
+    static final String CHANNEL = "activities";
+
+    private final ClusterBus clusterBus;
+    private final ActivityEventLog activityEventLog;
+    private final ActivityVersionTracker activityVersionTracker;
+    private final ActivityStatsService activityStatsService;
+    private final LastSeenService lastSeenService;
+
+    @PostConstruct
+    void subscribe() {
+        clusterBus.subscribe(CHANNEL, ActivityResponse.class, this::deliver);
+    }
+
+    public void publish(ActivityResponse activity) {
+        TransactionCallbacks.afterCommit(() -> clusterBus.publish(CHANNEL, activity));
+    }
+
+    private void deliver(ActivityResponse activity) {
+        activityStatsService.record(activity);
+        activityVersionTracker.recordWrite(activity.getUserId(), activity.getId());
+        lastSeenService.observe(activity);
+        activityEventLog.append(activity);
+    }
+}
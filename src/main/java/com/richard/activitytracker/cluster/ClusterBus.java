@@ -0,0 +1,13 @@
+package com.richard.activitytracker.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcast channel between the nodes of a deployment. Every message is tagged with the sending
+ * node, and handlers only see messages published by other nodes.
+ */
+public interface ClusterBus {
+    String nodeId();
+    void publish(String channel, Object payload);
+    <T> void subscribe(String channel, Class<T> type, Consumer<T> handler);
+}
@@ -0,0 +1,6 @@
+package com.richard.activitytracker.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public record ClusterEnvelope(String nodeId, long sentAt, JsonNode payload) {
+}
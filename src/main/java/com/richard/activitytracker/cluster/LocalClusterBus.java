@@ -0,0 +1,57 @@
+package com.richard.activitytracker.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Loopback transport for single-node deployments and tests. Every instance in the JVM shares one
+ * hub, so several application contexts started side by side behave like separate nodes. A bus
+ * takes its listeners off the hub when its context closes, so a stopped node is neither called nor
+ * kept reachable.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.bus", havingValue = "local", matchIfMissing = true)
+public class LocalClusterBus extends AbstractClusterBus {
+
+    private static final Map<String, List<Consumer<String>>> HUB = new ConcurrentHashMap<>();
+
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    public LocalClusterBus(@Value("${cluster.node-id:}") String nodeId, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(nodeId, objectMapper, meterRegistry);
+    }
+
+    @Override
+    protected void send(String channel, String message) {
+        HUB.getOrDefault(channel, List.of()).forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    protected void listen(String channel, Consumer<String> listener) {
+        HUB.compute(channel, (c, all) -> {
+            List<Consumer<String>> updated = all == null ? new CopyOnWriteArrayList<>() : all;
+            updated.add(listener);
+            return updated;
+        });
+        listeners.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @PreDestroy
+    public void close() {
+        listeners.forEach((channel, own) -> HUB.computeIfPresent(channel, (c, all) -> {
+            all.removeAll(own);
+            return all.isEmpty() ? null : all;
+        }));
+        listeners.clear();
+    }
+}
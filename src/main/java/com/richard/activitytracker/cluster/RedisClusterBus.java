@@ -0,0 +1,51 @@
+package com.richard.activitytracker.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub transport. Each bus channel maps to a Redis channel under
+ * {@code cluster.redis.channel-prefix}; delivery is at-most-once, so consumers must tolerate gaps.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.bus", havingValue = "redis")
+public class RedisClusterBus extends AbstractClusterBus {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channelPrefix;
+
+    public RedisClusterBus(
+            @Value("${cluster.node-id:}") String nodeId,
+            @Value("${cluster.redis.channel-prefix:activity-tracker:}") String channelPrefix,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        super(nodeId, objectMapper, meterRegistry);
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.channelPrefix = channelPrefix;
+    }
+
+    @Override
+    protected void send(String channel, String message) {
+        redisTemplate.convertAndSend(channelPrefix + channel, message);
+    }
+
+    @Override
+    protected void listen(String channel, Consumer<String> listener) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channelPrefix + channel));
+    }
+}
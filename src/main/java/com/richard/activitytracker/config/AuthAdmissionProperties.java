@@ -0,0 +1,34 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Token-bucket limits on login and register attempts, checked before any password is hashed. */
+@Data
+@ConfigurationProperties(prefix = "activity.auth.admission")
+public class AuthAdmissionProperties {
+    private boolean enabled = true;
+    private Limit perIp = new Limit(5, 20);
+    private Limit perUsername = new Limit(0.5, 5);
+    /** Buckets unused this long are dropped; a dropped bucket starts full again. */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    /** Buckets tracked per kind; past this, new keys share one bucket until idle ones are dropped. */
+    private int maxTracked = 100000;
+
+    @Data
+    public static class Limit {
+        /** Attempts per second after the burst. */
+        private double rate;
+        private int burst;
+
+        public Limit() {
+        }
+
+        public Limit(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+    }
+}
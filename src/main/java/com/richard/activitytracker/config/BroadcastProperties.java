@@ -0,0 +1,36 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "activity.broadcast")
+public class BroadcastProperties {
+    /** Batching window for destinations without their own entry; zero sends one frame per activity. */
+    private Duration window = Duration.ZERO;
+    private int maxItems = 500;
+    /** Per-destination overrides, keyed by STOMP destination. */
+    private Map<String, Destination> destinations = new LinkedHashMap<>();
+
+    public Destination forDestination(String destination) {
+        Destination configured = destinations.get(destination);
+        Destination resolved = new Destination();
+        resolved.setWindow(configured != null && configured.getWindow() != null ? configured.getWindow() : window);
+        resolved.setMaxItems(configured != null && configured.getMaxItems() != null ? configured.getMaxItems() : maxItems);
+        return resolved;
+    }
+
+    @Data
+    public static class Destination {
+        private Duration window;
+        private Integer maxItems;
+
+        public boolean isBatched() {
+            return window != null && !window.isZero() && !window.isNegative();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.richard.activitytracker.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.dto.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead for API requests sized from the JDBC pool. With virtual threads the servlet container
+ * no longer caps concurrency, so without this every request would queue inside Hikari.
+ */
+@Slf4j
+public class DatabaseConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long maxWaitMillis;
+    private final ObjectMapper objectMapper;
+    private final Counter rejected;
+
+    public DatabaseConcurrencyLimitFilter(int maxPermits, long maxWaitMillis, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxPermits, true);
+        this.maxPermits = maxPermits;
+        this.maxWaitMillis = maxWaitMillis;
+        this.objectMapper = objectMapper;
+        this.rejected = Counter.builder("http.server.requests.db.rejected")
+                .description("API requests rejected because the database concurrency limit was saturated")
+                .register(meterRegistry);
+        Gauge.builder("http.server.requests.db.inflight", this, filter -> filter.maxPermits - filter.permits.availablePermits())
+                .description("API requests currently holding a database concurrency permit")
+                .register(meterRegistry);
+        Gauge.builder("http.server.requests.db.queued", permits, Semaphore::getQueueLength)
+                .description("API requests waiting for a database concurrency permit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            log.warn("Rejecting {} {}: database concurrency limit of {} reached", request.getMethod(), request.getRequestURI(), maxPermits);
+            reject(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message("Server is busy. Please retry shortly.")
+                .path(request.getRequestURI())
+                .build();
+
+        objectMapper.writeValue(response.getWriter(), errorResponse);
+    }
+}
@@ -0,0 +1,27 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** The password encoder and the bounded pool that runs it, off the request threads' CPU budget. */
+@Data
+@ConfigurationProperties(prefix = "activity.auth.hashing")
+public class PasswordHashingProperties {
+    /** Hashing threads; null means one per available processor. */
+    private Integer threads;
+    /** Hashes waiting for a thread before login and register are rejected with 429. */
+    private int queueCapacity = 64;
+    /** Encoding for new hashes; stored hashes in another encoding are rehashed on the next successful login. */
+    private Algorithm algorithm = Algorithm.BCRYPT;
+    /** BCrypt cost factor; raising it rehashes each user's password on their next successful login. */
+    private int bcryptStrength = 10;
+
+    public int resolvedThreads() {
+        return threads != null ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public enum Algorithm {
+        BCRYPT,
+        PBKDF2
+    }
+}
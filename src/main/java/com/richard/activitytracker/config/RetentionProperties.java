@@ -0,0 +1,26 @@
+package com.richard.activitytracker.config;
+
+import com.richard.activitytracker.model.Role;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "activity.retention")
+public class RetentionProperties {
+    private boolean enabled = false;
+    /** How long activities are kept, by the role of the user who logged them. */
+    private Map<Role, Duration> roles = new EnumMap<>(Role.class);
+    /** How long activities are kept, by action. Takes precedence over the role policy. */
+    private Map<String, Duration> actions = new LinkedHashMap<>();
+    private int chunkSize = 1000;
+    private Duration pauseBetweenChunks = Duration.ofMillis(200);
+    /** Purging stops for the current run once average logActivity latency exceeds this. */
+    private Duration maxWriteLatency = Duration.ofMillis(50);
+    /** How long a node keeps the purge to itself without renewing; renewed with every chunk. */
+    private Duration lockLease = Duration.ofMinutes(5);
+}
@@ -0,0 +1,22 @@
+package com.richard.activitytracker.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * The STOMP broker registers its own scheduler, which makes Boot back off from creating one and
+     * leaves {@code @Scheduled} jobs sharing the broker heartbeat threads. This bean name is the one
+     * {@code @EnableScheduling} looks for first.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Sizing for the in-memory list of revoked token ids checked on every authenticated request. */
+@Data
+@ConfigurationProperties(prefix = "activity.auth.denylist")
+public class TokenDenylistProperties {
+    /** Unexpired revocations the Bloom filter is sized for; past it more checks fall through to the exact set. */
+    private long expectedRevocations = 100000;
+    private double falsePositiveRate = 0.001;
+    /** How often expired revocations are dropped and the Bloom filter rebuilt without them. */
+    private Duration pruneInterval = Duration.ofMinutes(1);
+}
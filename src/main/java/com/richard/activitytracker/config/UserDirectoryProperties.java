@@ -0,0 +1,19 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Sizing for the in-memory user directory that answers existence checks without a query. */
+@Data
+@ConfigurationProperties(prefix = "activity.user-directory")
+public class UserDirectoryProperties {
+    /** Users kept by id, found or not found. */
+    private int maxEntries = 10000;
+    /** How long an id found missing is answered from memory before the table is asked again. */
+    private Duration negativeTtl = Duration.ofSeconds(30);
+    /** Users the Bloom filters are sized for; past it they stay correct but skip fewer lookups. */
+    private long expectedUsers = 100000;
+    private double falsePositiveRate = 0.01;
+}
@@ -0,0 +1,56 @@
+package com.richard.activitytracker.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Extras for {@code spring.threads.virtual.enabled=true}. Boot itself moves Tomcat, the
+ * application task executor and the scheduler to virtual threads; the STOMP channels are
+ * switched in {@link WebSocketConfig}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public FilterRegistrationBean<DatabaseConcurrencyLimitFilter> databaseConcurrencyLimitFilter(
+            DataSource dataSource,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${virtual-threads.requests-per-connection:2}") int requestsPerConnection,
+            @Value("${virtual-threads.max-wait-ms:500}") long maxWaitMillis) {
+        // Hikari reports -1 until the pool starts, which then falls back to its default of 10.
+        int poolSize = dataSource instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0
+                ? hikari.getMaximumPoolSize()
+                : DEFAULT_POOL_SIZE;
+        int maxPermits = Math.max(1, poolSize * requestsPerConnection);
+        log.info("Limiting concurrent API requests to {} ({} pooled connections x {})", maxPermits, poolSize, requestsPerConnection);
+
+        FilterRegistrationBean<DatabaseConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new DatabaseConcurrencyLimitFilter(maxPermits, maxWaitMillis, objectMapper, meterRegistry));
+        // Ahead of Spring Security, whose JWT filter also loads users from the database.
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    @Bean
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${virtual-threads.pinned-threshold-ms:20}") long pinnedThresholdMillis) {
+        return new VirtualThreadPinningMonitor(Duration.ofMillis(pinnedThresholdMillis), meterRegistry);
+    }
+}
@@ -0,0 +1,18 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Rate limit on WebSocket handshakes, so a reconnect wave after a deploy is admitted gradually. */
+@Data
+@ConfigurationProperties(prefix = "activity.websocket.admission")
+public class WebSocketAdmissionProperties {
+    private boolean enabled = true;
+    /** Handshakes admitted per second once the burst is used up. */
+    private double rate = 200;
+    private int burst = 400;
+    /** Upper bound of the jittered Retry-After handed to rejected clients. */
+    private Duration maxRetryAfter = Duration.ofSeconds(30);
+}
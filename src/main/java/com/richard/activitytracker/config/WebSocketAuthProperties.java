@@ -0,0 +1,17 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** How STOMP sessions are closed once the token they connected with expires or is revoked. */
+@Data
+@ConfigurationProperties(prefix = "activity.websocket.auth")
+public class WebSocketAuthProperties {
+    /** How often a session's token is checked against the denylist; expiry itself is checked on time. */
+    private Duration revocationCheckInterval = Duration.ofSeconds(30);
+    /** Resolution of the timing wheel the checks are scheduled on; the sweep runs once per tick. */
+    private Duration tick = Duration.ofSeconds(1);
+    private int wheelSlots = 128;
+}
@@ -1,46 +1,89 @@
 package com.richard.activitytracker.config;
 
 import com.richard.activitytracker.security.JwtAuthenticationFilter;
+import com.richard.activitytracker.security.JwtService;
+import com.richard.activitytracker.service.impl.ActivitySubscriptionIndex;
+import com.richard.activitytracker.websocket.SessionTokenExpiry;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
 
 @Slf4j
 @RequiredArgsConstructor
 public class WebSocketChannelInterceptor implements ChannelInterceptor {
+    private final JwtService jwtService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final SessionTokenExpiry sessionTokenExpiry;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
         
         if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
-            String token = extractToken(accessor);
-            if (token != null) {
-                try {
-                    Authentication auth = jwtAuthenticationFilter.getAuthentication(token);
-                    if (auth != null) {
-                        SecurityContextHolder.getContext().setAuthentication(auth);
-                        log.info("WebSocket connection authenticated for user: {}", auth.getName());
-                        return message;
-                    }
-                } catch (Exception e) {
-                    log.error("WebSocket authentication failed: {}", e.getMessage());
-                }
-            }
-            return null; // Reject the message
+            return authenticate(accessor) ? message : null; // Reject the message
+        }
+
+        if (accessor != null && StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            checkSubscription(accessor);
         }
         
         return message;
     }
 
+    /**
+     * Authenticates the session once. A principal bound at handshake is kept; otherwise the CONNECT
+     * frame's Authorization header is verified and its user bound to the session, so later frames
+     * carry it without being checked again. Either way the token is handed to the expiry timer.
+     */
+    private boolean authenticate(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (accessor.getUser() != null && attributes != null
+                && attributes.get(WebSocketHandshakeInterceptor.CLAIMS_ATTRIBUTE) instanceof Claims claims) {
+            sessionTokenExpiry.track(accessor.getSessionId(), claims);
+            return true;
+        }
+        String token = extractToken(accessor);
+        if (token == null) {
+            return false;
+        }
+        try {
+            Claims claims = jwtService.verify(token);
+            Authentication auth = jwtAuthenticationFilter.getAuthentication(claims);
+            if (auth != null) {
+                // Binds the user to the session so later frames carry it as their principal.
+                accessor.setUser(auth);
+                sessionTokenExpiry.track(accessor.getSessionId(), claims);
+                log.info("WebSocket connection authenticated for user: {}", auth.getName());
+                return true;
+            }
+        } catch (Exception e) {
+            log.error("WebSocket authentication failed: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    private void checkSubscription(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (accessor.getUser() == null) {
+            log.warn("Rejected unauthenticated subscription to {}", destination);
+            throw new MessageDeliveryException("Authentication required to subscribe to " + destination);
+        }
+        if (destination != null && destination.startsWith(ActivitySubscriptionIndex.ALL_ACTIVITIES)
+                && !ActivitySubscriptionIndex.isActivityDestination(destination)) {
+            throw new MessageDeliveryException("Unknown activity destination " + destination);
+        }
+    }
+
     private String extractToken(StompHeaderAccessor accessor) {
         String authHeader = accessor.getFirstNativeHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
@@ -0,0 +1,43 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Executors behind the STOMP channels. Inbound and outbound pools default to what Spring would
+ * create; with virtual threads enabled they run a virtual thread per task instead and only
+ * {@code max-pool-size} applies, as a concurrency limit.
+ */
+@Data
+@ConfigurationProperties(prefix = "activity.websocket.channels")
+public class WebSocketChannelProperties {
+    private Pool inbound = new Pool();
+    private Pool outbound = new Pool();
+    private Broker broker = new Broker();
+
+    @Data
+    public static class Pool {
+        /** Defaults to twice the available processors. */
+        private Integer corePoolSize;
+        private int maxPoolSize = Integer.MAX_VALUE;
+        /** Once full, extra threads up to {@code max-pool-size} start, then the submitting thread runs the task. */
+        private int queueCapacity = Integer.MAX_VALUE;
+        private Duration keepAlive = Duration.ofSeconds(60);
+
+        public int resolvedCorePoolSize() {
+            return corePoolSize != null ? corePoolSize : Runtime.getRuntime().availableProcessors() * 2;
+        }
+    }
+
+    @Data
+    public static class Broker {
+        /**
+         * Hand published messages to a single broker thread instead of fanning out on the
+         * publishing thread. One thread keeps the publish order; a full queue blocks the publisher.
+         */
+        private boolean async = false;
+        private int queueCapacity = 10000;
+    }
+}
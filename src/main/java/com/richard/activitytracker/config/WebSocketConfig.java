@@ -1,30 +1,97 @@
 package com.richard.activitytracker.config;
 
-import com.richard.activitytracker.security.JwtAuthenticationFilter;
+import com.richard.activitytracker.websocket.ActivityReplayInterceptor;
+import com.richard.activitytracker.websocket.ChannelExecutors;
+import com.richard.activitytracker.websocket.CompressionUpgradeStrategy;
+import com.richard.activitytracker.websocket.ConnectAdmissionInterceptor;
+import com.richard.activitytracker.websocket.OutboundSessionRegistry;
+import com.richard.activitytracker.websocket.PayloadEncodingInterceptor;
+import com.richard.activitytracker.websocket.PresenceRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.security.Principal;
+import java.util.Map;
 
 @Configuration
 @EnableWebSocketMessageBroker
 @RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final Environment environment;
+    private final ChannelExecutors channelExecutors;
+    private final WebSocketOutboundProperties outboundProperties;
+    private final OutboundSessionRegistry outboundSessionRegistry;
+    private final ActivityReplayInterceptor activityReplayInterceptor;
+    private final ConnectAdmissionInterceptor connectAdmissionInterceptor;
+    private final CompressionUpgradeStrategy compressionUpgradeStrategy;
+    private final PayloadEncodingInterceptor payloadEncodingInterceptor;
+    private final PresenceRegistry presenceRegistry;
+    private final WebSocketHandshakeInterceptor webSocketHandshakeInterceptor;
+    private final WebSocketChannelInterceptor webSocketChannelInterceptor;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
+        // Activities carry a stream sequence; the outbound pool must not reorder a session's frames.
+        config.setPreservePublishOrder(true);
+        if (channelExecutors.broker() != null) {
+            config.configureBrokerChannel().executor(channelExecutors.broker());
+        }
+        // One cache entry per distinct destination; per-user and per-action topics need more than the default 1024.
+        config.setCacheLimit(environment.getProperty("activity.subscriptions.broker-cache-limit", Integer.class, 8192));
 //        config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authentication first, so frames it rejects never reach the replay cursor, encoding or presence.
+        registration.interceptors(webSocketChannelInterceptor, activityReplayInterceptor,
+                        payloadEncodingInterceptor.connectNegotiation(), presenceRegistry)
+                .executor(channelExecutors.inbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // With preservePublishOrder each session's frames are dispatched one at a time, while
+        // different sessions proceed in parallel on the pool.
+        registration.interceptors(activityReplayInterceptor.liveGate(), payloadEncodingInterceptor)
+                .executor(channelExecutors.outbound());
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // The bounded session applies the overflow policy first; these limits only back it up.
+        registration.addDecoratorFactory(outboundSessionRegistry)
+                .setSendTimeLimit((int) outboundProperties.getSendTimeLimit().toMillis())
+                .setSendBufferSizeLimit((int) outboundProperties.getBufferSizeLimit().toBytes());
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
             .setAllowedOrigins("*")
-                .addInterceptors(new WebSocketAuthInterceptor());
-//            .addInterceptors(webSocketHandshakeInterceptor);
+                .setHandshakeHandler(new DefaultHandshakeHandler(compressionUpgradeStrategy) {
+                    // The principal verified by the handshake interceptor becomes the session's user.
+                    @Override
+                    protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                                      Map<String, Object> attributes) {
+                        return attributes.get(WebSocketHandshakeInterceptor.USER_ATTRIBUTE) instanceof Principal user
+                                ? user
+                                : super.determineUser(request, wsHandler, attributes);
+                    }
+                })
+                .addInterceptors(connectAdmissionInterceptor, webSocketHandshakeInterceptor);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** How frames are encoded for WebSocket clients: wire compression and the optional binary payload format. */
+@Data
+@ConfigurationProperties(prefix = "activity.websocket.encoding")
+public class WebSocketEncodingProperties {
+    /** Accept the permessage-deflate extension when the client offers it. */
+    private boolean permessageDeflate = true;
+    /** Let clients ask for CBOR payloads in binary frames with a {@code payload-encoding:cbor} CONNECT header. */
+    private boolean binary = true;
+    /** Recently broadcast payloads whose CBOR form is kept, so each is transcoded once and not per session. */
+    private int transcodeCacheSize = 256;
+}
@@ -1,48 +1,42 @@
 package com.richard.activitytracker.config;
 
-import com.richard.activitytracker.service.ActivityService;
+import com.richard.activitytracker.websocket.PresenceRegistry;
+import com.richard.activitytracker.websocket.SessionTokenExpiry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
+/**
+ * Connection logging, presence, and releasing a session's token expiry check. The initial activities are no longer pushed here on connect:
+ * each subscription to {@code /topic/activities} receives the shared snapshot from
+ * {@code ActivityReplayInterceptor} instead.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class WebSocketEventListener {
-    @Lazy
-    private final SimpMessagingTemplate messagingTemplate;
-    @Lazy
-    private final ActivityService activityService;
+
+    private final PresenceRegistry presenceRegistry;
+    private final SessionTokenExpiry sessionTokenExpiry;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String sessionId = headerAccessor.getSessionId();
-        log.info("New WebSocket connection established: {}", sessionId);
-        sendInitialActivities(sessionId);
+        log.info("New WebSocket connection established: {}", headerAccessor.getSessionId());
+        if (event.getUser() != null) {
+            presenceRegistry.connected(headerAccessor.getSessionId(), event.getUser().getName());
+        }
     }
 
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String sessionId = headerAccessor.getSessionId();
-        log.info("WebSocket connection closed: {}", sessionId);
-    }
-
-    private void sendInitialActivities(String sessionId) {
-        log.info("Sending initial activities to session: {}", sessionId);
-        Pageable pageable = PageRequest.of(0, 10, Sort.by("timestamp").descending());
-        var activities = activityService.getAllActivities(pageable).getContent();
-        log.info("Found {} activities to send", activities.size());
-        messagingTemplate.convertAndSendToUser(sessionId, "/queue/activities", activities);
+        log.info("WebSocket connection closed: {}", headerAccessor.getSessionId());
+        presenceRegistry.disconnected(event.getSessionId());
+        sessionTokenExpiry.untrack(event.getSessionId());
     }
-} 
\ No newline at end of file
+}
@@ -1,19 +1,33 @@
 package com.richard.activitytracker.config;
 
 import com.richard.activitytracker.security.JwtAuthenticationFilter;
+import com.richard.activitytracker.security.JwtService;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.Map;
 
+/**
+ * Verifies a token sent with the handshake, as a {@code token} query parameter or an Authorization
+ * header, and keeps the principal and claims in the session attributes so the session is bound to
+ * the user before STOMP CONNECT. Browsers cannot set handshake headers, so a handshake without a
+ * token is let through and authenticated at CONNECT instead; one with an invalid token is refused.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
+    public static final String USER_ATTRIBUTE = "user";
+    public static final String CLAIMS_ATTRIBUTE = "tokenClaims";
+
+    private final JwtService jwtService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @Override
@@ -21,40 +35,37 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
             WebSocketHandler wsHandler, Map<String, Object> attributes) {
         String token = extractToken(request);
         if (token == null) {
-            log.warn("No token found in WebSocket handshake request");
-            return false;
+            return true;
         }
 
         try {
-            Authentication auth = jwtAuthenticationFilter.getAuthentication(token);
+            Claims claims = jwtService.verify(token);
+            Authentication auth = jwtAuthenticationFilter.getAuthentication(claims);
             if (auth != null) {
                 log.info("WebSocket handshake validated for user: {}", auth.getName());
-                attributes.put("user", auth);
+                attributes.put(USER_ATTRIBUTE, auth);
+                attributes.put(CLAIMS_ATTRIBUTE, claims);
                 return true;
             }
-            return false;
         } catch (Exception e) {
             log.error("WebSocket handshake validation failed: {}", e.getMessage());
-            return false;
         }
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        return false;
     }
 
     @Override
     public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, 
             WebSocketHandler wsHandler, Exception exception) {
-        if (exception == null) {
-            log.info("WebSocket handshake completed successfully");
-        }
+        // No-op
     }
 
     private String extractToken(ServerHttpRequest request) {
-        // First try to get token from query parameter
-        String token = request.getURI().getQuery();
-        if (token != null && token.startsWith("token=")) {
-            return token.substring(6);
+        String token = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("token");
+        if (token != null && !token.isBlank()) {
+            return token;
         }
 
-        // Then try to get token from Authorization header
         String authHeader = request.getHeaders().getFirst("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             return authHeader.substring(7);
@@ -62,4 +73,4 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
 
         return null;
     }
-} 
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.richard.activitytracker.config;
 
 import com.richard.activitytracker.security.JwtAuthenticationFilter;
+import com.richard.activitytracker.security.JwtService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,10 +10,11 @@ import org.springframework.context.annotation.Configuration;
 @RequiredArgsConstructor
 public class WebSocketHandshakeInterceptorConfig {
 
+    private final JwtService jwtService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @Bean
     public WebSocketHandshakeInterceptor webSocketHandshakeInterceptor() {
-        return new WebSocketHandshakeInterceptor(jwtAuthenticationFilter);
+        return new WebSocketHandshakeInterceptor(jwtService, jwtAuthenticationFilter);
     }
 }
@@ -0,0 +1,27 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/** Per-session limits on frames queued for a WebSocket client that reads slower than we publish. */
+@Data
+@ConfigurationProperties(prefix = "activity.websocket.outbound")
+public class WebSocketOutboundProperties {
+    /** Bytes of encoded frames queued for one session before the overflow policy applies. */
+    private DataSize bufferSizeLimit = DataSize.ofKilobytes(512);
+    /** A session whose current write has been blocked this long is disconnected, whatever the policy. */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+    private OverflowPolicy overflow = OverflowPolicy.DISCONNECT;
+
+    public enum OverflowPolicy {
+        /** Close the session; the client reconnects and reloads. */
+        DISCONNECT,
+        /** Drop the oldest queued frames until the queue fits again. */
+        DROP_OLDEST,
+        /** Replace every queued activity frame with one "N missed, resync" frame per subscription. */
+        CONFLATE
+    }
+}
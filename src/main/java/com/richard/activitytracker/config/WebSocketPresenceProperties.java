@@ -0,0 +1,20 @@
+package com.richard.activitytracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Who is connected over STOMP, and how sessions that never report a disconnect are aged out. */
+@Data
+@ConfigurationProperties(prefix = "activity.websocket.presence")
+public class WebSocketPresenceProperties {
+    /** Online and offline transitions are published here. */
+    private String topic = "/topic/presence";
+    /** A session that sent nothing for this long is checked, and dropped unless its socket is still open. */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+    /** Resolution of the expiry timing wheel; the sweep runs once per tick. */
+    private Duration tick = Duration.ofSeconds(1);
+    /** Buckets in the timing wheel; idle timeout / tick buckets avoid carrying entries over a revolution. */
+    private int wheelSlots = 128;
+}
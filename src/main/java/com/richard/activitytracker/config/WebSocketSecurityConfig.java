@@ -1,19 +1,22 @@
 package com.richard.activitytracker.config;
 
 import com.richard.activitytracker.security.JwtAuthenticationFilter;
+import com.richard.activitytracker.security.JwtService;
+import com.richard.activitytracker.websocket.SessionTokenExpiry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.messaging.simp.config.ChannelRegistration;
-import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+/** STOMP authentication; {@link WebSocketConfig} puts it ahead of the other inbound interceptors. */
 @Configuration
 @RequiredArgsConstructor
-public class WebSocketSecurityConfig implements WebSocketMessageBrokerConfigurer {
+public class WebSocketSecurityConfig {
+    private final JwtService jwtService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final SessionTokenExpiry sessionTokenExpiry;
 
-    @Override
-    public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new WebSocketChannelInterceptor(jwtAuthenticationFilter));
+    @Bean
+    public WebSocketChannelInterceptor webSocketChannelInterceptor() {
+        return new WebSocketChannelInterceptor(jwtService, jwtAuthenticationFilter, sessionTokenExpiry);
     }
-}
\ No newline at end of file
+}
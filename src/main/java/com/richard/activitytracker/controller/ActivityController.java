@@ -4,8 +4,9 @@ import com.richard.activitytracker.dto.ActivityRequest;
 import com.richard.activitytracker.dto.ActivityResponse;
 import com.richard.activitytracker.dto.AuthResponse;
 import com.richard.activitytracker.exception.UserNotFoundException;
-import com.richard.activitytracker.model.User;
+import com.richard.activitytracker.security.AuthenticatedUser;
 import com.richard.activitytracker.service.ActivityService;
+import com.richard.activitytracker.service.impl.ActivityVersionTracker;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -14,10 +15,13 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 
@@ -26,32 +30,40 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class ActivityController {
     private final ActivityService activityService;
+    private final ActivityVersionTracker activityVersionTracker;
 
     @PostMapping
     public ResponseEntity<ActivityResponse> logActivity(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @Valid @RequestBody ActivityRequest request) {
-        return ResponseEntity.ok(activityService.logActivity(user.getId(), request));
+        return ResponseEntity.ok(activityService.logActivity(user.id(), request));
     }
 
     @GetMapping
     public ResponseEntity<Page<ActivityResponse>> getRecentActivities(@RequestParam(defaultValue = "0") int page,
-    @RequestParam(defaultValue = "10") int size) {
+    @RequestParam(defaultValue = "10") int size, WebRequest webRequest) {
+        if (webRequest.checkNotModified(activityVersionTracker.globalETag(), activityVersionTracker.globalLastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
         Page<ActivityResponse> activities = activityService.getRecentActivities(pageable);
         return activities.isEmpty() ?
-                ResponseEntity.noContent().build() :
-                ResponseEntity.ok(activities);
+                ResponseEntity.noContent().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).build() :
+                ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(activities);
     }
 
     @GetMapping("/user/{userId}")
     public ResponseEntity<Page<ActivityResponse>> getActivitiesByUserId(
             @PathVariable Long userId,
-            @PageableDefault(size = 10, sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable) {
+            @PageableDefault(size = 10, sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest webRequest) {
 
+        if (webRequest.checkNotModified(activityVersionTracker.userETag(userId), activityVersionTracker.userLastModified(userId))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
         try {
             Page<ActivityResponse> activities = activityService.getActivitiesByUserId(userId, pageable);
-            return ResponseEntity.ok(activities);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(activities);
         } catch (UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (Exception e) {
@@ -69,7 +81,7 @@ public class ActivityController {
 
         try {
             Page<ActivityResponse> results = activityService.searchActivities(userId, startTime, endTime, pageable);
-            return ResponseEntity.ok(results);
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(results);
         } catch (UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (Exception e) {
@@ -0,0 +1,28 @@
+package com.richard.activitytracker.controller;
+
+import com.richard.activitytracker.analytics.StatsWindow;
+import com.richard.activitytracker.dto.TopKResponse;
+import com.richard.activitytracker.service.ActivityStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+public class ActivityStatsController {
+    private static final int MAX_LIMIT = 100;
+
+    private final ActivityStatsService activityStatsService;
+
+    @GetMapping("/top")
+    public ResponseEntity<TopKResponse> getTopK(
+            @RequestParam(defaultValue = "1m") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(activityStatsService.getTopK(StatsWindow.fromLabel(window), boundedLimit));
+    }
+}
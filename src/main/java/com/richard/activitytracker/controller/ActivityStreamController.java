@@ -0,0 +1,27 @@
+package com.richard.activitytracker.controller;
+
+import com.richard.activitytracker.service.ActivityStreamService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/activities")
+@RequiredArgsConstructor
+public class ActivityStreamController {
+
+    private final ActivityStreamService activityStreamService;
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String action,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return activityStreamService.subscribe(userId, action, lastEventId);
+    }
+}
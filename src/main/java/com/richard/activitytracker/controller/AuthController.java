@@ -2,15 +2,18 @@ package com.richard.activitytracker.controller;
 
 import com.richard.activitytracker.dto.AuthRequest;
 import com.richard.activitytracker.dto.AuthResponse;
+import com.richard.activitytracker.dto.RefreshRequest;
 import com.richard.activitytracker.dto.RegisterRequest;
 import com.richard.activitytracker.exception.AuthenticationException;
 import com.richard.activitytracker.handler.ErrorResponse;
 import com.richard.activitytracker.service.impl.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -42,4 +45,28 @@ public class AuthController {
                     ));
         }
     }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody @Valid RefreshRequest request) {
+        try {
+            return ResponseEntity.ok(authService.refresh(request));
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(new ErrorResponse(
+                            e.getMessage(),
+                            e.getError(),
+                            e.getStatus(),
+                            e.getPath(),
+                            e.getDetails()
+                    ));
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody(required = false) RefreshRequest request) {
+        authService.logout(authorization, request);
+        return ResponseEntity.noContent().build();
+    }
 } 
@@ -0,0 +1,40 @@
+package com.richard.activitytracker.controller;
+
+import com.richard.activitytracker.dto.LastSeenResponse;
+import com.richard.activitytracker.exception.InvalidRequestException;
+import com.richard.activitytracker.service.LastSeenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class LastSeenController {
+    private static final int MAX_IDS = 500;
+
+    private final LastSeenService lastSeenService;
+
+    @GetMapping("/last-seen")
+    public ResponseEntity<List<LastSeenResponse>> getLastSeen(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new InvalidRequestException("At most " + MAX_IDS + " user ids can be requested at once");
+        }
+        return ResponseEntity.ok(lastSeenService.getLastSeen(ids));
+    }
+
+    @GetMapping("/{userId}/last-seen")
+    public ResponseEntity<LastSeenResponse> getLastSeen(@PathVariable Long userId) {
+        return lastSeenService.getLastSeen(List.of(userId)).stream()
+                .findFirst()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+}
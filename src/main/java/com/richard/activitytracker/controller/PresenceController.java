@@ -0,0 +1,37 @@
+package com.richard.activitytracker.controller;
+
+import com.richard.activitytracker.dto.PresenceResponse;
+import com.richard.activitytracker.exception.InvalidRequestException;
+import com.richard.activitytracker.websocket.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+@RequiredArgsConstructor
+public class PresenceController {
+    private static final int MAX_USERS = 500;
+
+    private final PresenceRegistry presenceRegistry;
+
+    /** One entry per requested user, offline ones included. */
+    @GetMapping
+    public ResponseEntity<List<PresenceResponse>> getPresence(@RequestParam List<String> users) {
+        if (users.size() > MAX_USERS) {
+            throw new InvalidRequestException("At most " + MAX_USERS + " users can be requested at once");
+        }
+        return ResponseEntity.ok(presenceRegistry.getPresence(users));
+    }
+
+    @GetMapping("/{user}")
+    public ResponseEntity<PresenceResponse> getPresence(@PathVariable String user) {
+        return ResponseEntity.ok(presenceRegistry.getPresence(List.of(user)).get(0));
+    }
+}
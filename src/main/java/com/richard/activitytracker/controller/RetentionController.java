@@ -0,0 +1,24 @@
+package com.richard.activitytracker.controller;
+
+import com.richard.activitytracker.dto.RetentionStatusResponse;
+import com.richard.activitytracker.service.RetentionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/retention")
+@RequiredArgsConstructor
+public class RetentionController {
+
+    private final RetentionService retentionService;
+
+    @Secured("ROLE_ADMIN")
+    @GetMapping("/status")
+    public ResponseEntity<RetentionStatusResponse> getStatus() {
+        return ResponseEntity.ok(retentionService.getStatus());
+    }
+}
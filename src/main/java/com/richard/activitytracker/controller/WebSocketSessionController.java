@@ -0,0 +1,28 @@
+package com.richard.activitytracker.controller;
+
+import com.richard.activitytracker.dto.WebSocketSessionStatus;
+import com.richard.activitytracker.websocket.OutboundSessionRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/websocket")
+@RequiredArgsConstructor
+public class WebSocketSessionController {
+
+    private final OutboundSessionRegistry outboundSessionRegistry;
+
+    /** Open sessions with the deepest outbound queues first. */
+    @Secured("ROLE_ADMIN")
+    @GetMapping("/sessions")
+    public ResponseEntity<List<WebSocketSessionStatus>> getSessions(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(outboundSessionRegistry.getSessions(Math.max(1, Math.min(limit, 1000))));
+    }
+}
@@ -1,5 +1,6 @@
 package com.richard.activitytracker.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,7 +9,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ActivityResponse {
@@ -18,4 +19,10 @@ public class ActivityResponse {
     private String action;
     private String details;
     private LocalDateTime timestamp;
+    /** Position in this node's activity stream; only set on activities pushed to live subscribers. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long sequence;
+    /** Identifies the stream {@link #sequence} belongs to; it changes when the node restarts. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String stream;
 } 
\ No newline at end of file
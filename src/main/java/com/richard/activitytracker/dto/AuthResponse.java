@@ -1,10 +1,17 @@
 package com.richard.activitytracker.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class AuthResponse {
     private String token;
-} 
\ No newline at end of file
+    private String refreshToken;
+
+    public AuthResponse(String token) {
+        this(token, null);
+    }
+}
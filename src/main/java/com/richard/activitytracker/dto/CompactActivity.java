@@ -0,0 +1,29 @@
+package com.richard.activitytracker.dto;
+
+import java.time.ZoneId;
+
+/**
+ * Binary-friendly form of {@link ActivityResponse}: the timestamp travels as epoch milliseconds
+ * instead of an ISO string.
+ */
+public record CompactActivity(
+        Long id,
+        Long userId,
+        String username,
+        String action,
+        String details,
+        long timestamp
+) {
+    public static CompactActivity from(ActivityResponse activity) {
+        long epochMillis = activity.getTimestamp() == null ? 0L
+                : activity.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new CompactActivity(
+                activity.getId(),
+                activity.getUserId(),
+                activity.getUsername(),
+                activity.getAction(),
+                activity.getDetails(),
+                epochMillis
+        );
+    }
+}
@@ -0,0 +1,24 @@
+package com.richard.activitytracker.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * Slim replacement for Spring's {@code Page} JSON envelope, used by the binary encodings.
+ */
+public record CompactActivityPage(
+        List<CompactActivity> items,
+        int page,
+        int size,
+        long total
+) {
+    public static CompactActivityPage from(Page<ActivityResponse> page) {
+        return new CompactActivityPage(
+                page.getContent().stream().map(CompactActivity::from).toList(),
+                page.getNumber(),
+                page.getSize(),
+                page.getTotalElements()
+        );
+    }
+}
@@ -0,0 +1,19 @@
+package com.richard.activitytracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HeavyHitterResponse {
+    private Long userId;
+    private String name;
+    private long count;
+    private long error;
+}
@@ -0,0 +1,19 @@
+package com.richard.activitytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LastSeenResponse {
+    private Long userId;
+    private Long activityId;
+    private String action;
+    private LocalDateTime lastSeenAt;
+}
@@ -0,0 +1,24 @@
+package com.richard.activitytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/** Published when a user's first session opens or last session closes. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceEvent {
+    private String user;
+    private Status status;
+    private LocalDateTime timestamp;
+
+    public enum Status {
+        ONLINE,
+        OFFLINE
+    }
+}
@@ -0,0 +1,20 @@
+package com.richard.activitytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceResponse {
+    private String user;
+    private boolean online;
+    private int sessions;
+    /** When the user last came online; null while offline. */
+    private LocalDateTime onlineSince;
+}
@@ -0,0 +1,21 @@
+package com.richard.activitytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionPolicyStatus {
+    private String policy;
+    private String retention;
+    private Long lastPurgedId;
+    private Long rowsPurged;
+    private Long lagSeconds;
+    private LocalDateTime lastRunAt;
+}
@@ -0,0 +1,20 @@
+package com.richard.activitytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionStatusResponse {
+    private boolean enabled;
+    private boolean running;
+    private boolean paused;
+    private long averageWriteLatencyMs;
+    private List<RetentionPolicyStatus> policies;
+}
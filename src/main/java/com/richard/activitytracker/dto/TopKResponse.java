@@ -0,0 +1,20 @@
+package com.richard.activitytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopKResponse {
+    private String window;
+    private LocalDateTime generatedAt;
+    private List<HeavyHitterResponse> actions;
+    private List<HeavyHitterResponse> users;
+}
@@ -0,0 +1,20 @@
+package com.richard.activitytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebSocketSessionStatus {
+    private String sessionId;
+    private String user;
+    private int queuedFrames;
+    private long queuedBytes;
+    private long droppedFrames;
+    /** How long the frame currently being written has been blocked, 0 when idle. */
+    private long sendingForMillis;
+}
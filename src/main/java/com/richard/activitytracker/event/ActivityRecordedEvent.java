@@ -0,0 +1,7 @@
+package com.richard.activitytracker.event;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+
+/** Published when an activity has been written, for the in-memory views to pick up once it commits. */
+public record ActivityRecordedEvent(ActivityResponse activity) {
+}
@@ -0,0 +1,9 @@
+package com.richard.activitytracker.exception;
+
+/** A request parameter the caller got wrong, such as an unknown window or too many ids. Mapped to 400. */
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.richard.activitytracker.exception;
+
+import lombok.Getter;
+
+/** Load shedding: the caller should retry after {@code retryAfterSeconds}. Mapped to 429. */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,40 @@
+package com.richard.activitytracker.handler;
+
+import com.richard.activitytracker.controller.ActivityController;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.CompactActivityPage;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Swaps activity pages for {@link CompactActivityPage} when content negotiation picked CBOR or
+ * Smile. JSON responses keep the regular {@code Page} shape.
+ */
+@RestControllerAdvice(assignableTypes = ActivityController.class)
+public class CompactPageResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return MappingJackson2CborHttpMessageConverter.class.isAssignableFrom(converterType)
+                || MappingJackson2SmileHttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof Page<?> page && (page.isEmpty() || page.getContent().get(0) instanceof ActivityResponse)) {
+            return CompactActivityPage.from((Page<ActivityResponse>) page);
+        }
+        return body;
+    }
+}
@@ -1,13 +1,16 @@
 package com.richard.activitytracker.handler;
 
 import com.richard.activitytracker.exception.BroadcastFailedException;
+import com.richard.activitytracker.exception.InvalidRequestException;
 import com.richard.activitytracker.exception.TokenGenerationException;
+import com.richard.activitytracker.exception.TooManyRequestsException;
 import com.richard.activitytracker.exception.UserNotFoundException;
 import com.richard.activitytracker.exception.WebSocketException;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -67,6 +70,20 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handle(TooManyRequestsException exp, HttpServletRequest request) {
+        log.warn("Too many requests: {}", exp.getMessage());
+        return ResponseEntity
+                .status(TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exp.getRetryAfterSeconds()))
+                .body(new ErrorResponse(
+                        exp.getMessage(),
+                        "Too many requests",
+                        TOO_MANY_REQUESTS.value(),
+                        request.getRequestURI()
+                ));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handle(MethodArgumentNotValidException exp, HttpServletRequest request) {
         log.error("Validation error: {}", exp.getMessage());
@@ -89,6 +106,19 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponse> handle(InvalidRequestException exp, HttpServletRequest request) {
+        log.error("Invalid request parameter: {}", exp.getMessage());
+        return ResponseEntity
+                .status(BAD_REQUEST)
+                .body(new ErrorResponse(
+                        exp.getMessage(),
+                        "Invalid request parameter",
+                        BAD_REQUEST.value(),
+                        request.getRequestURI()
+                ));
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ErrorResponse> handle(BadCredentialsException exp, HttpServletRequest request) {
         log.error("Authentication failed: {}", exp.getMessage());
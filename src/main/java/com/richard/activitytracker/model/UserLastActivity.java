@@ -0,0 +1,52 @@
+package com.richard.activitytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "user_last_activity")
+public class UserLastActivity implements Persistable<Long> {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "activity_id", nullable = false)
+    private Long activityId;
+
+    @Column(nullable = false)
+    private String action;
+
+    @Column(name = "last_seen_at", nullable = false)
+    private LocalDateTime lastSeenAt;
+
+    // Ids are assigned, so without this flag every insert would be preceded by a merge SELECT.
+    @Transient
+    @Builder.Default
+    private boolean newRow = false;
+
+    @Override
+    public Long getId() {
+        return userId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRow;
+    }
+
+    @PostLoad
+    @PostPersist
+    protected void markPersisted() {
+        newRow = false;
+    }
+}
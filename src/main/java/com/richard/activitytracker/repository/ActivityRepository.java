@@ -1,14 +1,17 @@
 package com.richard.activitytracker.repository;
 
 import com.richard.activitytracker.model.Activity;
+import com.richard.activitytracker.model.Role;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -27,4 +30,67 @@ public interface ActivityRepository extends JpaRepository<Activity, Long> {
             @Param("startTime") LocalDateTime startTime,
             @Param("endTime") LocalDateTime endTime,
             Pageable pageable);
+
+    @Query("SELECT a.user.id AS userId, a.id AS activityId, a.action AS action, a.timestamp AS timestamp " +
+            "FROM Activity a WHERE a.id IN (SELECT MAX(b.id) FROM Activity b WHERE b.user.id IN :userIds GROUP BY b.user.id)")
+    List<LatestActivityView> findLatestForUsers(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT a FROM Activity a JOIN FETCH a.user u WHERE a.id > :afterId " +
+           "AND (:userId IS NULL OR u.id = :userId) AND (:action IS NULL OR a.action = :action) ORDER BY a.id")
+    List<Activity> findAfterId(@Param("afterId") Long afterId, @Param("userId") Long userId,
+                               @Param("action") String action, Pageable pageable);
+
+    @Query("SELECT MAX(a.id) FROM Activity a WHERE a.timestamp < :cutoff")
+    Long findMaxIdBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT MIN(a.id) FROM Activity a WHERE a.id > :afterId")
+    Long findMinIdAfter(@Param("afterId") Long afterId);
+
+    @Modifying
+    @Query("DELETE FROM Activity a WHERE a.id > :fromId AND a.id <= :toId AND a.timestamp < :cutoff AND a.action = :action")
+    int deleteByActionInRange(
+            @Param("action") String action,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("fromId") Long fromId,
+            @Param("toId") Long toId);
+
+    @Modifying
+    @Query("DELETE FROM Activity a WHERE a.id > :fromId AND a.id <= :toId AND a.timestamp < :cutoff " +
+            "AND a.user.id IN (SELECT u.id FROM User u WHERE u.role = :role)")
+    int deleteByRoleInRange(
+            @Param("role") Role role,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("fromId") Long fromId,
+            @Param("toId") Long toId);
+
+    @Modifying
+    @Query("DELETE FROM Activity a WHERE a.id > :fromId AND a.id <= :toId AND a.timestamp < :cutoff " +
+            "AND a.user.id IN (SELECT u.id FROM User u WHERE u.role = :role) AND a.action NOT IN :excludedActions")
+    int deleteByRoleInRangeExcludingActions(
+            @Param("role") Role role,
+            @Param("excludedActions") Collection<String> excludedActions,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("fromId") Long fromId,
+            @Param("toId") Long toId);
+
+    @Query("SELECT MIN(a.timestamp) FROM Activity a WHERE a.timestamp < :cutoff AND a.action = :action")
+    LocalDateTime findOldestByActionBefore(@Param("action") String action, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT MIN(a.timestamp) FROM Activity a WHERE a.timestamp < :cutoff " +
+            "AND a.user.id IN (SELECT u.id FROM User u WHERE u.role = :role)")
+    LocalDateTime findOldestByRoleBefore(@Param("role") Role role, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT MIN(a.timestamp) FROM Activity a WHERE a.timestamp < :cutoff " +
+            "AND a.user.id IN (SELECT u.id FROM User u WHERE u.role = :role) AND a.action NOT IN :excludedActions")
+    LocalDateTime findOldestByRoleBeforeExcludingActions(
+            @Param("role") Role role,
+            @Param("excludedActions") Collection<String> excludedActions,
+            @Param("cutoff") LocalDateTime cutoff);
+
+    interface LatestActivityView {
+        Long getUserId();
+        Long getActivityId();
+        String getAction();
+        LocalDateTime getTimestamp();
+    }
 } 
\ No newline at end of file
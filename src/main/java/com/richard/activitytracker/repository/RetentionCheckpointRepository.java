@@ -0,0 +1,29 @@
+package com.richard.activitytracker.repository;
+
+import com.richard.activitytracker.model.RetentionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RetentionCheckpointRepository extends JpaRepository<RetentionCheckpoint, String> {
+
+    /** Takes or renews the lease if it is free, expired or already held by this node; 1 if it did. */
+    @Modifying
+    @Query("UPDATE RetentionCheckpoint c SET c.lockedBy = :nodeId, c.lockedUntil = :until WHERE c.policyKey = :key " +
+            "AND (c.lockedBy IS NULL OR c.lockedBy = :nodeId OR c.lockedUntil < :now)")
+    int acquireLock(
+            @Param("key") String key,
+            @Param("nodeId") String nodeId,
+            @Param("now") LocalDateTime now,
+            @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE RetentionCheckpoint c SET c.lockedBy = NULL, c.lockedUntil = NULL " +
+            "WHERE c.policyKey = :key AND c.lockedBy = :nodeId")
+    int releaseLock(@Param("key") String key, @Param("nodeId") String nodeId);
+}
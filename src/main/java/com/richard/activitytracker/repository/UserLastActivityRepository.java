@@ -0,0 +1,9 @@
+package com.richard.activitytracker.repository;
+
+import com.richard.activitytracker.model.UserLastActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserLastActivityRepository extends JpaRepository<UserLastActivity, Long> {
+}
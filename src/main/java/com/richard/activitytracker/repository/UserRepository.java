@@ -1,9 +1,13 @@
 package com.richard.activitytracker.repository;
 
 import com.richard.activitytracker.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,19 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    List<Identity> findAllIdentitiesBy();
+
+    /** Keyset page of user ids, so walking every user never reads past rows it skips. */
+    @Query("select u.id from User u where u.id > :afterId order by u.id")
+    List<Long> findIdsAfter(Long afterId, Limit limit);
+
+    @Modifying
+    @Query("update User u set u.password = :password where u.username = :username")
+    int updatePassword(String username, String password);
+
+    /** The unique keys of a user, loaded without the rest of the row. */
+    interface Identity {
+        String getUsername();
+        String getEmail();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.richard.activitytracker.security;
+
+import com.richard.activitytracker.config.AuthAdmissionProperties;
+import com.richard.activitytracker.exception.TooManyRequestsException;
+import com.richard.activitytracker.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per client address and per username token buckets for login and register, checked before the
+ * request reaches the password encoder. A credential-stuffing run from one address, or a
+ * brute force against one account, is turned away with a 429 at the cost of a map lookup.
+ */
+@Slf4j
+@Component
+public class AuthAdmission {
+
+    private final AuthAdmissionProperties properties;
+    private final Limiters byAddress;
+    private final Limiters byUsername;
+
+    public AuthAdmission(AuthAdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.byAddress = new Limiters("ip", properties.getPerIp(), meterRegistry);
+        this.byUsername = new Limiters("username", properties.getPerUsername(), meterRegistry);
+    }
+
+    /** Throws {@link TooManyRequestsException} when either limit is exhausted. */
+    public void admit(String clientAddress, String username) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (clientAddress != null) {
+            byAddress.acquire(clientAddress);
+        }
+        if (username != null) {
+            byUsername.acquire(username);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${activity.auth.admission.sweep-interval-ms:60000}")
+    public void dropIdleBuckets() {
+        long idleBefore = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        byAddress.dropIdle(idleBefore);
+        byUsername.dropIdle(idleBefore);
+    }
+
+    private final class Limiters {
+        private final String kind;
+        private final AuthAdmissionProperties.Limit limit;
+        private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+        private final Limiter overflow;
+        private final Counter rejected;
+
+        private Limiters(String kind, AuthAdmissionProperties.Limit limit, MeterRegistry meterRegistry) {
+            this.kind = kind;
+            this.limit = limit;
+            this.overflow = newLimiter();
+            this.rejected = Counter.builder("auth.rejected")
+                    .description("Login and register attempts turned away with 429")
+                    .tag("reason", kind)
+                    .register(meterRegistry);
+        }
+
+        void acquire(String key) {
+            Limiter limiter = limiters.get(key);
+            if (limiter == null) {
+                limiter = limiters.size() < properties.getMaxTracked()
+                        ? limiters.computeIfAbsent(key, k -> newLimiter())
+                        : overflow;
+            }
+            limiter.lastUsedAt = System.nanoTime();
+            if (!limiter.bucket.tryAcquire()) {
+                rejected.increment();
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(limiter.bucket.nanosUntilAvailable() + 999_999_999));
+                log.warn("Too many authentication attempts by {} {}", kind, key);
+                throw new TooManyRequestsException("Too many authentication attempts; retry later", retryAfter);
+            }
+        }
+
+        void dropIdle(long idleBefore) {
+            limiters.values().removeIf(limiter -> limiter.lastUsedAt - idleBefore < 0);
+        }
+
+        private Limiter newLimiter() {
+            return new Limiter(new TokenBucket(limit.getRate(), limit.getBurst()));
+        }
+    }
+
+    private static final class Limiter {
+        private final TokenBucket bucket;
+        private volatile long lastUsedAt = System.nanoTime();
+
+        private Limiter(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.richard.activitytracker.security;
+
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.model.User;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The principal of a token-authenticated request or STOMP session: who the verified token says the
+ * caller is. Built from the token's claims, so authenticating does not load the {@code users} row.
+ */
+public record AuthenticatedUser(Long id, String username, Role role) implements AuthenticatedPrincipal, Serializable {
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole());
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -2,6 +2,8 @@ package com.richard.activitytracker.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.richard.activitytracker.dto.ErrorResponse;
+import com.richard.activitytracker.model.User;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -55,17 +57,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             jwt = authHeader.substring(7);
-            userEmail = jwtService.extractUsername(jwt);
+            // One parse and signature check (or cache hit) per request; the claims are reused below.
+            Claims claims = jwtService.verify(jwt);
+            userEmail = claims.getSubject();
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                    );
+                UsernamePasswordAuthenticationToken authToken = authenticate(claims);
+
+                if (authToken != null) {
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                     log.info("Successfully authenticated user: {}", userEmail);
@@ -87,6 +86,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     .path(request.getRequestURI())
                     .build();
             
+            objectMapper.writeValue(response.getWriter(), errorResponse);
+        } catch (TokenRevokedException e) {
+            log.warn("Revoked token {} presented", e.getTokenId());
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+            ErrorResponse errorResponse = ErrorResponse.builder()
+                    .timestamp(LocalDateTime.now())
+                    .status(HttpStatus.UNAUTHORIZED.value())
+                    .error("Unauthorized")
+                    .message("Your session has been revoked. Please log in again.")
+                    .path(request.getRequestURI())
+                    .build();
+
             objectMapper.writeValue(response.getWriter(), errorResponse);
         } catch (Exception e) {
             log.error("Error processing JWT token: {}", e.getMessage());
@@ -107,20 +120,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     public Authentication getAuthentication(String token) {
         try {
-            String username = jwtService.extractUsername(token);
-            if (username != null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                if (jwtService.isTokenValid(token, userDetails)) {
-                    return new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                    );
-                }
+            return getAuthentication(jwtService.verify(token));
+        } catch (Exception e) {
+            log.error("Error getting authentication from token: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /** The authentication for claims already returned by {@link JwtService#verify}, or null. */
+    public Authentication getAuthentication(Claims claims) {
+        try {
+            if (claims.getSubject() != null) {
+                return authenticate(claims);
             }
         } catch (Exception e) {
             log.error("Error getting authentication from token: {}", e.getMessage());
         }
         return null;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Builds the authentication from verified claims. A refresh token is refused outright; the
+     * {@code users} row is only read for tokens that lack the id and role claims, or when stateless
+     * mode is off.
+     */
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims) {
+        if (jwtService.isRefreshToken(claims)) {
+            log.warn("Refresh token {} of {} presented as an access token", claims.getId(), claims.getSubject());
+            return null;
+        }
+        AuthenticatedUser principal = jwtService.toPrincipal(claims);
+        if (principal == null) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            if (!jwtService.isTokenValid(claims, userDetails)) {
+                return null;
+            }
+            if (!(userDetails instanceof User user)) {
+                return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            }
+            principal = AuthenticatedUser.from(user);
+        }
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
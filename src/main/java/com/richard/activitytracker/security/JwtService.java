@@ -2,6 +2,7 @@ package com.richard.activitytracker.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -9,20 +10,49 @@ import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.model.User;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies tokens. The signing key and parser are built once; a verified token's claims
+ * are kept, keyed by the SHA-256 of the token, until the token expires, so a client repeating the
+ * same bearer token is parsed and HMAC-checked once rather than on every request. The cache holds at
+ * most {@code jwt.verified-cache-size} tokens, evicting the least recently used, and expired entries
+ * are pruned on a schedule rather than on the request path. Tokens carry the
+ * user id and role, so with {@code jwt.stateless} the principal is built from them without a
+ * {@code users} lookup; a role change then applies to tokens issued after it.
+ *
+ * <p>Access tokens are short-lived. Every token has an id ({@code jti}) checked against the
+ * {@link TokenDenylist} on each verification, and a longer-lived refresh token ({@code typ=refresh})
+ * is exchanged for a new pair at {@code /api/auth/refresh}; it is never accepted as an access token.
+ */
 @Slf4j
 @Service
 public class JwtService {
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String TYPE_CLAIM = "typ";
+    public static final String REFRESH_TYPE = "refresh";
 
     @Value("${jwt.secret}")
     private String secretKey;
@@ -30,9 +60,76 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${jwt.refresh-expiration:604800000}")
+    private long refreshExpiration;
+
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    private Key signInKey;
+    private JwtParser parser;
+    private Map<ByteBuffer, VerifiedToken> verified;
+
+    @PostConstruct
+    void init() {
+        signInKey = getSignInKey();
+        parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        int cacheSize = verifiedCacheSize;
+        verified = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Parses and verifies the token, or returns the claims of an earlier verification of the same
+     * token. Throws {@link TokenExpiredException} once it has expired, cached or not, and
+     * {@link TokenRevokedException} for a revoked token.
+     */
+    public Claims verify(String token) {
+        Claims claims = verifySignatureAndExpiry(token);
+        if (tokenDenylist.isRevoked(claims.getId())) {
+            log.warn("Rejected revoked token {} of {}", claims.getId(), claims.getSubject());
+            throw new TokenRevokedException("Token has been revoked", claims.getId());
+        }
+        return claims;
+    }
+
+    /**
+     * {@link #verify} for a token presented to be exchanged; throws {@link TokenTypeMismatchException}
+     * unless it is a refresh token.
+     */
+    public Claims verifyRefreshToken(String token) {
+        Claims claims = verify(token);
+        if (!isRefreshToken(claims)) {
+            throw new TokenTypeMismatchException("Not a refresh token", REFRESH_TYPE);
+        }
+        return claims;
+    }
+
+    /** Revokes a verified token until it would have expired. False if it was already revoked. */
+    public boolean revoke(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return false;
+        }
+        return tokenDenylist.revoke(claims.getId(), claims.getExpiration().getTime());
+    }
+
+    public boolean isRefreshToken(Claims claims) {
+        return REFRESH_TYPE.equals(claims.get(TYPE_CLAIM, String.class));
+    }
+
     public String extractUsername(String token) {
         try {
-            return extractClaim(token, Claims::getSubject);
+            return verify(token).getSubject();
         } catch (ExpiredJwtException e) {
             log.warn("Token expired: {}", e.getMessage());
             throw new TokenExpiredException(
@@ -49,8 +146,7 @@ public class JwtService {
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         try {
-            final Claims claims = extractAllClaims(token);
-            return claimsResolver.apply(claims);
+            return claimsResolver.apply(verify(token));
         } catch (ExpiredJwtException e) {
             log.warn("Token expired: {}", e.getMessage());
             throw new TokenExpiredException(
@@ -66,26 +162,58 @@ public class JwtService {
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        return generateToken(identityClaims(userDetails), userDetails);
+    }
+
+    public String generateRefreshToken(UserDetails userDetails) {
+        Map<String, Object> claims = identityClaims(userDetails);
+        claims.put(TYPE_CLAIM, REFRESH_TYPE);
+        return buildToken(claims, userDetails, refreshExpiration);
+    }
+
+    /**
+     * The principal described by verified claims, or null when the user has to be loaded instead:
+     * stateless mode is off, or the token predates the id and role claims.
+     */
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        if (!stateless || isRefreshToken(claims)) {
+            return null;
+        }
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (userId == null || role == null || claims.getSubject() == null) {
+            return null;
+        }
+        try {
+            return new AuthenticatedUser(userId, claims.getSubject(), Role.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown role {} in token for user {}", role, claims.getSubject());
+            return null;
+        }
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        return buildToken(extraClaims, userDetails, jwtExpiration);
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long validityMillis) {
         try {
             Date now = new Date();
-            Date expiration = new Date(now.getTime() + jwtExpiration);
+            Date expiration = new Date(now.getTime() + validityMillis);
             
             log.info("Generating new JWT token for user: {}", userDetails.getUsername());
             log.info("Token issued at: {}", now);
             log.info("Token will expire at: {}", expiration);
-            log.info("Token duration: {} milliseconds ({} hours)", jwtExpiration, jwtExpiration / (1000 * 60 * 60));
+            log.info("Token duration: {} milliseconds ({} minutes)", validityMillis, validityMillis / (1000 * 60));
             
             return Jwts
                     .builder()
                     .setClaims(extraClaims)
+                    .setId(UUID.randomUUID().toString())
                     .setSubject(userDetails.getUsername())
                     .setIssuedAt(now)
                     .setExpiration(expiration)
-                    .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                    .signWith(signInKey, SignatureAlgorithm.HS256)
                     .compact();
         } catch (Exception e) {
             log.error("Error generating token: {}", e.getMessage());
@@ -112,6 +240,44 @@ public class JwtService {
         }
     }
 
+    /** Checks claims already returned by {@link #verify}; nothing is parsed again. */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        boolean isValid = !isRefreshToken(claims)
+                && userDetails.getUsername().equals(claims.getSubject())
+                && claims.getExpiration() != null
+                && claims.getExpiration().after(new Date());
+        if (!isValid) {
+            log.warn("Token validation failed for user: {}", userDetails.getUsername());
+        }
+        return isValid;
+    }
+
+    private static Map<String, Object> identityClaims(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user && user.getId() != null && user.getRole() != null) {
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(ROLE_CLAIM, user.getRole().name());
+        }
+        return claims;
+    }
+
+    private Claims verifySignatureAndExpiry(String token) {
+        ByteBuffer key = hash(token);
+        VerifiedToken cached = key == null ? null : verified.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                return cached.claims();
+            }
+            verified.remove(key, cached);
+            throw expired(cached.claims().getExpiration());
+        }
+        Claims claims = extractAllClaims(token);
+        if (key != null && claims.getExpiration() != null) {
+            remember(key, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
+    }
+
     private boolean isTokenExpired(String token) {
         try {
             Date expiration = extractExpiration(token);
@@ -142,20 +308,10 @@ public class JwtService {
 
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts
-                    .parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
             log.warn("Token expired: {}", e.getMessage());
-            throw new TokenExpiredException(
-                "Token has expired",
-                e.getClaims().getExpiration(),
-                new Date(),
-                jwtExpiration
-            );
+            throw expired(e.getClaims().getExpiration());
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
             throw new RuntimeException("Invalid JWT token", e);
@@ -180,4 +336,36 @@ public class JwtService {
             throw new RuntimeException("Error creating signing key", e);
         }
     }
-} 
\ No newline at end of file
+
+    private TokenExpiredException expired(Date expiration) {
+        return new TokenExpiredException("Token has expired", expiration, new Date(), jwtExpiration);
+    }
+
+    /** Drops verified tokens that have expired; a full cache meanwhile evicts its least recently used. */
+    @Scheduled(fixedDelayString = "${jwt.verified-cache-prune-interval:1m}")
+    public void pruneVerified() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private void remember(ByteBuffer key, VerifiedToken token) {
+        if (verifiedCacheSize > 0) {
+            verified.put(key, token);
+        }
+    }
+
+    /** Keys on a digest so raw bearer tokens are not retained; null when there is nothing to hash. */
+    private static ByteBuffer hash(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.richard.activitytracker.security;
+
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.config.TokenDenylistProperties;
+import com.richard.activitytracker.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ids ({@code jti}) of tokens revoked before they expire. Every authenticated request asks
+ * {@link #isRevoked}; a Bloom filter answers "no" for almost all of them without touching the exact
+ * set behind it, and nothing goes to the database. An entry is only needed until its token would
+ * have expired anyway, so expired entries are pruned and the filter rebuilt from what is left.
+ *
+ * <p>Revocations are applied locally and published on the cluster bus. They are held in memory
+ * only: a node that starts later does not see earlier revocations, which is bounded by the
+ * lifetime of the tokens involved.
+ */
+@Slf4j
+@Component
+public class TokenDenylist {
+    static final String CHANNEL = "token-revocations";
+
+    private final ClusterBus clusterBus;
+    private final TokenDenylistProperties properties;
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Counter filtered;
+    private final Counter checked;
+    private volatile BloomFilter filter;
+
+    public TokenDenylist(ClusterBus clusterBus, TokenDenylistProperties properties, MeterRegistry meterRegistry) {
+        this.clusterBus = clusterBus;
+        this.properties = properties;
+        this.filter = newFilter();
+        this.filtered = checks(meterRegistry, "filtered");
+        this.checked = checks(meterRegistry, "checked");
+        Gauge.builder("auth.denylist.size", revoked, Map::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        clusterBus.subscribe(CHANNEL, Revocation.class, revocation -> apply(revocation.tokenId(), revocation.expiresAt()));
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        if (!filter.mightContain(tokenId)) {
+            filtered.increment();
+            return false;
+        }
+        checked.increment();
+        Long expiresAt = revoked.get(tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Revokes the token here and on the other nodes until {@code expiresAt} (epoch millis). False if
+     * it was already revoked on this node, so of two concurrent uses of a one-time token one loses.
+     */
+    public boolean revoke(String tokenId, long expiresAt) {
+        if (!apply(tokenId, expiresAt)) {
+            return false;
+        }
+        clusterBus.publish(CHANNEL, new Revocation(tokenId, expiresAt));
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${activity.auth.denylist.prune-interval:1m}")
+    public void prune() {
+        long now = System.currentTimeMillis();
+        if (revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+            rebuild();
+        }
+    }
+
+    private boolean apply(String tokenId, long expiresAt) {
+        if (tokenId == null || expiresAt <= System.currentTimeMillis()) {
+            return false;
+        }
+        if (revoked.putIfAbsent(tokenId, expiresAt) != null) {
+            return false;
+        }
+        synchronized (this) {
+            filter.add(tokenId);
+        }
+        return true;
+    }
+
+    /** Locked against {@link #apply} so a revocation cannot land in the filter being replaced. */
+    private synchronized void rebuild() {
+        BloomFilter rebuilt = newFilter();
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+        if (revoked.size() > properties.getExpectedRevocations()) {
+            log.warn("{} live revocations exceed activity.auth.denylist.expected-revocations={}",
+                    revoked.size(), properties.getExpectedRevocations());
+        }
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(properties.getExpectedRevocations(), properties.getFalsePositiveRate());
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.denylist.checks")
+                .description("Revocation checks the Bloom filter answered (filtered) or that read the exact set")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public record Revocation(String tokenId, long expiresAt) {
+    }
+}
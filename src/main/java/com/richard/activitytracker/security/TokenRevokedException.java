@@ -0,0 +1,14 @@
+package com.richard.activitytracker.security;
+
+import lombok.Getter;
+
+/** A correctly signed, unexpired token that was revoked (logout or a used refresh token). */
+@Getter
+public class TokenRevokedException extends RuntimeException {
+    private final String tokenId;
+
+    public TokenRevokedException(String message, String tokenId) {
+        super(message);
+        this.tokenId = tokenId;
+    }
+}
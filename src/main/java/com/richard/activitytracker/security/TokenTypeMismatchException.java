@@ -0,0 +1,14 @@
+package com.richard.activitytracker.security;
+
+import lombok.Getter;
+
+/** A valid token presented where the other kind is required, such as an access token sent to be refreshed. */
+@Getter
+public class TokenTypeMismatchException extends RuntimeException {
+    private final String expectedType;
+
+    public TokenTypeMismatchException(String message, String expectedType) {
+        super(message);
+        this.expectedType = expectedType;
+    }
+}
@@ -1,16 +1,20 @@
 package com.richard.activitytracker.security;
 
+import com.richard.activitytracker.model.User;
 import com.richard.activitytracker.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository repository;
 
@@ -20,4 +24,13 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         return repository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
     }
+
+    /** Called by Spring Security after a successful login whose stored hash uses an outdated encoding or cost. */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        repository.updatePassword(user.getUsername(), newPassword);
+        log.info("Rehashed the password of user {}", user.getUsername());
+        return user instanceof User stored ? stored.toBuilder().password(newPassword).build() : user;
+    }
 }
@@ -18,4 +18,6 @@ public interface ActivityService {
     Page<ActivityResponse> searchActivities(Long userId, LocalDateTime startTime, LocalDateTime endTime, Pageable pageable);
     ActivityResponse createActivity(ActivityRequest activityRequest);
     Page<ActivityResponse> getAllActivities(Pageable pageable);
+    /** Keyset read of activities after {@code afterId} in id order, optionally for one user or action. */
+    List<ActivityResponse> getActivitiesAfter(Long afterId, Long userId, String action, int limit);
 } 
\ No newline at end of file
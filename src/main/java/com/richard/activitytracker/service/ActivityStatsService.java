@@ -0,0 +1,10 @@
+package com.richard.activitytracker.service;
+
+import com.richard.activitytracker.analytics.StatsWindow;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.TopKResponse;
+
+public interface ActivityStatsService {
+    void record(ActivityResponse activity);
+    TopKResponse getTopK(StatsWindow window, int limit);
+}
@@ -0,0 +1,8 @@
+package com.richard.activitytracker.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface ActivityStreamService {
+    SseEmitter subscribe(Long userId, String action, String lastEventId);
+    int openStreams();
+}
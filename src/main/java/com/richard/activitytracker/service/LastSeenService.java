@@ -0,0 +1,15 @@
+package com.richard.activitytracker.service;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.LastSeenResponse;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface LastSeenService {
+    void record(ActivityResponse activity);
+    void observe(ActivityResponse activity);
+    List<LastSeenResponse> getLastSeen(Collection<Long> userIds);
+    void flush();
+    void reconcile();
+}
@@ -0,0 +1,8 @@
+package com.richard.activitytracker.service;
+
+import com.richard.activitytracker.dto.RetentionStatusResponse;
+
+public interface RetentionService {
+    void purge();
+    RetentionStatusResponse getStatus();
+}
@@ -2,6 +2,9 @@ package com.richard.activitytracker.service;
 
 import com.richard.activitytracker.dto.ActivityResponse;
 
+import java.util.Collection;
+
 public interface WebSocketService {
     void broadcastActivity(ActivityResponse activityResponse);
+    void broadcast(Collection<String> destinations, Object payload);
 } 
\ No newline at end of file
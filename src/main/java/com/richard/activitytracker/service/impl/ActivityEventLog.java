@@ -0,0 +1,149 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.util.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Numbers committed activities with a per-process sequence and keeps the most recent ones in a
+ * ring so streaming clients can catch up after a reconnect without touching the database.
+ * Each entry holds a copy of the activity stamped with its sequence and the stream tag, which
+ * carries the process start time, so cursors from before a restart or from another node are
+ * recognised as stale. The caller's activity, which may still be on its way to a REST client, is
+ * left untouched.
+ */
+@Slf4j
+@Component
+public class ActivityEventLog {
+
+    private final String epochTag = Long.toString(System.currentTimeMillis(), 36);
+    private final Entry[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Consumer<Entry>> listeners = new CopyOnWriteArrayList<>();
+    private long lastSequence;
+
+    public ActivityEventLog(@Value("${activity.stream.buffer-size:10000}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("activity.stream.buffer-size must be positive");
+        }
+        this.ring = new Entry[capacity];
+    }
+
+    public void record(ActivityResponse activity) {
+        TransactionCallbacks.afterCommit(() -> append(activity));
+    }
+
+    public void addListener(Consumer<Entry> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Listeners run under the log lock so they observe entries in sequence order; they must only
+     * hand the entry off, never block.
+     */
+    public Entry append(ActivityResponse activity) {
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            Entry entry = new Entry(sequence, activity.toBuilder().sequence(sequence).stream(epochTag).build());
+            ring[(int) (entry.sequence() % ring.length)] = entry;
+            for (Consumer<Entry> listener : listeners) {
+                try {
+                    listener.accept(entry);
+                } catch (RuntimeException e) {
+                    log.warn("Activity event listener failed for sequence {}", entry.sequence(), e);
+                }
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Holds back appends, and with them every listener, until {@link #release()} is called on the
+     * same thread. Only for short, in-memory work such as folding recent entries into a snapshot:
+     * every writer waits meanwhile.
+     */
+    public void hold() {
+        lock.lock();
+    }
+
+    public void release() {
+        lock.unlock();
+    }
+
+    public String stream() {
+        return epochTag;
+    }
+
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entries after {@code sequence} in order, or {@code null} when some of them have already been
+     * evicted from the ring and the caller has to fall back to another source.
+     */
+    public List<Entry> since(long sequence) {
+        lock.lock();
+        try {
+            long oldestRetained = Math.max(1, lastSequence - ring.length + 1);
+            if (sequence < oldestRetained - 1 || sequence > lastSequence) {
+                return null;
+            }
+            List<Entry> entries = new ArrayList<>((int) (lastSequence - sequence));
+            for (long seq = sequence + 1; seq <= lastSequence; seq++) {
+                entries.add(ring[(int) (seq % ring.length)]);
+            }
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Every entry still in the ring, oldest first. */
+    public List<Entry> retained() {
+        lock.lock();
+        try {
+            return since(Math.max(0, lastSequence - ring.length));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String eventId(long sequence) {
+        return epochTag + "-" + sequence;
+    }
+
+    /**
+     * Sequence encoded in an event id handed out by this process, or -1 if the id is missing,
+     * malformed or from an earlier process.
+     */
+    public long parseEventId(String eventId) {
+        if (eventId == null || !eventId.startsWith(epochTag + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epochTag.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public record Entry(long sequence, ActivityResponse activity) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.cluster.ActivityClusterRelay;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.event.ActivityRecordedEvent;
+import com.richard.activitytracker.service.ActivityStatsService;
+import com.richard.activitytracker.service.LastSeenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Feeds a committed activity to the in-memory views (stats, versions, last-seen, the event log) and
+ * to the other nodes. A rolled-back write never reaches them; a write made outside a transaction is
+ * handled straight away.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActivityRecordedListener {
+
+    private final ActivityStatsService activityStatsService;
+    private final ActivityVersionTracker activityVersionTracker;
+    private final LastSeenService lastSeenService;
+    private final ActivityEventLog activityEventLog;
+    private final ActivityClusterRelay activityClusterRelay;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRecorded(ActivityRecordedEvent event) {
+        ActivityResponse activity = event.activity();
+        activityStatsService.record(activity);
+        activityVersionTracker.recordWrite(activity.getUserId(), activity.getId());
+        lastSeenService.record(activity);
+        activityEventLog.record(activity);
+        activityClusterRelay.publish(activity);
+    }
+}
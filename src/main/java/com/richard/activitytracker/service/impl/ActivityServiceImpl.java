@@ -2,20 +2,17 @@ package com.richard.activitytracker.service.impl;
 
 import com.richard.activitytracker.dto.ActivityRequest;
 import com.richard.activitytracker.dto.ActivityResponse;
-import com.richard.activitytracker.exception.BroadcastFailedException;
+import com.richard.activitytracker.event.ActivityRecordedEvent;
 import com.richard.activitytracker.exception.UserNotFoundException;
-import com.richard.activitytracker.exception.WebSocketException;
 import com.richard.activitytracker.handler.ErrorResponse;
 import com.richard.activitytracker.model.Activity;
-import com.richard.activitytracker.model.User;
 import com.richard.activitytracker.repository.ActivityRepository;
-import com.richard.activitytracker.repository.UserRepository;
 import com.richard.activitytracker.service.ActivityService;
-import com.richard.activitytracker.service.WebSocketService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -38,37 +35,33 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ActivityServiceImpl implements ActivityService {
 
-    private final WebSocketService webSocketService;
     private final ActivityRepository activityRepository;
-    private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WriteLatencyMonitor writeLatencyMonitor;
     @Lazy
     private final SimpMessagingTemplate messagingTemplate;
 
     @Override
     @Transactional
     public ActivityResponse logActivity(Long userId, ActivityRequest request) {
-        User user = userRepository.findById(userId)
+        long start = System.nanoTime();
+        UserDirectory.UserSummary user = userDirectory.find(userId)
                 .orElseThrow(() -> {
                     log.error("User not found: {}", userId);
                     return new UserNotFoundException("User with ID " + userId + " not found");
                 });
 
         Activity activity = new Activity();
-        activity.setUser(user);
+        activity.setUser(userDirectory.reference(userId));
         activity.setAction(request.getAction());
         activity.setDetails(request.getDetails());
 
         Activity savedActivity = activityRepository.save(activity);
-        ActivityResponse response = convertToResponse(savedActivity);
-
-        try {
-            webSocketService.broadcastActivity(response);
-            log.info("Activity logged successfully for user {}: {}", userId, response.getAction());
-        } catch (WebSocketException e) {
-            log.error("Failed to broadcast activity: {}", e.getMessage());
-            // Optionally, throw a custom exception or just log the error
-            throw new BroadcastFailedException("Activity logged but failed to broadcast", e);
-        }
+        ActivityResponse response = convertToResponse(savedActivity, user.username());
+        eventPublisher.publishEvent(new ActivityRecordedEvent(response));
+        writeLatencyMonitor.record(System.nanoTime() - start);
+        log.info("Activity logged successfully for user {}: {}", userId, response.getAction());
         return response;
     }
 
@@ -83,7 +76,7 @@ public class ActivityServiceImpl implements ActivityService {
     @Override
     @Cacheable(value = "userActivities", key = "#userId + '-' + #pageable.pageNumber")
     public Page<ActivityResponse> getActivitiesByUserId(Long userId, Pageable pageable) {
-        if (!userRepository.existsById(userId)) {
+        if (!userDirectory.exists(userId)) {
             log.error("User not found: {}", userId);
             throw new UserNotFoundException("User with ID " + userId + " not found");
         }
@@ -96,7 +89,7 @@ public class ActivityServiceImpl implements ActivityService {
     @Override
     @Cacheable(value = "searchActivities", key = "#userId + '-' + #startTime + '-' + #endTime + '-' + #pageable.pageNumber")
     public Page<ActivityResponse> searchActivities(Long userId, LocalDateTime startTime, LocalDateTime endTime, Pageable pageable) {
-        if (userId != null && !userRepository.existsById(userId)) {
+        if (userId != null && !userDirectory.exists(userId)) {
             log.error("User not found: {}", userId);
             throw new UserNotFoundException("User with ID " + userId + " not found");
         }
@@ -112,22 +105,17 @@ public class ActivityServiceImpl implements ActivityService {
 
     @Override
     public ActivityResponse createActivity(ActivityRequest activityRequest) {
-        User user = userRepository.findById(activityRequest.getUserId())
+        UserDirectory.UserSummary user = userDirectory.find(activityRequest.getUserId())
                 .orElseThrow(() -> new UserNotFoundException("User with ID " + activityRequest.getUserId() + " not found"));
         Activity activity = Activity.builder()
-                .user(user)
+                .user(userDirectory.reference(user.id()))
                 .action(activityRequest.getAction())
                 .details(activityRequest.getDetails())
                 .build();
         Activity savedActivity = activityRepository.save(activity);
-        ActivityResponse response = convertToResponse(savedActivity);
-        try {
-            webSocketService.broadcastActivity(response);
-            log.info("Activity created successfully for user {}: {}", response.getUserId(), response.getAction());
-        } catch (WebSocketException e) {
-            log.error("Failed to broadcast activity: {}", e.getMessage());
-            throw new BroadcastFailedException("Activity created but failed to broadcast", e);
-        }
+        ActivityResponse response = convertToResponse(savedActivity, user.username());
+        eventPublisher.publishEvent(new ActivityRecordedEvent(response));
+        log.info("Activity created successfully for user {}: {}", response.getUserId(), response.getAction());
         return response;
     }
 
@@ -138,11 +126,24 @@ public class ActivityServiceImpl implements ActivityService {
                 .map(this::convertToResponse);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ActivityResponse> getActivitiesAfter(Long afterId, Long userId, String action, int limit) {
+        return activityRepository.findAfterId(afterId, userId, action, PageRequest.of(0, limit)).stream()
+                .map(this::convertToResponse)
+                .toList();
+    }
+
     private ActivityResponse convertToResponse(Activity activity) {
+        return convertToResponse(activity, activity.getUser().getUsername());
+    }
+
+    /** For a new activity whose user is an unloaded reference: reading its username would load the row. */
+    private ActivityResponse convertToResponse(Activity activity, String username) {
         ActivityResponse response = new ActivityResponse();
         response.setId(activity.getId());
         response.setUserId(activity.getUser().getId());
-        response.setUsername(activity.getUser().getUsername());
+        response.setUsername(username);
         response.setAction(activity.getAction());
         response.setDetails(activity.getDetails());
         response.setTimestamp(activity.getTimestamp());
@@ -0,0 +1,182 @@
+package com.richard.activitytracker.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.exception.WebSocketException;
+import com.richard.activitytracker.service.ActivityService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The most recent activities that every new subscriber starts from. Loaded from the database once,
+ * then kept current from {@link ActivityEventLog} on every write, so a reconnect wave reads memory
+ * rather than the database. The JSON is rendered once per version and shared by every session.
+ * A retention purge may remove listed activities, so the next read after one reloads.
+ */
+@Slf4j
+@Component
+public class ActivitySnapshotCache {
+
+    private final ActivityService activityService;
+    private final ActivityEventLog eventLog;
+    private final ActivityVersionTracker versionTracker;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnly;
+    private final int size;
+    private final Counter loads;
+    private final Counter renders;
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public ActivitySnapshotCache(
+            @Lazy ActivityService activityService,
+            ActivityEventLog eventLog,
+            ActivityVersionTracker versionTracker,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${activity.snapshot.size:10}") int size) {
+        this.activityService = activityService;
+        this.eventLog = eventLog;
+        this.versionTracker = versionTracker;
+        this.objectMapper = objectMapper;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.size = size;
+        this.loads = Counter.builder("activity.snapshot.loads")
+                .description("Initial activity snapshots read from the database")
+                .register(meterRegistry);
+        this.renders = Counter.builder("activity.snapshot.renders")
+                .description("Initial activity snapshots serialized to JSON")
+                .register(meterRegistry);
+        eventLog.addListener(this::onAppend);
+    }
+
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current != null && current.purgeGeneration == versionTracker.purgeGeneration()) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            current = snapshot;
+            if (current != null && current.purgeGeneration == versionTracker.purgeGeneration()) {
+                return current;
+            }
+            return load();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * The snapshot as last loaded and kept current by writes, without reloading after a purge. Safe
+     * to call while holding the event log, unlike {@link #get()}; null before the first load.
+     */
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    private Snapshot load() {
+        long purgeGeneration = versionTracker.purgeGeneration();
+        long loadedAt = eventLog.lastSequence();
+        List<ActivityResponse> rows = readOnly.execute(status ->
+                activityService.getRecentActivities(PageRequest.of(0, size)).getContent());
+        // Fold in whatever committed while the query ran; holding the log keeps onAppend out meanwhile.
+        eventLog.hold();
+        try {
+            List<ActivityEventLog.Entry> newer = eventLog.since(loadedAt);
+            List<ActivityResponse> latest = new ArrayList<>();
+            if (newer != null) {
+                for (int i = newer.size() - 1; i >= 0; i--) {
+                    latest.add(newer.get(i).activity());
+                }
+            }
+            latest.addAll(rows);
+            Snapshot loaded = new Snapshot(eventLog.lastSequence(), purgeGeneration, newestDistinct(latest));
+            snapshot = loaded;
+            loads.increment();
+            log.debug("Loaded activity snapshot at sequence {}", loaded.version);
+            return loaded;
+        } finally {
+            eventLog.release();
+        }
+    }
+
+    /** Runs under the event log lock, so versions only move forward. */
+    private void onAppend(ActivityEventLog.Entry entry) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<ActivityResponse> latest = new ArrayList<>(current.activities.size() + 1);
+        latest.add(entry.activity());
+        latest.addAll(current.activities);
+        snapshot = new Snapshot(entry.sequence(), current.purgeGeneration, newestDistinct(latest));
+    }
+
+    private List<ActivityResponse> newestDistinct(List<ActivityResponse> newestFirst) {
+        Set<Long> seen = new HashSet<>();
+        List<ActivityResponse> result = new ArrayList<>(size);
+        for (ActivityResponse activity : newestFirst) {
+            if (result.size() == size) {
+                break;
+            }
+            if (seen.add(activity.getId())) {
+                result.add(activity);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    public final class Snapshot {
+        private final long version;
+        private final long purgeGeneration;
+        private final List<ActivityResponse> activities;
+        private volatile byte[] json;
+
+        private Snapshot(long version, long purgeGeneration, List<ActivityResponse> activities) {
+            this.version = version;
+            this.purgeGeneration = purgeGeneration;
+            this.activities = activities;
+        }
+
+        /** Event log sequence the snapshot is current as of. */
+        public long version() {
+            return version;
+        }
+
+        public List<ActivityResponse> activities() {
+            return activities;
+        }
+
+        /** The activities as a JSON array, newest first; rendered on first use. */
+        public byte[] json() {
+            byte[] rendered = json;
+            if (rendered == null) {
+                try {
+                    rendered = objectMapper.writeValueAsBytes(activities);
+                } catch (JsonProcessingException e) {
+                    throw new WebSocketException("Failed to serialize activity snapshot", "SERIALIZATION_FAILED", e.getMessage());
+                }
+                json = rendered;
+                renders.increment();
+            }
+            return rendered;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.analytics.SlidingWindowTopK;
+import com.richard.activitytracker.analytics.StatsWindow;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.HeavyHitterResponse;
+import com.richard.activitytracker.dto.TopKResponse;
+import com.richard.activitytracker.service.ActivityStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class ActivityStatsServiceImpl implements ActivityStatsService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int snapshotSize;
+    private final String snapshotTopic;
+    private final Map<StatsWindow, SlidingWindowTopK<String>> topActions = new EnumMap<>(StatsWindow.class);
+    private final Map<StatsWindow, SlidingWindowTopK<UserKey>> topUsers = new EnumMap<>(StatsWindow.class);
+    private final AtomicLong recorded = new AtomicLong();
+    private long lastPushedCount;
+    private boolean lastPushHadRecentActivity;
+
+    public ActivityStatsServiceImpl(
+            @Lazy SimpMessagingTemplate messagingTemplate,
+            @Value("${activity.stats.capacity-per-bucket:256}") int capacityPerBucket,
+            @Value("${activity.stats.snapshot-size:10}") int snapshotSize,
+            @Value("${activity.stats.snapshot-topic:/topic/stats/top}") String snapshotTopic) {
+        this.messagingTemplate = messagingTemplate;
+        this.snapshotSize = snapshotSize;
+        this.snapshotTopic = snapshotTopic;
+        for (StatsWindow window : StatsWindow.values()) {
+            topActions.put(window, new SlidingWindowTopK<>(window.getDuration(), window.getBuckets(), capacityPerBucket));
+            topUsers.put(window, new SlidingWindowTopK<>(window.getDuration(), window.getBuckets(), capacityPerBucket));
+        }
+    }
+
+    @Override
+    public void record(ActivityResponse activity) {
+        long now = System.currentTimeMillis();
+        UserKey user = new UserKey(activity.getUserId(), activity.getUsername());
+        for (StatsWindow window : StatsWindow.values()) {
+            topActions.get(window).record(activity.getAction(), now);
+            topUsers.get(window).record(user, now);
+        }
+        recorded.incrementAndGet();
+    }
+
+    @Override
+    public TopKResponse getTopK(StatsWindow window, int limit) {
+        long now = System.currentTimeMillis();
+        List<HeavyHitterResponse> actions = topActions.get(window).top(limit, now).stream()
+                .map(hitter -> HeavyHitterResponse.builder()
+                        .name(hitter.key())
+                        .count(hitter.count())
+                        .error(hitter.error())
+                        .build())
+                .toList();
+        List<HeavyHitterResponse> users = topUsers.get(window).top(limit, now).stream()
+                .map(hitter -> HeavyHitterResponse.builder()
+                        .userId(hitter.key().id())
+                        .name(hitter.key().username())
+                        .count(hitter.count())
+                        .error(hitter.error())
+                        .build())
+                .toList();
+        return TopKResponse.builder()
+                .window(window.getLabel())
+                .generatedAt(LocalDateTime.now())
+                .actions(actions)
+                .users(users)
+                .build();
+    }
+
+    @Scheduled(fixedRateString = "${activity.stats.push-interval-ms:5000}")
+    public void pushSnapshot() {
+        long count = recorded.get();
+        // Windows keep sliding while idle, so keep pushing until the shortest one has drained.
+        if (count == lastPushedCount && !lastPushHadRecentActivity) {
+            return;
+        }
+        List<TopKResponse> snapshot = new ArrayList<>();
+        for (StatsWindow window : StatsWindow.values()) {
+            snapshot.add(getTopK(window, snapshotSize));
+        }
+        lastPushedCount = count;
+        lastPushHadRecentActivity = !snapshot.get(0).getActions().isEmpty();
+        try {
+            messagingTemplate.convertAndSend(snapshotTopic, snapshot);
+        } catch (Exception e) {
+            log.error("Failed to push top-K snapshot: {}", e.getMessage());
+        }
+    }
+
+    private record UserKey(Long id, String username) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.service.ActivityStreamService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events fan-out of committed activities. Publishing only appends to each matching
+ * stream's queue; a virtual thread per busy stream does the blocking writes, so one slow client
+ * never holds up the others. A stream whose queue overflows is closed, and the client catches up
+ * from {@link ActivityEventLog} when it reconnects with {@code Last-Event-ID}.
+ */
+@Slf4j
+@Service
+public class ActivityStreamServiceImpl implements ActivityStreamService {
+
+    private final ActivityEventLog eventLog;
+    private final long timeoutMillis;
+    private final int maxQueued;
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter overflows;
+
+    public ActivityStreamServiceImpl(
+            ActivityEventLog eventLog,
+            MeterRegistry meterRegistry,
+            @Value("${activity.stream.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${activity.stream.max-queued-per-stream:1000}") int maxQueued) {
+        this.eventLog = eventLog;
+        this.timeoutMillis = timeoutMillis;
+        this.maxQueued = maxQueued;
+        this.overflows = Counter.builder("activity.stream.overflows")
+                .description("Activity streams closed because the client fell too far behind")
+                .register(meterRegistry);
+        Gauge.builder("activity.stream.open", streams, Set::size)
+                .description("Open activity event streams")
+                .register(meterRegistry);
+        eventLog.addListener(this::dispatch);
+    }
+
+    @Override
+    public SseEmitter subscribe(Long userId, String action, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Stream stream = new Stream(emitter, userId, action);
+        emitter.onCompletion(() -> streams.remove(stream));
+        emitter.onTimeout(stream::close);
+        emitter.onError(e -> stream.close());
+
+        // Register before reading the log so nothing published in between is missed; the
+        // sequence check in drain() drops whatever the replay already covered.
+        streams.add(stream);
+        long current = eventLog.lastSequence();
+        if (lastEventId == null) {
+            stream.lastSent = current;
+        } else {
+            long requested = eventLog.parseEventId(lastEventId);
+            List<ActivityEventLog.Entry> missed = requested < 0 ? null : eventLog.since(requested);
+            if (missed == null) {
+                stream.resync = true;
+                stream.lastSent = current;
+            } else {
+                stream.replay = missed;
+                stream.lastSent = requested;
+            }
+        }
+        stream.heartbeatDue = true;
+        stream.ready = true;
+        stream.scheduleDrain();
+        return emitter;
+    }
+
+    @Override
+    public int openStreams() {
+        return streams.size();
+    }
+
+    /** Keeps idle connections open through proxies and detects clients that went away. */
+    @Scheduled(fixedRateString = "${activity.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Stream stream : streams) {
+            stream.heartbeatDue = true;
+            stream.scheduleDrain();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streams.forEach(Stream::close);
+        senders.shutdownNow();
+    }
+
+    private void dispatch(ActivityEventLog.Entry entry) {
+        for (Stream stream : streams) {
+            if (stream.matches(entry)) {
+                stream.offer(entry);
+            }
+        }
+    }
+
+    private final class Stream {
+        private final SseEmitter emitter;
+        private final Long userId;
+        private final String action;
+        private final Queue<ActivityEventLog.Entry> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean ready;
+        private volatile boolean heartbeatDue;
+        private volatile boolean resync;
+        private volatile List<ActivityEventLog.Entry> replay;
+        private volatile long lastSent;
+
+        private Stream(SseEmitter emitter, Long userId, String action) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.action = action;
+        }
+
+        private boolean matches(ActivityEventLog.Entry entry) {
+            return (userId == null || userId.equals(entry.activity().getUserId()))
+                    && (action == null || action.equalsIgnoreCase(entry.activity().getAction()));
+        }
+
+        private void offer(ActivityEventLog.Entry entry) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                if (detach()) {
+                    overflows.increment();
+                    log.debug("Closing activity stream that fell {} events behind", maxQueued);
+                    // Completing waits out a write in progress; the publisher holds the log lock.
+                    senders.execute(emitter::complete);
+                }
+                return;
+            }
+            queue.add(entry);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (ready && !closed.get() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                }
+                if (resync) {
+                    resync = false;
+                    emitter.send(SseEmitter.event()
+                            .id(eventLog.eventId(lastSent))
+                            .name("resync")
+                            .data(Map.of("reason", "Requested events are no longer buffered; reload the activity list")));
+                }
+                List<ActivityEventLog.Entry> missed = replay;
+                if (missed != null) {
+                    replay = null;
+                    for (ActivityEventLog.Entry entry : missed) {
+                        if (matches(entry)) {
+                            send(entry);
+                        }
+                    }
+                }
+                ActivityEventLog.Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    send(entry);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Activity stream closed: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            if (!queue.isEmpty() || heartbeatDue) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(ActivityEventLog.Entry entry) throws IOException {
+            if (entry.sequence() <= lastSent) {
+                return;
+            }
+            emitter.send(SseEmitter.event()
+                    .id(eventLog.eventId(entry.sequence()))
+                    .name("activity")
+                    .data(entry.activity(), MediaType.APPLICATION_JSON));
+            lastSent = entry.sequence();
+        }
+
+        private void close() {
+            if (detach()) {
+                emitter.complete();
+            }
+        }
+
+        private boolean detach() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            streams.remove(this);
+            queue.clear();
+            return true;
+        }
+    }
+}
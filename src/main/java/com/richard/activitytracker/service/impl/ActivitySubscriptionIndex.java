@@ -0,0 +1,154 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts this node's STOMP subscriptions to the activity topics, keyed by user and by action, so
+ * an activity is only routed to the filtered destinations somebody is listening on. The broker
+ * still does the per-session delivery for those destinations.
+ */
+@Slf4j
+@Component
+public class ActivitySubscriptionIndex {
+    public static final String ALL_ACTIVITIES = "/topic/activities";
+    public static final String USER_PREFIX = ALL_ACTIVITIES + "/user/";
+    public static final String ACTION_PREFIX = ALL_ACTIVITIES + "/action/";
+
+    private final ConcurrentMap<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> counts = new ConcurrentHashMap<>();
+
+    public ActivitySubscriptionIndex(MeterRegistry meterRegistry) {
+        Gauge.builder("activity.subscriptions.destinations", counts, Map::size)
+                .description("Activity destinations with at least one subscriber on this node")
+                .register(meterRegistry);
+    }
+
+    public static String userDestination(Long userId) {
+        return USER_PREFIX + userId;
+    }
+
+    public static String actionDestination(String action) {
+        return ACTION_PREFIX + action;
+    }
+
+    /** Whether a destination is one of the activity topics this index serves. */
+    public static boolean isActivityDestination(String destination) {
+        if (ALL_ACTIVITIES.equals(destination)) {
+            return true;
+        }
+        if (destination.startsWith(USER_PREFIX)) {
+            return destination.substring(USER_PREFIX.length()).matches("\\d{1,18}");
+        }
+        if (destination.startsWith(ACTION_PREFIX)) {
+            String action = destination.substring(ACTION_PREFIX.length());
+            return !action.isEmpty() && !action.contains("/") && !action.contains("*");
+        }
+        return false;
+    }
+
+    /** User an activity destination is filtered on, or null. */
+    public static Long userFilter(String destination) {
+        return destination.startsWith(USER_PREFIX) ? Long.valueOf(destination.substring(USER_PREFIX.length())) : null;
+    }
+
+    /** Action an activity destination is filtered on, or null. */
+    public static String actionFilter(String destination) {
+        return destination.startsWith(ACTION_PREFIX) ? destination.substring(ACTION_PREFIX.length()) : null;
+    }
+
+    /** Whether an activity is delivered to a valid activity destination. */
+    public static boolean matches(String destination, ActivityResponse activity) {
+        Long userId = userFilter(destination);
+        String action = actionFilter(destination);
+        return (userId == null || userId.equals(activity.getUserId()))
+                && (action == null || action.equals(activity.getAction()));
+    }
+
+    /** Destinations an activity has to be sent to on this node, in fan-out order. */
+    public List<String> destinationsFor(ActivityResponse activity) {
+        List<String> destinations = new ArrayList<>(3);
+        addIfSubscribed(destinations, ALL_ACTIVITIES);
+        if (activity.getUserId() != null) {
+            addIfSubscribed(destinations, userDestination(activity.getUserId()));
+        }
+        if (activity.getAction() != null) {
+            addIfSubscribed(destinations, actionDestination(activity.getAction()));
+        }
+        return destinations;
+    }
+
+    public boolean hasSubscribers(String destination) {
+        return counts.containsKey(destination);
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, String destination) {
+        if (sessionId == null || subscriptionId == null || destination == null || !isActivityDestination(destination)) {
+            return;
+        }
+        String previous = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+        if (previous != null) {
+            decrement(previous);
+        }
+        counts.merge(destination, 1, Integer::sum);
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = sessionId == null ? null : sessions.get(sessionId);
+        if (subscriptions == null || subscriptionId == null) {
+            return;
+        }
+        String destination = subscriptions.remove(subscriptionId);
+        if (destination != null) {
+            decrement(destination);
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        Map<String, String> subscriptions = sessionId == null ? null : sessions.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        subscribed(accessor.getSessionId(), accessor.getSubscriptionId(), accessor.getDestination());
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        unsubscribed(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnected(event.getSessionId());
+    }
+
+    private void addIfSubscribed(List<String> destinations, String destination) {
+        if (hasSubscribers(destination)) {
+            destinations.add(destination);
+        }
+    }
+
+    private void decrement(String destination) {
+        counts.computeIfPresent(destination, (key, count) -> count > 1 ? count - 1 : null);
+    }
+}
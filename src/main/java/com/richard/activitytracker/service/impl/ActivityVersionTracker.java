@@ -0,0 +1,89 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.util.TransactionCallbacks;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory high-water marks for the activity listings, used as HTTP validators. The process
+ * start time is folded into every ETag so validators handed out before a restart never match.
+ * ETags are weak because JSON and binary encodings of the same page share them. Retention purges
+ * can touch any listing, so they bump a shared generation that every validator includes.
+ */
+@Component
+public class ActivityVersionTracker {
+
+    private final long epoch = System.currentTimeMillis();
+    private final String epochTag = Long.toString(epoch, 36);
+    private final AtomicReference<Version> global = new AtomicReference<>(new Version(0, epoch));
+    private final ConcurrentMap<Long, Version> perUser = new ConcurrentHashMap<>();
+    private final AtomicLong purgeGeneration = new AtomicLong();
+    private volatile long lastPurgeAt = epoch;
+
+    public void recordWrite(Long userId, Long activityId) {
+        // Bumping before commit would let a poll pair the new validator with the old page.
+        TransactionCallbacks.afterCommit(() -> bump(userId, activityId));
+    }
+
+    public void recordPurge() {
+        TransactionCallbacks.afterCommit(() -> {
+            lastPurgeAt = System.currentTimeMillis();
+            purgeGeneration.incrementAndGet();
+        });
+    }
+
+    /** Bumped after every committed retention purge. */
+    public long purgeGeneration() {
+        return purgeGeneration.get();
+    }
+
+    public String globalETag() {
+        return eTag(global.get());
+    }
+
+    public long globalLastModified() {
+        return lastModified(global.get());
+    }
+
+    public String userETag(Long userId) {
+        return eTag(userVersion(userId));
+    }
+
+    public long userLastModified(Long userId) {
+        return lastModified(userVersion(userId));
+    }
+
+    private void bump(Long userId, Long activityId) {
+        long now = System.currentTimeMillis();
+        global.accumulateAndGet(new Version(activityId, now), Version::max);
+        perUser.merge(userId, new Version(activityId, now), Version::max);
+    }
+
+    private Version userVersion(Long userId) {
+        return perUser.getOrDefault(userId, new Version(0, epoch));
+    }
+
+    private String eTag(Version version) {
+        return "W/\"" + epochTag + "-" + purgeGeneration.get() + "-" + version.activityId() + "\"";
+    }
+
+    /**
+     * HTTP dates only carry whole seconds, so a second that can still receive writes must not be
+     * advertised; otherwise a later write in the same second would be hidden behind a 304.
+     */
+    private long lastModified(Version version) {
+        long now = System.currentTimeMillis();
+        long modifiedAt = Math.max(version.modifiedAt(), lastPurgeAt);
+        return modifiedAt / 1000 < now / 1000 ? modifiedAt : -1;
+    }
+
+    private record Version(long activityId, long modifiedAt) {
+        private static Version max(Version current, Version candidate) {
+            return candidate.activityId > current.activityId ? candidate : current;
+        }
+    }
+}
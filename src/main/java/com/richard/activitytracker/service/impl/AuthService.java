@@ -2,16 +2,21 @@ package com.richard.activitytracker.service.impl;
 
 import com.richard.activitytracker.dto.AuthRequest;
 import com.richard.activitytracker.dto.AuthResponse;
+import com.richard.activitytracker.dto.RefreshRequest;
 import com.richard.activitytracker.dto.RegisterRequest;
 import com.richard.activitytracker.exception.AuthenticationException;
 import com.richard.activitytracker.exception.TokenGenerationException;
+import com.richard.activitytracker.exception.TooManyRequestsException;
 import com.richard.activitytracker.model.User;
 import com.richard.activitytracker.repository.UserRepository;
+import com.richard.activitytracker.security.AuthAdmission;
 import com.richard.activitytracker.security.JwtService;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -33,13 +38,16 @@ import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 public class AuthService {
 
     private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final AuthAdmission authAdmission;
 
     public AuthResponse register(RegisterRequest request) {
+        authAdmission.admit(getClientAddress(), request.getUsername());
         try {
-            if (userRepository.existsByUsername(request.getUsername())) {
+            if (userDirectory.usernameTaken(request.getUsername())) {
                 log.warn("Registration failed - username already exists: {}", request.getUsername());
                 throw new AuthenticationException(
                     format("User with username %s already exists", request.getUsername()),
@@ -47,7 +55,7 @@ public class AuthService {
                     HttpStatus.CONFLICT.value(),
                     "/api/auth/register"
                 );
-            } else if (userRepository.existsByEmail(request.getEmail())) {
+            } else if (userDirectory.emailTaken(request.getEmail())) {
                 log.warn("Registration failed - email already exists: {}", request.getEmail());
                 throw new AuthenticationException(
                     format("User with email %s already exists", request.getEmail()),
@@ -63,12 +71,23 @@ public class AuthService {
             user.setPassword(passwordEncoder.encode(request.getPassword()));
             user.setRole(request.getRole());
 
-            user = userRepository.save(user);
+            try {
+                user = userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                // Registered concurrently, possibly on another node, after the checks above passed.
+                log.warn("Registration failed - username or email taken concurrently: {}", request.getUsername());
+                throw new AuthenticationException(
+                    "User with this username or email already exists",
+                    "Registration failed",
+                    HttpStatus.CONFLICT.value(),
+                    "/api/auth/register"
+                );
+            }
+            userDirectory.changed(user);
             log.info("User registered successfully: {}", user.getUsername());
             
             try {
-                String jwtToken = jwtService.generateToken(user);
-                return new AuthResponse(jwtToken);
+                return issueTokens(user);
             } catch (Exception e) {
                 log.error("Token generation failed for user: {}", user.getUsername(), e);
                 throw new TokenGenerationException("Failed to generate authentication token", e);
@@ -76,6 +95,8 @@ public class AuthService {
         } catch (AuthenticationException e) {
             log.error("Registration failed: {}", e.getMessage());
             throw e;
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Unexpected error during registration: {}", e.getMessage(), e);
             throw new RuntimeException("Registration failed due to an unexpected error", e);
@@ -83,6 +104,7 @@ public class AuthService {
     }
 
     public AuthResponse login(AuthRequest request) {
+        authAdmission.admit(getClientAddress(), request.getUsername());
         try {
             authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
@@ -105,8 +127,7 @@ public class AuthService {
             log.info("User authenticated successfully: {}", user.getUsername());
             
             try {
-                String jwtToken = jwtService.generateToken(user);
-                return new AuthResponse(jwtToken);
+                return issueTokens(user);
             } catch (Exception e) {
                 log.error("Token generation failed for user: {}", user.getUsername(), e);
                 throw new TokenGenerationException("Failed to generate authentication token", e);
@@ -119,8 +140,8 @@ public class AuthService {
                 UNAUTHORIZED.value(),
                 getCurrentRequestPath()
             );
-        } catch (TokenGenerationException e) {
-            log.error("Token generation failed: {}", e.getMessage());
+        } catch (TokenGenerationException | TooManyRequestsException e) {
+            log.error("Login failed: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
             log.error("Unexpected error during login: {}", e.getMessage(), e);
@@ -133,6 +154,84 @@ public class AuthService {
         }
     }
 
+    /**
+     * Exchanges a refresh token for a new access and refresh token. The presented refresh token is
+     * revoked, so each one can be used once; the user is resolved from the in-memory directory.
+     */
+    public AuthResponse refresh(RefreshRequest request) {
+        Claims claims;
+        try {
+            claims = jwtService.verifyRefreshToken(request.getRefreshToken());
+        } catch (Exception e) {
+            log.warn("Refresh failed: {}", e.getMessage());
+            throw invalidRefreshToken();
+        }
+        Long userId = claims.get(JwtService.USER_ID_CLAIM, Long.class);
+        UserDirectory.UserSummary summary = userId == null ? null : userDirectory.find(userId).orElse(null);
+        if (summary == null || !summary.username().equals(claims.getSubject())) {
+            log.warn("Refresh failed - unknown user {} for token {}", userId, claims.getId());
+            throw invalidRefreshToken();
+        }
+        if (!jwtService.revoke(claims)) {
+            log.warn("Refresh failed - token {} of {} was already used", claims.getId(), summary.username());
+            throw invalidRefreshToken();
+        }
+        User user = User.builder()
+                .id(summary.id())
+                .username(summary.username())
+                .email(summary.email())
+                .role(summary.role())
+                .build();
+        try {
+            return issueTokens(user);
+        } catch (Exception e) {
+            log.error("Token generation failed for user: {}", user.getUsername(), e);
+            throw new TokenGenerationException("Failed to generate authentication token", e);
+        }
+    }
+
+    /** Revokes the bearer access token and, when given, the refresh token issued with it. */
+    public void logout(String authorizationHeader, RefreshRequest request) {
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            revokeQuietly(authorizationHeader.substring(7));
+        }
+        if (request != null && request.getRefreshToken() != null) {
+            revokeQuietly(request.getRefreshToken());
+        }
+    }
+
+    private void revokeQuietly(String token) {
+        try {
+            Claims claims = jwtService.verify(token);
+            jwtService.revoke(claims);
+            log.info("Revoked token {} of {}", claims.getId(), claims.getSubject());
+        } catch (Exception e) {
+            // Expired, already revoked or never valid: nothing left to revoke.
+            log.debug("Token not revoked: {}", e.getMessage());
+        }
+    }
+
+    private AuthResponse issueTokens(User user) {
+        return new AuthResponse(jwtService.generateToken(user), jwtService.generateRefreshToken(user));
+    }
+
+    private AuthenticationException invalidRefreshToken() {
+        return new AuthenticationException(
+            "Invalid or expired refresh token",
+            "Authentication failed",
+            UNAUTHORIZED.value(),
+            getCurrentRequestPath()
+        );
+    }
+
+    /** The peer address; behind a proxy, set server.forward-headers-strategy so it is the client's. */
+    private String getClientAddress() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+
     private String getCurrentRequestPath() {
         try {
             HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
@@ -0,0 +1,117 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.dto.ActivityRequest;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.service.ActivityService;
+import com.richard.activitytracker.util.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read side of {@link ActivityService} with single-flight coalescing: identical concurrent reads
+ * share one query. Writes go straight to the delegate.
+ */
+@Slf4j
+@Primary
+@Service
+public class CoalescingActivityService implements ActivityService {
+
+    private final ActivityService delegate;
+    private final MeterRegistry meterRegistry;
+    private final SingleFlight<List<Object>, Page<ActivityResponse>> singleFlight = new SingleFlight<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    public CoalescingActivityService(@Qualifier("activityServiceImpl") ActivityService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("activity.reads.inflight", singleFlight, SingleFlight::inFlightCount)
+                .description("Distinct activity reads currently executing")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ActivityResponse logActivity(Long userId, ActivityRequest request) {
+        return delegate.logActivity(userId, request);
+    }
+
+    @Override
+    public Page<ActivityResponse> getRecentActivities(Pageable pageable) {
+        // The delegate always sorts by timestamp, so only the page coordinates matter here.
+        return coalesce("recent", () -> delegate.getRecentActivities(pageable),
+                pageable.getPageNumber(), pageable.getPageSize());
+    }
+
+    @Override
+    public Page<ActivityResponse> getActivitiesByUserId(Long userId, Pageable pageable) {
+        return coalesce("byUser", () -> delegate.getActivitiesByUserId(userId, pageable),
+                userId, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+    }
+
+    @Override
+    public Page<ActivityResponse> searchActivities(Long userId, LocalDateTime startTime, LocalDateTime endTime, Pageable pageable) {
+        return coalesce("search", () -> delegate.searchActivities(userId, startTime, endTime, pageable),
+                userId, startTime, endTime, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+    }
+
+    @Override
+    public ActivityResponse createActivity(ActivityRequest activityRequest) {
+        return delegate.createActivity(activityRequest);
+    }
+
+    @Override
+    public Page<ActivityResponse> getAllActivities(Pageable pageable) {
+        return coalesce("all", () -> delegate.getAllActivities(pageable),
+                pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+    }
+
+    /** Reconnect storms send many clients back with the same cursor, so these are coalesced too. */
+    @Override
+    public List<ActivityResponse> getActivitiesAfter(Long afterId, Long userId, String action, int limit) {
+        return coalesce("after", () -> new PageImpl<>(delegate.getActivitiesAfter(afterId, userId, action, limit)),
+                afterId, userId, action, limit).getContent();
+    }
+
+    private Page<ActivityResponse> coalesce(String operation, Supplier<Page<ActivityResponse>> loader, Object... keyParts) {
+        Object[] key = new Object[keyParts.length + 1];
+        key[0] = operation;
+        System.arraycopy(keyParts, 0, key, 1, keyParts.length);
+
+        SingleFlight.Result<Page<ActivityResponse>> result = singleFlight.execute(Arrays.asList(key), loader);
+        Counter[] operationCounters = counters.computeIfAbsent(operation, this::registerCounters);
+        if (result.shared()) {
+            operationCounters[1].increment();
+            log.debug("Coalesced {} read {}", operation, Arrays.toString(keyParts));
+        } else {
+            operationCounters[0].increment();
+        }
+        return result.value();
+    }
+
+    private Counter[] registerCounters(String operation) {
+        return new Counter[]{
+                Counter.builder("activity.reads.executed")
+                        .description("Activity reads that ran their own query")
+                        .tag("operation", operation)
+                        .register(meterRegistry),
+                Counter.builder("activity.reads.coalesced")
+                        .description("Activity reads answered by an identical in-flight query")
+                        .tag("operation", operation)
+                        .register(meterRegistry)
+        };
+    }
+}
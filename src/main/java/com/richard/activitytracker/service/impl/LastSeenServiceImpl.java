@@ -0,0 +1,241 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.LastSeenResponse;
+import com.richard.activitytracker.model.UserLastActivity;
+import com.richard.activitytracker.repository.ActivityRepository;
+import com.richard.activitytracker.repository.UserLastActivityRepository;
+import com.richard.activitytracker.repository.UserRepository;
+import com.richard.activitytracker.service.LastSeenService;
+import com.richard.activitytracker.util.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the {@code user_last_activity} read model. Writes land in an in-memory map that also
+ * serves reads and are upserted in batches on a timer; the reconciliation job rebuilds rows from
+ * {@code activities} to cover batches lost to a crash or writes made while the node was down.
+ * Users found without a row are remembered for {@code negative-ttl}, at most {@code max-missing}
+ * of them, least recently asked evicted first, so polling for idle users does not query each time.
+ */
+@Slf4j
+@Service
+public class LastSeenServiceImpl implements LastSeenService {
+
+    private final UserLastActivityRepository userLastActivityRepository;
+    private final ActivityRepository activityRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final int batchSize;
+    private final long negativeTtlNanos;
+    private final ConcurrentMap<Long, LastSeenResponse> lastSeen = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, LastSeenResponse> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Long> missing;
+
+    public LastSeenServiceImpl(
+            UserLastActivityRepository userLastActivityRepository,
+            ActivityRepository activityRepository,
+            UserRepository userRepository,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+            @Value("${activity.last-seen.batch-size:200}") int batchSize,
+            @Value("${activity.last-seen.negative-ttl:30s}") Duration negativeTtl,
+            @Value("${activity.last-seen.max-missing:10000}") int maxMissing) {
+        this.userLastActivityRepository = userLastActivityRepository;
+        this.activityRepository = activityRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskScheduler = taskScheduler;
+        this.batchSize = batchSize;
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.missing = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxMissing;
+            }
+        });
+    }
+
+    @Override
+    public void record(ActivityResponse activity) {
+        LastSeenResponse entry = toResponse(activity);
+        TransactionCallbacks.afterCommit(() -> {
+            lastSeen.merge(entry.getUserId(), entry, LastSeenServiceImpl::newer);
+            pending.merge(entry.getUserId(), entry, LastSeenServiceImpl::newer);
+        });
+    }
+
+    @Override
+    public void observe(ActivityResponse activity) {
+        // The writing node persists the row; only the read cache here needs to move.
+        lastSeen.merge(activity.getUserId(), toResponse(activity), LastSeenServiceImpl::newer);
+    }
+
+    @Override
+    public List<LastSeenResponse> getLastSeen(Collection<Long> userIds) {
+        long now = System.nanoTime();
+        List<Long> misses = userIds.stream()
+                .filter(userId -> !lastSeen.containsKey(userId) && !knownMissing(userId, now))
+                .distinct()
+                .toList();
+        if (!misses.isEmpty()) {
+            userLastActivityRepository.findAllById(misses).forEach(row ->
+                    lastSeen.merge(row.getUserId(), toResponse(row), LastSeenServiceImpl::newer));
+            misses.stream()
+                    .filter(userId -> !lastSeen.containsKey(userId))
+                    .forEach(userId -> missing.put(userId, now + negativeTtlNanos));
+        }
+        return userIds.stream()
+                .distinct()
+                .map(lastSeen::get)
+                .filter(entry -> entry != null)
+                .toList();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${activity.last-seen.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<LastSeenResponse> batch = new ArrayList<>(batchSize);
+        for (Long userId : pending.keySet()) {
+            LastSeenResponse entry = pending.remove(userId);
+            if (entry != null) {
+                batch.add(entry);
+            }
+            if (batch.size() == batchSize) {
+                upsert(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            upsert(batch);
+        }
+    }
+
+    /** Rebuilds on a scheduler thread, so startup does not wait for a walk over every user. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        taskScheduler.schedule(this::reconcile, Instant.now());
+    }
+
+    /** Walks users by id in pages of {@code batch-size} and upserts each one's newest activity. */
+    @Override
+    @Scheduled(cron = "${activity.last-seen.reconcile-cron:0 0 3 * * *}")
+    public void reconcile() {
+        log.info("Reconciling user_last_activity from activities");
+        int rows = 0;
+        long afterUserId = 0;
+        List<Long> userIds;
+        do {
+            userIds = userRepository.findIdsAfter(afterUserId, Limit.of(batchSize));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            afterUserId = userIds.get(userIds.size() - 1);
+            List<LastSeenResponse> batch = activityRepository.findLatestForUsers(userIds).stream()
+                    .map(view -> LastSeenResponse.builder()
+                            .userId(view.getUserId())
+                            .activityId(view.getActivityId())
+                            .action(view.getAction())
+                            .lastSeenAt(view.getTimestamp())
+                            .build())
+                    .toList();
+            batch.forEach(entry -> lastSeen.merge(entry.getUserId(), entry, LastSeenServiceImpl::newer));
+            if (!batch.isEmpty()) {
+                upsert(batch);
+            }
+            rows += batch.size();
+        } while (userIds.size() == batchSize);
+        log.info("Reconciled last-seen rows for {} users", rows);
+    }
+
+    private boolean knownMissing(Long userId, long now) {
+        Long expiresAt = missing.get(userId);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (now - expiresAt < 0) {
+            return true;
+        }
+        missing.remove(userId, expiresAt);
+        return false;
+    }
+
+    private void upsert(List<LastSeenResponse> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, UserLastActivity> existing = userLastActivityRepository
+                        .findAllById(batch.stream().map(LastSeenResponse::getUserId).toList())
+                        .stream()
+                        .collect(Collectors.toMap(UserLastActivity::getUserId, Function.identity()));
+
+                List<UserLastActivity> changed = new ArrayList<>(batch.size());
+                for (LastSeenResponse entry : batch) {
+                    UserLastActivity row = existing.get(entry.getUserId());
+                    if (row == null) {
+                        row = UserLastActivity.builder().userId(entry.getUserId()).newRow(true).build();
+                    } else if (row.getActivityId() >= entry.getActivityId()) {
+                        continue;
+                    }
+                    row.setActivityId(entry.getActivityId());
+                    row.setAction(entry.getAction());
+                    row.setLastSeenAt(entry.getLastSeenAt());
+                    changed.add(row);
+                }
+                userLastActivityRepository.saveAll(changed);
+            });
+        } catch (DataAccessException e) {
+            // Usually another node inserted the same user first; the retry will see its row.
+            log.warn("Failed to upsert {} last-seen rows, retrying on next flush: {}", batch.size(), e.getMessage());
+            batch.forEach(entry -> pending.merge(entry.getUserId(), entry, LastSeenServiceImpl::newer));
+        }
+    }
+
+    private static LastSeenResponse toResponse(ActivityResponse activity) {
+        return LastSeenResponse.builder()
+                .userId(activity.getUserId())
+                .activityId(activity.getId())
+                .action(activity.getAction())
+                .lastSeenAt(activity.getTimestamp())
+                .build();
+    }
+
+    private static LastSeenResponse toResponse(UserLastActivity row) {
+        return LastSeenResponse.builder()
+                .userId(row.getUserId())
+                .activityId(row.getActivityId())
+                .action(row.getAction())
+                .lastSeenAt(row.getLastSeenAt())
+                .build();
+    }
+
+    private static LastSeenResponse newer(LastSeenResponse current, LastSeenResponse candidate) {
+        return candidate.getActivityId() > current.getActivityId() ? candidate : current;
+    }
+}
@@ -0,0 +1,318 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.config.RetentionProperties;
+import com.richard.activitytracker.dto.RetentionPolicyStatus;
+import com.richard.activitytracker.dto.RetentionStatusResponse;
+import com.richard.activitytracker.model.RetentionCheckpoint;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.repository.ActivityRepository;
+import com.richard.activitytracker.repository.RetentionCheckpointRepository;
+import com.richard.activitytracker.service.RetentionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes activities older than their retention policy in small id-range chunks, one transaction
+ * per chunk, sleeping between chunks. Progress is checkpointed per policy in
+ * {@code retention_checkpoint} so a restart resumes where the last run stopped. A run stops early
+ * while {@code logActivity} latency is above the configured ceiling and picks up on the next tick.
+ *
+ * <p>Only the node holding the lease on the {@code lock} row of {@code retention_checkpoint} purges;
+ * each chunk renews the lease in its own transaction, so a chunk never commits on a node that lost
+ * it. Committed purges are announced on the cluster bus so every node's validators move on.
+ */
+@Slf4j
+@Service
+public class RetentionServiceImpl implements RetentionService {
+    static final String CHANNEL = "retention-purges";
+    static final String LOCK_KEY = "lock";
+
+    private final RetentionProperties properties;
+    private final ActivityRepository activityRepository;
+    private final RetentionCheckpointRepository checkpointRepository;
+    private final ActivityVersionTracker activityVersionTracker;
+    private final WriteLatencyMonitor writeLatencyMonitor;
+    private final ClusterBus clusterBus;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer chunkTimer;
+    private final Counter pausedRuns;
+    private final Map<String, PolicyState> states = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean paused;
+
+    public RetentionServiceImpl(
+            RetentionProperties properties,
+            ActivityRepository activityRepository,
+            RetentionCheckpointRepository checkpointRepository,
+            ActivityVersionTracker activityVersionTracker,
+            WriteLatencyMonitor writeLatencyMonitor,
+            ClusterBus clusterBus,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.activityRepository = activityRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.activityVersionTracker = activityVersionTracker;
+        this.writeLatencyMonitor = writeLatencyMonitor;
+        this.clusterBus = clusterBus;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkTimer = Timer.builder("activity.retention.chunk.duration")
+                .description("Time taken to purge one id-range chunk")
+                .register(meterRegistry);
+        this.pausedRuns = Counter.builder("activity.retention.paused")
+                .description("Retention runs cut short because write latency was too high")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        clusterBus.subscribe(CHANNEL, Purge.class, purge -> activityVersionTracker.recordPurge());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${activity.retention.run-interval-ms:60000}",
+            initialDelayString = "${activity.retention.initial-delay-ms:30000}")
+    public void purge() {
+        if (!properties.isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!holdLock()) {
+                log.debug("Retention skipped: another node holds the purge lease");
+                return;
+            }
+            try {
+                paused = false;
+                for (Policy policy : policies()) {
+                    Outcome outcome = purge(policy);
+                    if (outcome == Outcome.PAUSED) {
+                        paused = true;
+                        pausedRuns.increment();
+                        log.info("Retention paused at {}: average write latency {} ms exceeds {} ms", policy.key(),
+                                writeLatencyMonitor.average().toMillis(), properties.getMaxWriteLatency().toMillis());
+                        return;
+                    }
+                    if (outcome == Outcome.LOCK_LOST) {
+                        log.warn("Retention stopped at {}: the purge lease passed to another node", policy.key());
+                        return;
+                    }
+                }
+            } finally {
+                transactionTemplate.executeWithoutResult(status ->
+                        checkpointRepository.releaseLock(LOCK_KEY, clusterBus.nodeId()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public RetentionStatusResponse getStatus() {
+        List<RetentionPolicyStatus> policies = new ArrayList<>();
+        for (Policy policy : policies()) {
+            PolicyState state = states.get(policy.key());
+            RetentionCheckpoint checkpoint = state == null
+                    ? checkpointRepository.findById(policy.key()).orElse(null)
+                    : state.checkpoint;
+            policies.add(RetentionPolicyStatus.builder()
+                    .policy(policy.key())
+                    .retention(policy.retention().toString())
+                    .lastPurgedId(checkpoint == null ? 0L : checkpoint.getLastId())
+                    .rowsPurged(checkpoint == null ? 0L : checkpoint.getRowsPurged())
+                    .lagSeconds(state == null ? null : state.lagSeconds.get())
+                    .lastRunAt(state == null ? null : state.lastRunAt)
+                    .build());
+        }
+        return RetentionStatusResponse.builder()
+                .enabled(properties.isEnabled())
+                .running(running.get())
+                .paused(paused)
+                .averageWriteLatencyMs(writeLatencyMonitor.average().toMillis())
+                .policies(policies)
+                .build();
+    }
+
+    /**
+     * Sweeps ids between the policy checkpoint and the newest row older than the cutoff. Ids grow
+     * with timestamps, so nothing past that frontier can be eligible yet.
+     *
+     * @return whether the sweep finished, paused for write latency or lost the lease
+     */
+    private Outcome purge(Policy policy) throws InterruptedException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(policy.retention());
+        PolicyState state = states.computeIfAbsent(policy.key(), key -> new PolicyState(policy, loadCheckpoint(key)));
+        state.lastRunAt = LocalDateTime.now();
+        Long frontier = activityRepository.findMaxIdBefore(cutoff);
+        long cursor = state.checkpoint.getLastId();
+
+        while (frontier != null && cursor < frontier) {
+            if (writeLatencyMonitor.exceeds(properties.getMaxWriteLatency())) {
+                updateLag(state, cutoff, false);
+                return Outcome.PAUSED;
+            }
+            Long next = activityRepository.findMinIdAfter(cursor);
+            long from = next == null ? frontier : Math.max(cursor, next - 1);
+            long to = Math.min(from + properties.getChunkSize(), frontier);
+
+            long start = System.nanoTime();
+            Chunk chunk = transactionTemplate.execute(status -> purgeChunk(state, cutoff, from, to));
+            chunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (chunk == null) {
+                updateLag(state, cutoff, false);
+                return Outcome.LOCK_LOST;
+            }
+            // Only a committed chunk moves the cursor; a rolled-back one is retried from the same id.
+            state.checkpoint = chunk.checkpoint();
+            int deleted = chunk.deleted();
+            state.purged.increment(deleted);
+            if (deleted > 0) {
+                clusterBus.publish(CHANNEL, new Purge(policy.key(), deleted));
+            }
+            log.debug("Retention {} purged {} rows in ids ({}, {}]", policy.key(), deleted, from, to);
+
+            cursor = to;
+            if (cursor < frontier) {
+                Thread.sleep(properties.getPauseBetweenChunks().toMillis());
+            }
+        }
+        updateLag(state, cutoff, true);
+        return Outcome.SWEPT;
+    }
+
+    /** Null, with nothing deleted, if another node has taken the lease. */
+    private Chunk purgeChunk(PolicyState state, LocalDateTime cutoff, long from, long to) {
+        if (!renewLock()) {
+            return null;
+        }
+        Policy policy = state.policy;
+        int deleted;
+        if (policy.action() != null) {
+            deleted = activityRepository.deleteByActionInRange(policy.action(), cutoff, from, to);
+        } else if (policy.excludedActions().isEmpty()) {
+            deleted = activityRepository.deleteByRoleInRange(policy.role(), cutoff, from, to);
+        } else {
+            deleted = activityRepository.deleteByRoleInRangeExcludingActions(
+                    policy.role(), policy.excludedActions(), cutoff, from, to);
+        }
+
+        RetentionCheckpoint checkpoint = state.checkpoint.toBuilder()
+                .lastId(to)
+                .rowsPurged(state.checkpoint.getRowsPurged() + deleted)
+                .updatedAt(LocalDateTime.now())
+                .build();
+        checkpoint = checkpointRepository.save(checkpoint);
+        if (deleted > 0) {
+            activityVersionTracker.recordPurge();
+        }
+        return new Chunk(deleted, checkpoint);
+    }
+
+    /**
+     * Lag is how far the oldest eligible row is past its cutoff. After a completed sweep it should
+     * be zero; if not, rows landed behind the checkpoint (clock skew, a role change) and the next
+     * run starts over from the lowest id.
+     */
+    private void updateLag(PolicyState state, LocalDateTime cutoff, boolean sweepCompleted) {
+        Policy policy = state.policy;
+        LocalDateTime oldest;
+        if (policy.action() != null) {
+            oldest = activityRepository.findOldestByActionBefore(policy.action(), cutoff);
+        } else if (policy.excludedActions().isEmpty()) {
+            oldest = activityRepository.findOldestByRoleBefore(policy.role(), cutoff);
+        } else {
+            oldest = activityRepository.findOldestByRoleBeforeExcludingActions(policy.role(), policy.excludedActions(), cutoff);
+        }
+        state.lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, cutoff).toSeconds());
+
+        if (sweepCompleted && oldest != null) {
+            log.warn("Retention {} found rows behind its checkpoint, rescanning from the start", policy.key());
+            state.checkpoint.setLastId(0L);
+        }
+    }
+
+    private boolean holdLock() {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> renewLock()));
+    }
+
+    private boolean renewLock() {
+        LocalDateTime now = LocalDateTime.now();
+        return checkpointRepository.acquireLock(LOCK_KEY, clusterBus.nodeId(), now, now.plus(properties.getLockLease())) > 0;
+    }
+
+    private RetentionCheckpoint loadCheckpoint(String key) {
+        return checkpointRepository.findById(key).orElseGet(() -> RetentionCheckpoint.builder()
+                .policyKey(key)
+                .lastId(0L)
+                .rowsPurged(0L)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private List<Policy> policies() {
+        Set<String> actionsWithPolicy = properties.getActions().keySet();
+        List<Policy> policies = new ArrayList<>();
+        properties.getActions().forEach((action, retention) ->
+                policies.add(new Policy("action:" + action, null, action, retention, Set.of())));
+        properties.getRoles().forEach((role, retention) ->
+                policies.add(new Policy("role:" + role.name(), role, null, retention, actionsWithPolicy)));
+        return policies;
+    }
+
+    private enum Outcome { SWEPT, PAUSED, LOCK_LOST }
+
+    /** Announces a committed chunk to the other nodes. */
+    public record Purge(String policy, int deleted) {
+    }
+
+    private record Chunk(int deleted, RetentionCheckpoint checkpoint) {
+    }
+
+    private record Policy(String key, Role role, String action, Duration retention, Set<String> excludedActions) {
+    }
+
+    private final class PolicyState {
+        private final Policy policy;
+        private final Counter purged;
+        private final AtomicLong lagSeconds = new AtomicLong();
+        private volatile RetentionCheckpoint checkpoint;
+        private volatile LocalDateTime lastRunAt;
+
+        private PolicyState(Policy policy, RetentionCheckpoint checkpoint) {
+            this.policy = policy;
+            this.checkpoint = checkpoint;
+            this.purged = Counter.builder("activity.retention.rows.purged")
+                    .description("Activities deleted by the retention job")
+                    .tag("policy", policy.key())
+                    .register(meterRegistry);
+            Gauge.builder("activity.retention.lag", lagSeconds, AtomicLong::get)
+                    .description("Age of the oldest activity past its retention cutoff")
+                    .baseUnit("seconds")
+                    .tag("policy", policy.key())
+                    .register(meterRegistry);
+        }
+    }
+}
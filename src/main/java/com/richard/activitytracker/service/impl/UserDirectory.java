@@ -0,0 +1,189 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.config.UserDirectoryProperties;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.model.User;
+import com.richard.activitytracker.repository.UserRepository;
+import com.richard.activitytracker.util.BloomFilter;
+import com.richard.activitytracker.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Answers "does this user exist" and "who is user N" from memory. Users are cached by id, and ids
+ * found missing are cached too for {@code negative-ttl}, since ids are never reused but a new user
+ * can take the next one. Bloom filters over every username and email let registration skip the
+ * uniqueness queries for names that were never taken; a maybe still goes to the table, and the
+ * unique constraints remain the last word on a race.
+ *
+ * <p>Users are never deleted here; a user created or changed on any node is applied locally and
+ * published on the cluster bus, and peers update their directory from it.
+ */
+@Slf4j
+@Component
+public class UserDirectory {
+    static final String CHANNEL = "users";
+
+    private final UserRepository userRepository;
+    private final ClusterBus clusterBus;
+    private final UserDirectoryProperties properties;
+    /** Access-ordered, so a full directory drops the user least recently looked up. */
+    private final Map<Long, Cached> byId;
+    private final BloomFilter usernames;
+    private final BloomFilter emails;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter uniquenessSkipped;
+    private final Counter uniquenessQueried;
+    private volatile boolean filtersLoaded;
+
+    public UserDirectory(UserRepository userRepository, ClusterBus clusterBus,
+                         UserDirectoryProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.clusterBus = clusterBus;
+        this.properties = properties;
+        int maxEntries = properties.getMaxEntries();
+        this.byId = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Cached> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.usernames = new BloomFilter(properties.getExpectedUsers(), properties.getFalsePositiveRate());
+        this.emails = new BloomFilter(properties.getExpectedUsers(), properties.getFalsePositiveRate());
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.uniquenessSkipped = uniqueness(meterRegistry, "skipped");
+        this.uniquenessQueried = uniqueness(meterRegistry, "queried");
+    }
+
+    @PostConstruct
+    void subscribe() {
+        clusterBus.subscribe(CHANNEL, UserSummary.class, this::apply);
+    }
+
+    /** Fills the Bloom filters; until then uniqueness checks query the table. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFilters() {
+        List<UserRepository.Identity> identities = userRepository.findAllIdentitiesBy();
+        identities.forEach(identity -> {
+            usernames.add(identity.getUsername());
+            if (identity.getEmail() != null) {
+                emails.add(identity.getEmail());
+            }
+        });
+        if (identities.size() > properties.getExpectedUsers()) {
+            log.warn("{} users exceed activity.user-directory.expected-users={}; registration checks will skip fewer queries",
+                    identities.size(), properties.getExpectedUsers());
+        }
+        filtersLoaded = true;
+        log.info("User directory loaded {} usernames and emails", identities.size());
+    }
+
+    public Optional<UserSummary> find(Long userId) {
+        Cached cached = byId.get(userId);
+        if (cached != null && !cached.isExpired()) {
+            hits.increment();
+            return Optional.ofNullable(cached.user());
+        }
+        misses.increment();
+        Optional<UserSummary> user = userRepository.findById(userId).map(UserSummary::from);
+        byId.put(userId, user.map(Cached::found)
+                .orElseGet(() -> Cached.missing(System.nanoTime() + properties.getNegativeTtl().toNanos())));
+        return user;
+    }
+
+    public boolean exists(Long userId) {
+        return find(userId).isPresent();
+    }
+
+    /**
+     * A reference to an existing user for use as an association, without loading the row; only
+     * its id may be read. Use {@link #find} first to confirm the user exists.
+     */
+    public User reference(Long userId) {
+        return userRepository.getReferenceById(userId);
+    }
+
+    public boolean usernameTaken(String username) {
+        if (filtersLoaded && !usernames.mightContain(username)) {
+            uniquenessSkipped.increment();
+            return false;
+        }
+        uniquenessQueried.increment();
+        return userRepository.existsByUsername(username);
+    }
+
+    public boolean emailTaken(String email) {
+        if (filtersLoaded && !emails.mightContain(email)) {
+            uniquenessSkipped.increment();
+            return false;
+        }
+        uniquenessQueried.increment();
+        return userRepository.existsByEmail(email);
+    }
+
+    /** Records a created or updated user here once the write commits, and on the other nodes. */
+    public void changed(User user) {
+        UserSummary summary = UserSummary.from(user);
+        TransactionCallbacks.afterCommit(() -> {
+            apply(summary);
+            clusterBus.publish(CHANNEL, summary);
+        });
+    }
+
+    private void apply(UserSummary user) {
+        usernames.add(user.username());
+        if (user.email() != null) {
+            emails.add(user.email());
+        }
+        byId.put(user.id(), Cached.found(user));
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.directory.lookups")
+                .description("User lookups by id answered from memory (hit) or the database (miss)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter uniqueness(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.directory.uniqueness.checks")
+                .description("Username and email checks a Bloom filter answered (skipped) or that went to the database")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public record UserSummary(Long id, String username, String email, Role role) {
+        static UserSummary from(User user) {
+            return new UserSummary(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
+        }
+    }
+
+    /** A found user, or a missing one ({@code user} null) remembered until {@code expiresAt}. */
+    private record Cached(UserSummary user, long expiresAt) {
+        static Cached found(UserSummary user) {
+            return new Cached(user, Long.MAX_VALUE);
+        }
+
+        static Cached missing(long expiresAt) {
+            return new Cached(null, expiresAt);
+        }
+
+        boolean isExpired() {
+            return user == null && System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
@@ -1,33 +1,180 @@
 package com.richard.activitytracker.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.config.BroadcastProperties;
 import com.richard.activitytracker.dto.ActivityResponse;
-import com.richard.activitytracker.service.ActivityService;
+import com.richard.activitytracker.exception.WebSocketException;
 import com.richard.activitytracker.service.WebSocketService;
+import com.richard.activitytracker.util.MicroBatcher;
+import com.richard.activitytracker.websocket.ActivityReplayInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
+/**
+ * Sends activities to STOMP destinations. Destinations with a batching window configured under
+ * {@code activity.broadcast} receive JSON arrays of activities instead of one frame per activity.
+ * Payloads are serialized to JSON once and the same bytes are handed to every destination, and
+ * from there to every subscribed session, bypassing the template's per-send message conversion.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class WebSocketServiceImpl implements WebSocketService {
     @Lazy
     private final SimpMessagingTemplate messagingTemplate;
+    private final BroadcastProperties broadcastProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ActivitySubscriptionIndex subscriptionIndex;
+    private final ActivityEventLog activityEventLog;
+    private final Map<String, Optional<MicroBatcher<ActivityResponse>>> batchers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> frameCounters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ws-broadcast-batch");
+        thread.setDaemon(true);
+        return thread;
+    });
 
+    /**
+     * Broadcasts from the event log listener, so frames leave in sequence order. Each frame carries
+     * its highest sequence, which {@code ActivityReplayInterceptor} uses to order live activities
+     * behind a replay.
+     */
+    @PostConstruct
+    void broadcastLoggedActivities() {
+        activityEventLog.addListener(entry -> broadcastActivity(entry.activity()));
+    }
 
+    /**
+     * Sends the activity to the unfiltered topic and to its user and action topics, skipping any
+     * destination without subscribers on this node.
+     */
     @Override
     public void broadcastActivity(ActivityResponse activityResponse) {
-        log.info("Broadcasting activity: {}", activityResponse);
-        messagingTemplate.convertAndSend("/topic/activities", activityResponse);
-        messagingTemplate.convertAndSend("/queue/activities", activityResponse);
-    }
-//    public void broadcastActivities(List<ActivityResponse> activityResponses) {
-//        log.info("Broadcasting activities: {}", activityResponses);
-//        messagingTemplate.convertAndSend("/topic/activities", activityResponses);
-//        messagingTemplate.convertAndSend("/queue/activities", activityResponses);
-//    }
-} 
\ No newline at end of file
+        log.debug("Broadcasting activity: {}", activityResponse);
+        List<String> unbatched = new ArrayList<>(3);
+        for (String destination : subscriptionIndex.destinationsFor(activityResponse)) {
+            Optional<MicroBatcher<ActivityResponse>> batcher = batchers.computeIfAbsent(destination, this::createBatcher);
+            if (batcher.isPresent()) {
+                batcher.get().offer(activityResponse);
+            } else {
+                unbatched.add(destination);
+            }
+        }
+        if (!unbatched.isEmpty()) {
+            broadcast(unbatched, activityResponse, activityResponse.getSequence());
+        }
+    }
+
+    @Override
+    public void broadcast(Collection<String> destinations, Object payload) {
+        broadcast(destinations, payload, null);
+    }
+
+    private void broadcast(Collection<String> destinations, Object payload, Long sequence) {
+        byte[] body = serialize(payload);
+        for (String destination : destinations) {
+            messagingTemplate.send(destination, jsonMessage(body, sequence));
+            frames(destination).increment();
+        }
+    }
+
+    /** Drops batchers of filtered destinations nobody on this node listens to any more. */
+    @Scheduled(fixedDelayString = "${activity.broadcast.idle-batcher-eviction-ms:60000}")
+    public void evictIdleBatchers() {
+        batchers.entrySet().removeIf(entry -> {
+            if (subscriptionIndex.hasSubscribers(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().ifPresent(MicroBatcher::flush);
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchers.values().forEach(batcher -> batcher.ifPresent(MicroBatcher::flush));
+        batchScheduler.shutdown();
+    }
+
+    private Optional<MicroBatcher<ActivityResponse>> createBatcher(String destination) {
+        BroadcastProperties.Destination settings = broadcastProperties.forDestination(destination);
+        if (!settings.isBatched()) {
+            return Optional.empty();
+        }
+        DistributionSummary batchSizes = DistributionSummary.builder("activity.broadcast.batch.size")
+                .description("Activities per batched frame")
+                .tag("destination", kindOf(destination))
+                .register(meterRegistry);
+        return Optional.of(new MicroBatcher<>(settings.getWindow(), settings.getMaxItems(), batch -> {
+            // Offered in sequence order, so the last activity carries the batch's highest sequence.
+            messagingTemplate.send(destination, jsonMessage(serialize(batch), batch.get(batch.size() - 1).getSequence()));
+            frames(destination).increment();
+            batchSizes.record(batch.size());
+        }, batchScheduler));
+    }
+
+    /** Tagged by kind of destination, not by destination, to keep per-user topics out of the tags. */
+    private Counter frames(String destination) {
+        return frameCounters.computeIfAbsent(kindOf(destination), kind -> Counter.builder("activity.broadcast.frames")
+                .description("STOMP frames sent to activity destinations")
+                .tag("destination", kind)
+                .register(meterRegistry));
+    }
+
+    private static String kindOf(String destination) {
+        if (destination.startsWith(ActivitySubscriptionIndex.USER_PREFIX)) {
+            return ActivitySubscriptionIndex.USER_PREFIX + "{id}";
+        }
+        if (destination.startsWith(ActivitySubscriptionIndex.ACTION_PREFIX)) {
+            return ActivitySubscriptionIndex.ACTION_PREFIX + "{action}";
+        }
+        return destination;
+    }
+
+    private byte[] serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new WebSocketException("Failed to serialize broadcast payload", "SERIALIZATION_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * A fresh header set per destination around the shared body: the template stamps the
+     * destination into mutable headers, so messages cannot be reused across destinations.
+     */
+    private static Message<byte[]> jsonMessage(byte[] body, Long sequence) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (sequence != null) {
+            accessor.setNativeHeader(ActivityReplayInterceptor.SEQUENCE_HEADER, Long.toString(sequence));
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+    }
+}
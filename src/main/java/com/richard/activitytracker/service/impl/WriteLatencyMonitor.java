@@ -0,0 +1,47 @@
+package com.richard.activitytracker.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially weighted average of {@code logActivity} latency, so background work can back off
+ * while the write path is struggling. The average only moves on writes, so once no write has been
+ * seen for a while it no longer counts as struggling.
+ */
+@Component
+public class WriteLatencyMonitor {
+    private static final double ALPHA = 0.2;
+    private static final long STALE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final AtomicLong averageBits = new AtomicLong(Double.doubleToLongBits(0));
+    private final Timer timer;
+    private volatile long lastRecordedAt = System.nanoTime() - STALE_AFTER_NANOS;
+
+    public WriteLatencyMonitor(MeterRegistry meterRegistry) {
+        this.timer = Timer.builder("activity.write.latency")
+                .description("Time spent logging a single activity")
+                .register(meterRegistry);
+    }
+
+    public void record(long nanos) {
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+        lastRecordedAt = System.nanoTime();
+        averageBits.getAndUpdate(bits -> {
+            double average = Double.longBitsToDouble(bits);
+            return Double.doubleToLongBits(average == 0 ? nanos : average + ALPHA * (nanos - average));
+        });
+    }
+
+    public Duration average() {
+        return Duration.ofNanos((long) Double.longBitsToDouble(averageBits.get()));
+    }
+
+    public boolean exceeds(Duration threshold) {
+        return System.nanoTime() - lastRecordedAt < STALE_AFTER_NANOS && average().compareTo(threshold) > 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.richard.activitytracker.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Groups items into batches of at most {@code maxItems}, emitting at most one batch per window.
+ * An item that arrives after a quiet window is emitted at once, so low rates see no extra
+ * latency; items that follow within the window are held until it closes or the batch fills.
+ * Batches are handed to the sink under the batcher's lock so they arrive in order; the sink
+ * should only enqueue.
+ */
+public class MicroBatcher<T> {
+
+    private final long windowNanos;
+    private final int maxItems;
+    private final Consumer<List<T>> sink;
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<T> buffer = new ArrayList<>();
+    private long quietAfter;
+    private boolean flushScheduled;
+
+    public MicroBatcher(Duration window, int maxItems, Consumer<List<T>> sink, ScheduledExecutorService scheduler) {
+        if (window.isNegative() || window.isZero() || maxItems <= 0) {
+            throw new IllegalArgumentException("window and maxItems must be positive");
+        }
+        this.windowNanos = window.toNanos();
+        this.maxItems = maxItems;
+        this.sink = sink;
+        this.scheduler = scheduler;
+        this.quietAfter = System.nanoTime() - windowNanos;
+    }
+
+    public void offer(T item) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            buffer.add(item);
+            if (buffer.size() >= maxItems || (!flushScheduled && now - quietAfter >= 0)) {
+                emit(now);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, Math.max(0, quietAfter - now), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void flush() {
+        lock.lock();
+        try {
+            flushScheduled = false;
+            if (!buffer.isEmpty()) {
+                emit(System.nanoTime());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void emit(long now) {
+        List<T> ready = buffer;
+        buffer = new ArrayList<>();
+        quietAfter = now + windowNanos;
+        sink.accept(ready);
+    }
+}
@@ -0,0 +1,85 @@
+package com.richard.activitytracker.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timing wheel: {@code slots} buckets of one {@code tick} each, so scheduling is an
+ * append to a lock-free queue and each advance only visits the buckets whose tick has passed.
+ * Deadlines further out than one revolution stay in their bucket until their round comes up.
+ * Items fire up to one tick late, never early. Any thread may schedule; one thread advances.
+ * There is no cancel: callers that want one check, when the item fires, whether it still applies.
+ */
+public class TimingWheel<T> {
+
+    private final long tickNanos;
+    private final Queue<Entry<T>>[] buckets;
+    private final LongSupplier nanoTime;
+    private final long startedAt;
+    private volatile long currentTick;
+
+    public TimingWheel(Duration tick, int slots) {
+        this(tick, slots, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(Duration tick, int slots, LongSupplier nanoTime) {
+        if (tick.isNegative() || tick.isZero() || slots < 1) {
+            throw new IllegalArgumentException("tick must be positive and slots at least 1");
+        }
+        this.tickNanos = tick.toNanos();
+        this.buckets = new Queue[slots];
+        for (int i = 0; i < slots; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.nanoTime = nanoTime;
+        this.startedAt = nanoTime.getAsLong();
+    }
+
+    public void schedule(T item, Duration delay) {
+        long elapsed = nanoTime.getAsLong() - startedAt;
+        // Round up so an item never fires before its delay, and never into a tick already processed.
+        long deadline = Math.max(currentTick + 1, Math.ceilDiv(elapsed + Math.max(0, delay.toNanos()), tickNanos));
+        buckets[(int) (deadline % buckets.length)].offer(new Entry<>(item, deadline));
+    }
+
+    /** Fires every item whose tick has passed, in tick order, on the calling thread. */
+    public void advance(Consumer<? super T> expired) {
+        long target = (nanoTime.getAsLong() - startedAt) / tickNanos;
+        // Revisit the last processed tick too: a schedule racing with that advance may have landed there late.
+        long from = currentTick;
+        if (target - from >= buckets.length) {
+            // Far behind: one pass over every bucket fires everything due.
+            from = target - buckets.length + 1;
+        }
+        for (long tick = from; tick <= target; tick++) {
+            currentTick = tick;
+            Queue<Entry<T>> bucket = buckets[(int) (tick % buckets.length)];
+            List<Entry<T>> later = new ArrayList<>();
+            for (Entry<T> entry = bucket.poll(); entry != null; entry = bucket.poll()) {
+                if (entry.deadline() <= target) {
+                    expired.accept(entry.item());
+                } else {
+                    later.add(entry);
+                }
+            }
+            bucket.addAll(later);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Queue<Entry<T>> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private record Entry<T>(T item, long deadline) {
+    }
+}
@@ -0,0 +1,387 @@
+package com.richard.activitytracker.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.config.BroadcastProperties;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.service.ActivityService;
+import com.richard.activitytracker.service.impl.ActivityEventLog;
+import com.richard.activitytracker.service.impl.ActivitySnapshotCache;
+import com.richard.activitytracker.service.impl.ActivitySubscriptionIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends each new activity subscription what it needs before live activities start flowing. A
+ * plain subscription to {@code /topic/activities} gets the shared {@link ActivitySnapshotCache}
+ * snapshot. A reconnecting client gets what it missed instead: it sends the {@code stream} and
+ * {@code sequence} of the last activity it received as {@code stream} and {@code last-seq}
+ * headers, on CONNECT for every subscription or on a single SUBSCRIBE, plus its {@code id} as
+ * {@code last-id} for the database fallback. Once the broker has registered the subscription the
+ * gap is sent to it alone: from {@link ActivityEventLog} while the log still holds it, otherwise
+ * with a keyset query on activity ids, otherwise as a resync message.
+ *
+ * <p>The log is never held while this happens, so writers are not stalled by subscribers. Live
+ * frames carry the highest sequence they contain in a {@code seq} header instead, and
+ * {@link #liveGate()} on the outbound channel parks the subscription's live frames until the
+ * replay has gone out, then drops those the replay already covered. A batched frame straddling
+ * the replay's last sequence is sent whole; clients drop activities at or below the sequence they
+ * have seen.
+ */
+@Slf4j
+@Component
+public class ActivityReplayInterceptor implements ExecutorChannelInterceptor {
+    public static final String STREAM_HEADER = "stream";
+    public static final String LAST_SEQ_HEADER = "last-seq";
+    public static final String LAST_ID_HEADER = "last-id";
+    /** On live activity frames: the highest event log sequence in the frame. */
+    public static final String SEQUENCE_HEADER = "seq";
+    private static final String CURSOR_ATTRIBUTE = ActivityReplayInterceptor.class.getName() + ".cursor";
+
+    private final ActivityEventLog eventLog;
+    private final ActivityService activityService;
+    private final ActivitySnapshotCache snapshotCache;
+    private final BroadcastProperties broadcastProperties;
+    private final ObjectMapper objectMapper;
+    private final MessageHandler clientMessageHandler;
+    private final PayloadEncodingInterceptor payloadEncoding;
+    private final MeterRegistry meterRegistry;
+    private final int maxEvents;
+    private final int maxDatabaseRows;
+    private final Map<String, Counter> replays = new ConcurrentHashMap<>();
+    private final Map<SubscriptionKey, Gate> gates = new ConcurrentHashMap<>();
+    private final Counter overlapping;
+    private final ThreadLocal<Replay> pending = new ThreadLocal<>();
+
+    private final ChannelInterceptor liveGate = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            if (gates.isEmpty()) {
+                return message;
+            }
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+            Gate gate = sessionId == null || subscriptionId == null ? null : gates.get(new SubscriptionKey(sessionId, subscriptionId));
+            return gate == null ? message : gate.admit(message);
+        }
+    };
+
+    public ActivityReplayInterceptor(
+            ActivityEventLog eventLog,
+            @Lazy ActivityService activityService,
+            ActivitySnapshotCache snapshotCache,
+            BroadcastProperties broadcastProperties,
+            ObjectMapper objectMapper,
+            @Lazy @Qualifier("subProtocolWebSocketHandler") MessageHandler clientMessageHandler,
+            PayloadEncodingInterceptor payloadEncoding,
+            MeterRegistry meterRegistry,
+            @Value("${activity.replay.max-events:1000}") int maxEvents,
+            @Value("${activity.replay.max-database-rows:500}") int maxDatabaseRows) {
+        this.eventLog = eventLog;
+        this.activityService = activityService;
+        this.snapshotCache = snapshotCache;
+        this.broadcastProperties = broadcastProperties;
+        this.objectMapper = objectMapper;
+        this.clientMessageHandler = clientMessageHandler;
+        this.payloadEncoding = payloadEncoding;
+        this.meterRegistry = meterRegistry;
+        this.maxEvents = maxEvents;
+        this.maxDatabaseRows = maxDatabaseRows;
+        this.overlapping = Counter.builder("activity.replay.overlap")
+                .description("Live frames dropped because the subscription's replay already contained them")
+                .register(meterRegistry);
+    }
+
+    /** For the outbound channel, ahead of the payload encoding: orders live frames behind a replay. */
+    public ChannelInterceptor liveGate() {
+        return liveGate;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (StompCommand.CONNECT.equals(accessor.getCommand()) && accessor.getSessionAttributes() != null) {
+            Cursor cursor = Cursor.of(accessor);
+            if (cursor != null) {
+                accessor.getSessionAttributes().put(CURSOR_ATTRIBUTE, cursor);
+            }
+        }
+        return message;
+    }
+
+    /** Runs on the inbound thread right before the broker registers a subscription. */
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (!(handler instanceof AbstractBrokerMessageHandler)) {
+            return message;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (!StompCommand.SUBSCRIBE.equals(accessor.getCommand()) || destination == null
+                || !ActivitySubscriptionIndex.isActivityDestination(destination)) {
+            return message;
+        }
+        Cursor cursor = Cursor.of(accessor);
+        if (cursor == null && accessor.getSessionAttributes() != null) {
+            cursor = (Cursor) accessor.getSessionAttributes().get(CURSOR_ATTRIBUTE);
+        }
+        if (cursor == null && !ActivitySubscriptionIndex.ALL_ACTIVITIES.equals(destination)) {
+            return message;
+        }
+        Replay replay = new Replay(accessor.getSessionId(), accessor.getSubscriptionId(), destination, cursor);
+        if (cursor == null) {
+            snapshotCache.get();
+        } else if (!replay.coveredByLog() && cursor.lastId() != null) {
+            replay.rows = activityService.getActivitiesAfter(cursor.lastId(),
+                    ActivitySubscriptionIndex.userFilter(destination),
+                    ActivitySubscriptionIndex.actionFilter(destination),
+                    maxDatabaseRows + 1);
+        }
+        // Registered before the broker sees the subscription, so no live frame can slip past it.
+        gates.put(replay.key, replay.gate);
+        pending.set(replay);
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Replay replay = pending.get();
+        if (replay == null) {
+            return;
+        }
+        pending.remove();
+        long through = -1;
+        try {
+            if (ex == null) {
+                through = replay.send();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to replay activities to session {}: {}", replay.key.sessionId(), e.getMessage());
+        } finally {
+            replay.gate.open(through);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        gates.keySet().removeIf(key -> key.sessionId().equals(event.getSessionId()));
+    }
+
+    private void count(String source) {
+        replays.computeIfAbsent(source, s -> Counter.builder("activity.replay")
+                .description("Subscriptions resumed from a client cursor")
+                .tag("source", s)
+                .register(meterRegistry)).increment();
+    }
+
+    record Cursor(String stream, Long lastSequence, Long lastId) {
+        static Cursor of(StompHeaderAccessor accessor) {
+            Long lastSequence = parse(accessor.getFirstNativeHeader(LAST_SEQ_HEADER));
+            Long lastId = parse(accessor.getFirstNativeHeader(LAST_ID_HEADER));
+            if (lastSequence == null && lastId == null) {
+                return null;
+            }
+            return new Cursor(accessor.getFirstNativeHeader(STREAM_HEADER), lastSequence, lastId);
+        }
+
+        static Long parse(String value) {
+            try {
+                return value == null ? null : Long.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private record SubscriptionKey(String sessionId, String subscriptionId) {
+    }
+
+    /**
+     * Live frames of one subscription while its replay is prepared. Until {@link #open} they are
+     * parked; afterwards those at or below the replay's last sequence are dropped, and the gate goes
+     * away with the first frame past it, since the broker fans out in sequence order.
+     */
+    private final class Gate {
+        private final SubscriptionKey key;
+        private List<Message<?>> parked = new ArrayList<>();
+        private long through = -1;
+
+        private Gate(SubscriptionKey key) {
+            this.key = key;
+        }
+
+        private synchronized Message<?> admit(Message<?> message) {
+            if (parked != null) {
+                parked.add(message);
+                return null;
+            }
+            Long sequence = sequenceOf(message);
+            if (sequence != null && sequence <= through) {
+                overlapping.increment();
+                return null;
+            }
+            gates.remove(key, this);
+            return message;
+        }
+
+        /**
+         * Called once the replay, covering sequences up to {@code through}, has been delivered, or
+         * with -1 when there was none. Parked frames go out first, straight to the session, so the
+         * next live frame cannot overtake them.
+         */
+        private synchronized void open(long through) {
+            this.through = through;
+            List<Message<?>> waiting = parked;
+            parked = null;
+            boolean passed = through < 0;
+            for (Message<?> message : waiting) {
+                Long sequence = sequenceOf(message);
+                if (sequence != null && sequence <= through) {
+                    overlapping.increment();
+                    continue;
+                }
+                passed = true;
+                try {
+                    clientMessageHandler.handleMessage(payloadEncoding.encode(message));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to deliver a parked frame to session {}: {}", key.sessionId(), e.getMessage());
+                }
+            }
+            if (passed) {
+                gates.remove(key, this);
+            }
+        }
+
+        private Long sequenceOf(Message<?> message) {
+            String sequence = SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(SEQUENCE_HEADER);
+            return Cursor.parse(sequence);
+        }
+    }
+
+    private final class Replay {
+        private final SubscriptionKey key;
+        private final Gate gate;
+        private final String destination;
+        private final Cursor cursor;
+        private List<ActivityResponse> rows;
+
+        private Replay(String sessionId, String subscriptionId, String destination, Cursor cursor) {
+            this.key = new SubscriptionKey(sessionId, subscriptionId);
+            this.gate = new Gate(key);
+            this.destination = destination;
+            this.cursor = cursor;
+        }
+
+        private boolean coveredByLog() {
+            return eventLog.stream().equals(cursor.stream()) && cursor.lastSequence() != null
+                    && eventLog.since(cursor.lastSequence()) != null;
+        }
+
+        /**
+         * Called after the broker has registered the subscription; returns the last sequence the
+         * replay covers. Each source reads the log through its lock, so an append that was under
+         * way when the subscription was registered has finished, and reached the snapshot, first.
+         */
+        private long send() {
+            if (cursor == null) {
+                eventLog.lastSequence();
+                ActivitySnapshotCache.Snapshot snapshot = snapshotCache.current();
+                count("snapshot");
+                deliver(snapshot.json(), false);
+                return snapshot.version();
+            }
+            List<ActivityEventLog.Entry> missed = eventLog.stream().equals(cursor.stream()) && cursor.lastSequence() != null
+                    ? eventLog.since(cursor.lastSequence()) : null;
+            List<ActivityResponse> activities = new ArrayList<>();
+            String source;
+            long through;
+            if (missed != null) {
+                source = "log";
+                through = missed.isEmpty() ? cursor.lastSequence() : missed.get(missed.size() - 1).sequence();
+                missed.stream().map(ActivityEventLog.Entry::activity).filter(this::matches).forEach(activities::add);
+            } else if (rows != null && rows.size() <= maxDatabaseRows) {
+                // Rows committed after the query are in the log; ids are close enough to commit order.
+                source = "database";
+                activities.addAll(rows);
+                long newestId = rows.isEmpty() ? cursor.lastId() : rows.get(rows.size() - 1).getId();
+                List<ActivityEventLog.Entry> retained = eventLog.retained();
+                through = retained.isEmpty() ? 0 : retained.get(retained.size() - 1).sequence();
+                retained.stream()
+                        .map(ActivityEventLog.Entry::activity)
+                        .filter(activity -> activity.getId() > newestId && matches(activity))
+                        .forEach(activities::add);
+            } else {
+                source = "resync";
+                through = eventLog.lastSequence();
+            }
+            if (activities.size() > maxEvents) {
+                source = "resync";
+            }
+            count(source);
+            if (source.equals("resync")) {
+                deliver(serialize(Map.of("type", "resync")), true);
+                return through;
+            }
+            int batchSize = broadcastProperties.forDestination(destination).isBatched()
+                    ? broadcastProperties.forDestination(destination).getMaxItems() : 1;
+            for (int from = 0; from < activities.size(); from += batchSize) {
+                List<ActivityResponse> chunk = activities.subList(from, Math.min(activities.size(), from + batchSize));
+                deliver(serialize(batchSize == 1 ? chunk.get(0) : chunk), false);
+            }
+            return through;
+        }
+
+        private boolean matches(ActivityResponse activity) {
+            return ActivitySubscriptionIndex.matches(destination, activity);
+        }
+
+        /**
+         * Straight to the session's outbound queue on this thread rather than through the outbound
+         * channel, whose live frames for this subscription are parked until the replay is out. That
+         * also skips the channel's interceptors, so the payload encoding is applied here.
+         */
+        private void deliver(byte[] body, boolean resync) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId(key.sessionId());
+            accessor.setSubscriptionId(key.subscriptionId());
+            accessor.setDestination(destination);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            if (resync) {
+                accessor.setNativeHeader("resync", "true");
+            }
+            clientMessageHandler.handleMessage(payloadEncoding.encode(MessageBuilder.createMessage(body, accessor.getMessageHeaders())));
+        }
+
+        private byte[] serialize(Object payload) {
+            try {
+                return objectMapper.writeValueAsBytes(payload);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize replayed activities", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketOutboundProperties.OverflowPolicy;
+import com.richard.activitytracker.dto.WebSocketSessionStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues outbound frames for one session and writes them from a virtual thread, so a client on a
+ * slow link only holds up its own queue instead of the broker's outbound channel. The queue is
+ * bounded in bytes and the configured {@link OverflowPolicy} decides what gives when it fills up.
+ * A write that stays blocked past the send time limit always disconnects: no policy can help a
+ * socket that does not drain at all. Sessions that negotiated CBOR payloads (see
+ * {@link PayloadEncodingInterceptor}) get every frame as a binary message.
+ */
+@Slf4j
+class BoundedOutboundSession extends WebSocketSessionDecorator {
+
+    private static final StompEncoder STOMP_ENCODER = new StompEncoder();
+    private static final int MAX_HEADER_SCAN = 4096;
+
+    private final OutboundSessionRegistry registry;
+    private final long bufferSizeLimit;
+    private final long sendTimeLimitNanos;
+    private final OverflowPolicy overflow;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<WebSocketMessage<?>> queue = new ArrayDeque<>();
+    /** Activity frames conflated away, by subscription id, until the resync frame is written. */
+    private final Map<String, Missed> missed = new LinkedHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private boolean draining;
+    private long resyncCount;
+    private volatile long queuedBytes;
+    private volatile int queuedFrames;
+    private volatile long sendStartedAt;
+
+    BoundedOutboundSession(WebSocketSession delegate, OutboundSessionRegistry registry) {
+        super(delegate);
+        this.registry = registry;
+        this.bufferSizeLimit = registry.properties().getBufferSizeLimit().toBytes();
+        this.sendTimeLimitNanos = registry.properties().getSendTimeLimit().toNanos();
+        this.overflow = registry.properties().getOverflow();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closed.get()) {
+            return;
+        }
+        if (message instanceof TextMessage text && binary()) {
+            // The STOMP handler only writes octet-stream bodies as binary; a CBOR body in a text frame is not valid UTF-8.
+            message = new BinaryMessage(text.asBytes());
+        }
+        String exceeded = null;
+        lock.lock();
+        try {
+            long started = sendStartedAt;
+            if (started != 0 && System.nanoTime() - started > sendTimeLimitNanos) {
+                exceeded = "send-time";
+            } else {
+                queue.addLast(message);
+                queuedBytes += message.getPayloadLength();
+                if (queuedBytes > bufferSizeLimit) {
+                    exceeded = applyOverflowPolicy();
+                }
+                queuedFrames = queue.size();
+                if (exceeded == null && !draining) {
+                    draining = true;
+                    registry.execute(this::drain);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (exceeded != null) {
+            disconnect(exceeded);
+        }
+    }
+
+    /** Set on CONNECT, so checked per frame rather than once when the session opens. */
+    private boolean binary() {
+        Map<String, Object> attributes = getAttributes();
+        return attributes != null && Boolean.TRUE.equals(attributes.get(PayloadEncodingInterceptor.BINARY_ATTRIBUTE));
+    }
+
+    long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    int getQueuedFrames() {
+        return queuedFrames;
+    }
+
+    WebSocketSessionStatus toStatus() {
+        long started = sendStartedAt;
+        return WebSocketSessionStatus.builder()
+                .sessionId(getId())
+                .user(getPrincipal() != null ? getPrincipal().getName() : null)
+                .queuedFrames(queuedFrames)
+                .queuedBytes(queuedBytes)
+                .droppedFrames(droppedFrames.get())
+                .sendingForMillis(started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))
+                .build();
+    }
+
+    /** Releases the queue once the connection is gone. */
+    void discard() {
+        closed.set(true);
+        lock.lock();
+        try {
+            queue.clear();
+            missed.clear();
+            queuedBytes = 0;
+            queuedFrames = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Called with the lock held and the queue over its limit; returns the limit to disconnect for, if any. */
+    private String applyOverflowPolicy() {
+        int dropped = 0;
+        switch (overflow) {
+            case DISCONNECT -> {
+                return "buffer";
+            }
+            case DROP_OLDEST -> {
+                for (Iterator<WebSocketMessage<?>> it = queue.iterator(); it.hasNext() && queuedBytes > bufferSizeLimit; ) {
+                    WebSocketMessage<?> queued = it.next();
+                    if (it.hasNext() && messageTarget(queued) != null) {
+                        it.remove();
+                        queuedBytes -= queued.getPayloadLength();
+                        dropped++;
+                    }
+                }
+            }
+            case CONFLATE -> {
+                for (Iterator<WebSocketMessage<?>> it = queue.iterator(); it.hasNext(); ) {
+                    WebSocketMessage<?> queued = it.next();
+                    String[] target = messageTarget(queued);
+                    if (target != null) {
+                        it.remove();
+                        queuedBytes -= queued.getPayloadLength();
+                        missed.computeIfAbsent(target[0], subscription -> new Missed(target[1])).count++;
+                        dropped++;
+                    }
+                }
+            }
+        }
+        if (dropped > 0) {
+            droppedFrames.addAndGet(dropped);
+            registry.dropped(dropped);
+        }
+        // Control frames are never dropped; if they alone overflow the queue the client is gone anyway.
+        return queuedBytes > bufferSizeLimit && queue.size() > 1 ? "buffer" : null;
+    }
+
+    private void drain() {
+        while (true) {
+            WebSocketMessage<?> next;
+            lock.lock();
+            try {
+                // Resync frames go first: everything still queued is newer than what they stand for.
+                boolean resync = !missed.isEmpty();
+                next = resync ? nextResyncFrame() : queue.pollFirst();
+                if (next == null || closed.get()) {
+                    draining = false;
+                    return;
+                }
+                if (!resync) {
+                    queuedBytes -= next.getPayloadLength();
+                    queuedFrames = queue.size();
+                }
+            } finally {
+                lock.unlock();
+            }
+            long started = System.nanoTime();
+            sendStartedAt = started == 0 ? 1 : started;
+            try {
+                getDelegate().sendMessage(next);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Failed to write to WebSocket session {}: {}", getId(), e.getMessage());
+                discard();
+                return;
+            } finally {
+                sendStartedAt = 0;
+                registry.sendTimer().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void disconnect(String limit) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        registry.disconnected(getId(), limit);
+        discard();
+        // Closing writes a close frame, which may block behind the stuck write; keep it off the caller's thread.
+        registry.execute(() -> {
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Failed to close WebSocket session {}: {}", getId(), e.getMessage());
+            }
+        });
+    }
+
+    private TextMessage nextResyncFrame() {
+        Iterator<Map.Entry<String, Missed>> it = missed.entrySet().iterator();
+        Map.Entry<String, Missed> entry = it.next();
+        it.remove();
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSubscriptionId(entry.getKey());
+        accessor.setDestination(entry.getValue().destination);
+        accessor.setMessageId(getId() + "-resync-" + (++resyncCount));
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setNativeHeader("resync", "true");
+        byte[] body = ("{\"type\":\"resync\",\"missed\":" + entry.getValue().count + "}").getBytes(StandardCharsets.UTF_8);
+        return new TextMessage(STOMP_ENCODER.encode(accessor.getMessageHeaders(), body));
+    }
+
+    /** Subscription id and destination of a STOMP MESSAGE frame, or null for any other frame. */
+    static String[] messageTarget(WebSocketMessage<?> message) {
+        String frame;
+        if (message instanceof TextMessage text) {
+            frame = text.getPayload();
+        } else if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload().duplicate();
+            payload.limit(Math.min(payload.limit(), payload.position() + MAX_HEADER_SCAN));
+            frame = StandardCharsets.UTF_8.decode(payload).toString();
+        } else {
+            return null;
+        }
+        if (!frame.startsWith("MESSAGE\n") && !frame.startsWith("MESSAGE\r\n")) {
+            return null;
+        }
+        String subscription = null;
+        String destination = null;
+        int start = frame.indexOf('\n') + 1;
+        while (start < frame.length()) {
+            int end = frame.indexOf('\n', start);
+            if (end < 0) {
+                break;
+            }
+            String line = frame.substring(start, end > start && frame.charAt(end - 1) == '\r' ? end - 1 : end);
+            if (line.isEmpty()) {
+                break;
+            }
+            // Repeated headers: the first occurrence wins.
+            if (subscription == null && line.startsWith("subscription:")) {
+                subscription = line.substring("subscription:".length());
+            } else if (destination == null && line.startsWith("destination:")) {
+                destination = line.substring("destination:".length());
+            }
+            start = end + 1;
+        }
+        return subscription != null && destination != null ? new String[]{subscription, destination} : null;
+    }
+
+    private static final class Missed {
+        private final String destination;
+        private int count;
+
+        private Missed(String destination) {
+            this.destination = destination;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketChannelProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the executors behind the STOMP channels, each tagged with its {@code channel} in the
+ * {@code websocket.channel.*} metrics: queued tasks, running tasks, pool threads, time a task waits before it
+ * starts and time it runs, and rejections. The executors are returned to Spring's broker
+ * configuration, which registers them as beans and so starts and stops the pools.
+ */
+@Component
+public class ChannelExecutors {
+    private final WebSocketChannelProperties properties;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private ThreadPoolTaskExecutor broker;
+
+    public ChannelExecutors(WebSocketChannelProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Executor inbound() {
+        return channelExecutor("inbound", properties.getInbound());
+    }
+
+    public Executor outbound() {
+        return channelExecutor("outbound", properties.getOutbound());
+    }
+
+    /**
+     * The broker channel executor, or null to fan out on the publishing thread. Activities still
+     * queued here when a client subscribes reach it after its replay; {@link ActivityReplayInterceptor}
+     * drops them by sequence rather than waiting for the queue to drain.
+     */
+    public synchronized Executor broker() {
+        if (!properties.getBroker().isAsync()) {
+            return null;
+        }
+        if (broker == null) {
+            Counter rejected = rejections("broker");
+            broker = new ThreadPoolTaskExecutor();
+            broker.setCorePoolSize(1);
+            broker.setMaxPoolSize(1);
+            broker.setQueueCapacity(properties.getBroker().getQueueCapacity());
+            broker.setThreadNamePrefix("ws-broker-");
+            // Blocking, not caller-runs: running a message on the publisher would overtake the queue.
+            broker.setRejectedExecutionHandler((task, executor) -> {
+                rejected.increment();
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Broker channel executor is shut down");
+                }
+                try {
+                    executor.getQueue().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted waiting for the broker channel queue", e);
+                }
+            });
+            instrument("broker", broker);
+        }
+        return broker;
+    }
+
+    private Executor channelExecutor(String channel, WebSocketChannelProperties.Pool pool) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-" + channel + "-");
+            executor.setVirtualThreads(true);
+            if (pool.getMaxPoolSize() < Integer.MAX_VALUE) {
+                executor.setConcurrencyLimit(pool.getMaxPoolSize());
+            }
+            executor.setTaskDecorator(decorator(channel));
+            return executor;
+        }
+        Counter rejected = rejections(channel);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pool.resolvedCorePoolSize());
+        executor.setMaxPoolSize(Math.max(pool.resolvedCorePoolSize(), pool.getMaxPoolSize()));
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setKeepAliveSeconds((int) pool.getKeepAlive().toSeconds());
+        executor.setThreadNamePrefix("ws-" + channel + "-");
+        // Caller-runs pushes back on the socket reader (inbound) or the broker (outbound) instead of losing frames.
+        executor.setRejectedExecutionHandler((task, threadPool) -> {
+            rejected.increment();
+            if (!threadPool.isShutdown()) {
+                task.run();
+            }
+        });
+        instrument(channel, executor);
+        return executor;
+    }
+
+    private void instrument(String channel, ThreadPoolTaskExecutor executor) {
+        executor.setTaskDecorator(decorator(channel));
+        Gauge.builder("websocket.channel.queue.size", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Tasks waiting for a STOMP channel thread")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("websocket.channel.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .description("Threads in a STOMP channel pool")
+                .tag("channel", channel)
+                .register(meterRegistry);
+    }
+
+    private TaskDecorator decorator(String channel) {
+        AtomicInteger running = new AtomicInteger();
+        Gauge.builder("websocket.channel.active", running, AtomicInteger::get)
+                .description("STOMP channel tasks running")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Timer wait = Timer.builder("websocket.channel.task.wait")
+                .description("Time a STOMP channel task waits before it starts")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Timer run = Timer.builder("websocket.channel.task.run")
+                .description("Time a STOMP channel task runs")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        return task -> {
+            long submitted = System.nanoTime();
+            return () -> {
+                long started = System.nanoTime();
+                wait.record(started - submitted, TimeUnit.NANOSECONDS);
+                running.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    running.decrementAndGet();
+                    run.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            };
+        };
+    }
+
+    private Counter rejections(String channel) {
+        return Counter.builder("websocket.channel.rejected")
+                .description("STOMP channel tasks that found the pool and queue full")
+                .tag("channel", channel)
+                .register(meterRegistry);
+    }
+}
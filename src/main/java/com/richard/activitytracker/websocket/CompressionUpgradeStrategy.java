@@ -0,0 +1,159 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketEncodingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Decoder;
+import jakarta.websocket.Encoder;
+import jakarta.websocket.Extension;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies {@code activity.websocket.encoding.permessage-deflate} to the {@code /ws} handshake.
+ * The container negotiates its built-in permessage-deflate on its own, after Spring's extension
+ * filtering, so the decision is made in the endpoint configurator it consults. A session that
+ * negotiates it has every frame compressed, with the compression context kept between frames,
+ * which suits activity payloads that repeat the same field names and actions frame after frame.
+ */
+@Component
+public class CompressionUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final WebSocketEncodingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+
+    public CompressionUpgradeStrategy(WebSocketEncodingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+            ServerEndpointConfig endpointConfig, Map<String, String> pathParams) throws Exception {
+        super.upgradeHttpToWebSocket(request, response, new NegotiatingEndpointConfig(endpointConfig), pathParams);
+    }
+
+    private List<Extension> negotiate(List<Extension> negotiated) {
+        if (negotiated.stream().noneMatch(CompressionUpgradeStrategy::isDeflate)) {
+            count("not-offered");
+            return negotiated;
+        }
+        if (properties.isPermessageDeflate()) {
+            count("negotiated");
+            return negotiated;
+        }
+        count("disabled");
+        return negotiated.stream().filter(extension -> !isDeflate(extension)).toList();
+    }
+
+    private static boolean isDeflate(Extension extension) {
+        return PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName());
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, o -> Counter.builder("websocket.compression")
+                .description("WebSocket handshakes by permessage-deflate outcome")
+                .tag("outcome", o)
+                .register(meterRegistry)).increment();
+    }
+
+    /** Spring's endpoint config with a configurator that filters the negotiated extensions. */
+    private final class NegotiatingEndpointConfig implements ServerEndpointConfig {
+        private final ServerEndpointConfig delegate;
+        private final Configurator configurator;
+
+        private NegotiatingEndpointConfig(ServerEndpointConfig delegate) {
+            this.delegate = delegate;
+            this.configurator = new NegotiatingConfigurator(delegate.getConfigurator());
+        }
+
+        @Override
+        public Class<?> getEndpointClass() {
+            return delegate.getEndpointClass();
+        }
+
+        @Override
+        public String getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public List<String> getSubprotocols() {
+            return delegate.getSubprotocols();
+        }
+
+        @Override
+        public List<Extension> getExtensions() {
+            return delegate.getExtensions();
+        }
+
+        @Override
+        public Configurator getConfigurator() {
+            return configurator;
+        }
+
+        @Override
+        public List<Class<? extends Encoder>> getEncoders() {
+            return delegate.getEncoders();
+        }
+
+        @Override
+        public List<Class<? extends Decoder>> getDecoders() {
+            return delegate.getDecoders();
+        }
+
+        @Override
+        public Map<String, Object> getUserProperties() {
+            return delegate.getUserProperties();
+        }
+    }
+
+    private final class NegotiatingConfigurator extends ServerEndpointConfig.Configurator {
+        private final ServerEndpointConfig.Configurator delegate;
+
+        private NegotiatingConfigurator(ServerEndpointConfig.Configurator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+            return negotiate(delegate.getNegotiatedExtensions(installed, requested));
+        }
+
+        @Override
+        public ServerEndpointConfig.Configurator getContainerDefaultConfigurator() {
+            return delegate.getContainerDefaultConfigurator();
+        }
+
+        @Override
+        public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+            return delegate.getNegotiatedSubprotocol(supported, requested);
+        }
+
+        @Override
+        public boolean checkOrigin(String originHeaderValue) {
+            return delegate.checkOrigin(originHeaderValue);
+        }
+
+        @Override
+        public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+            delegate.modifyHandshake(sec, request, response);
+        }
+
+        @Override
+        public <T> T getEndpointInstance(Class<T> endpointClass) throws InstantiationException {
+            return delegate.getEndpointInstance(endpointClass);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketAdmissionProperties;
+import com.richard.activitytracker.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket admission for WebSocket handshakes. Rejected clients get a 503 with a Retry-After
+ * drawn uniformly from the time it takes to admit everyone rejected in the last second, so a
+ * reconnect wave comes back spread out instead of as a second wave.
+ */
+@Slf4j
+@Component
+public class ConnectAdmissionInterceptor implements HandshakeInterceptor {
+
+    private final WebSocketAdmissionProperties properties;
+    private final TokenBucket bucket;
+    private final Counter admitted;
+    private final Counter rejected;
+    private final AtomicLong rejectionWindow = new AtomicLong();
+    private final AtomicLong rejectionsInWindow = new AtomicLong();
+
+    public ConnectAdmissionInterceptor(WebSocketAdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.bucket = new TokenBucket(properties.getRate(), properties.getBurst());
+        this.admitted = Counter.builder("websocket.admission")
+                .description("WebSocket handshakes by admission outcome")
+                .tag("outcome", "admitted")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("websocket.admission")
+                .description("WebSocket handshakes by admission outcome")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!properties.isEnabled() || bucket.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        rejected.increment();
+        long retryAfter = retryAfterSeconds();
+        log.debug("Rejected WebSocket handshake from {}, retry after {}s", request.getRemoteAddress(), retryAfter);
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        // No-op
+    }
+
+    private long retryAfterSeconds() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long previous = rejectionWindow.getAndSet(second);
+        long backlog = previous == second ? rejectionsInWindow.incrementAndGet() : resetWindow();
+        long earliest = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(bucket.nanosUntilAvailable() + 999_999_999));
+        long spread = Math.max(earliest, (long) Math.ceil(backlog / properties.getRate()));
+        long latest = Math.min(Math.max(1, properties.getMaxRetryAfter().toSeconds()), spread);
+        return earliest >= latest ? latest : ThreadLocalRandom.current().nextLong(earliest, latest + 1);
+    }
+
+    private long resetWindow() {
+        rejectionsInWindow.set(1);
+        return 1;
+    }
+}
@@ -0,0 +1,144 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketOutboundProperties;
+import com.richard.activitytracker.dto.WebSocketSessionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wraps every WebSocket session in a {@link BoundedOutboundSession} before the STOMP handler sees
+ * it, and keeps the open ones for metrics and the admin session listing.
+ */
+@Slf4j
+@Component
+public class OutboundSessionRegistry implements WebSocketHandlerDecoratorFactory {
+
+    private final WebSocketOutboundProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, BoundedOutboundSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Counter> drops = new ConcurrentHashMap<>();
+    private final Map<String, Counter> disconnects = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Timer sendTimer;
+
+    public OutboundSessionRegistry(WebSocketOutboundProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.sendTimer = Timer.builder("websocket.outbound.send")
+                .description("Time to write one frame to a WebSocket client")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.sessions", sessions, Map::size)
+                .description("Open WebSocket sessions")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.queued.frames", sessions,
+                        s -> s.values().stream().mapToLong(BoundedOutboundSession::getQueuedFrames).sum())
+                .description("Frames waiting to be written, across sessions")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.queued.bytes", sessions,
+                        s -> s.values().stream().mapToLong(BoundedOutboundSession::getQueuedBytes).sum())
+                .description("Bytes waiting to be written, across sessions")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                BoundedOutboundSession bounded = new BoundedOutboundSession(session, OutboundSessionRegistry.this);
+                sessions.put(session.getId(), bounded);
+                super.afterConnectionEstablished(bounded);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                BoundedOutboundSession bounded = sessions.remove(session.getId());
+                if (bounded != null) {
+                    bounded.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public List<WebSocketSessionStatus> getSessions(int limit) {
+        return sessions.values().stream()
+                .map(BoundedOutboundSession::toStatus)
+                .sorted(Comparator.comparingLong(WebSocketSessionStatus::getQueuedBytes).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public boolean isOpen(String sessionId) {
+        BoundedOutboundSession session = sessions.get(sessionId);
+        return session != null && session.isOpen();
+    }
+
+    /** Closes an open session with {@code status}; false if it is not open on this node. */
+    public boolean close(String sessionId, CloseStatus status) {
+        BoundedOutboundSession session = sessions.get(sessionId);
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        // Closing writes a close frame, which may wait behind a slow write; keep it off the caller's thread.
+        senders.execute(() -> {
+            try {
+                session.close(status);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Failed to close WebSocket session {}: {}", sessionId, e.getMessage());
+            }
+        });
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    WebSocketOutboundProperties properties() {
+        return properties;
+    }
+
+    void execute(Runnable task) {
+        senders.execute(task);
+    }
+
+    Timer sendTimer() {
+        return sendTimer;
+    }
+
+    void dropped(int frames) {
+        String policy = properties.getOverflow().name().toLowerCase();
+        drops.computeIfAbsent(policy, p -> Counter.builder("websocket.outbound.dropped")
+                .description("Frames dropped or conflated for slow WebSocket clients")
+                .tag("policy", p)
+                .register(meterRegistry)).increment(frames);
+    }
+
+    void disconnected(String sessionId, String reason) {
+        log.warn("Disconnecting slow WebSocket session {}: {} limit exceeded", sessionId, reason);
+        disconnects.computeIfAbsent(reason, r -> Counter.builder("websocket.outbound.disconnects")
+                .description("WebSocket sessions closed for falling behind")
+                .tag("reason", r)
+                .register(meterRegistry)).increment();
+    }
+}
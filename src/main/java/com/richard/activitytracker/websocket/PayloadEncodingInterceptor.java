@@ -0,0 +1,165 @@
+package com.richard.activitytracker.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.richard.activitytracker.config.WebSocketEncodingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets a client trade JSON text frames for CBOR in binary frames by sending
+ * {@code payload-encoding:cbor} on CONNECT. JSON MESSAGE payloads bound for such a session are
+ * transcoded on the client outbound channel and marked {@code content-type:application/cbor};
+ * the client inbound channel only gets {@link #connectNegotiation()}, so frames a client sends are
+ * never transcoded;
+ * {@link BoundedOutboundSession} then writes the session's frames as binary. The broker hands every
+ * subscriber the same payload array, so the CBOR form is cached by identity and produced once per
+ * broadcast, not once per session.
+ */
+@Slf4j
+@Component
+public class PayloadEncodingInterceptor implements ChannelInterceptor {
+    public static final String ENCODING_HEADER = "payload-encoding";
+    public static final String CBOR = "cbor";
+    public static final MimeType APPLICATION_CBOR = MimeType.valueOf("application/cbor");
+    static final String BINARY_ATTRIBUTE = PayloadEncodingInterceptor.class.getName() + ".binary";
+
+    private final WebSocketEncodingProperties properties;
+    private final JsonFactory jsonFactory;
+    private final CBORFactory cborFactory = new CBORFactory();
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final Map<PayloadKey, byte[]> transcoded;
+    private final Counter transcodes;
+
+    public PayloadEncodingInterceptor(WebSocketEncodingProperties properties, ObjectMapper objectMapper,
+                                      MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jsonFactory = objectMapper.getFactory();
+        int cacheSize = properties.getTranscodeCacheSize();
+        this.transcoded = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PayloadKey, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.transcodes = Counter.builder("websocket.payload.transcoded")
+                .description("Distinct JSON payloads transcoded to CBOR for binary sessions")
+                .register(meterRegistry);
+        Gauge.builder("websocket.payload.binary.sessions", binarySessions, Set::size)
+                .description("WebSocket sessions receiving CBOR payloads")
+                .register(meterRegistry);
+    }
+
+    private final ChannelInterceptor connectNegotiation = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.CONNECT) {
+                negotiate(StompHeaderAccessor.wrap(message));
+            }
+            return message;
+        }
+    };
+
+    /** For the client inbound channel: records the encoding asked for on CONNECT and changes nothing. */
+    public ChannelInterceptor connectNegotiation() {
+        return connectNegotiation;
+    }
+
+    /** For the client outbound channel: encodes MESSAGE frames for the sessions that asked for CBOR. */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        return encode(message);
+    }
+
+    /** The message as the session it is addressed to wants it; unchanged for JSON sessions. */
+    public Message<?> encode(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null || !binarySessions.contains(sessionId)
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] json) || json.length == 0) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getContentType() == null || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(accessor.getContentType())) {
+            return message;
+        }
+        byte[] cbor = transcoded.computeIfAbsent(new PayloadKey(json), key -> toCbor(json));
+        if (cbor == null) {
+            return message;
+        }
+        accessor.setContentType(APPLICATION_CBOR);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        binarySessions.remove(event.getSessionId());
+    }
+
+    private void negotiate(StompHeaderAccessor accessor) {
+        String requested = accessor.getFirstNativeHeader(ENCODING_HEADER);
+        if (requested == null || !properties.isBinary() || accessor.getSessionId() == null) {
+            return;
+        }
+        if (!CBOR.equalsIgnoreCase(requested.trim())) {
+            log.debug("Session {} asked for unsupported payload encoding {}; sending JSON", accessor.getSessionId(), requested);
+            return;
+        }
+        binarySessions.add(accessor.getSessionId());
+        if (accessor.getSessionAttributes() != null) {
+            accessor.getSessionAttributes().put(BINARY_ATTRIBUTE, Boolean.TRUE);
+        }
+    }
+
+    private byte[] toCbor(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = cborFactory.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (IOException e) {
+            log.warn("Failed to transcode payload to CBOR, sending JSON: {}", e.getMessage());
+            return null;
+        }
+        transcodes.increment();
+        return out.toByteArray();
+    }
+
+    /** Payload arrays compared by identity: equal content in a different array is a different broadcast. */
+    private record PayloadKey(byte[] payload) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PayloadKey key && key.payload == payload;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(payload);
+        }
+    }
+}
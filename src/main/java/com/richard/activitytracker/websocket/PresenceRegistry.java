@@ -0,0 +1,193 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketPresenceProperties;
+import com.richard.activitytracker.dto.PresenceEvent;
+import com.richard.activitytracker.dto.PresenceResponse;
+import com.richard.activitytracker.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Open STOMP sessions by user, for "is X online" and per-user session counts without an external
+ * store. Each user maps to an immutable snapshot replaced atomically, so reads never lock; the
+ * first session in publishes {@code ONLINE} and the last one out {@code OFFLINE} on the presence
+ * topic. Presence is per node.
+ *
+ * <p>Sessions are added on {@code SessionConnectedEvent} and removed on {@code SessionDisconnectEvent}.
+ * The connected event is raised when CONNECTED goes out on the outbound pool, so it can arrive
+ * after the disconnect of a session that closed straight away; those entries, and any other whose
+ * disconnect never came, are aged out by a timing wheel. Inbound frames mark a session active, and
+ * an idle one is only dropped once its socket is no longer open, since a listen-only client is
+ * legitimately silent.
+ */
+@Slf4j
+@Component
+public class PresenceRegistry implements ChannelInterceptor {
+
+    private final WebSocketPresenceProperties properties;
+    private final OutboundSessionRegistry outboundSessionRegistry;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConcurrentMap<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UserPresence> users = new ConcurrentHashMap<>();
+    private final TimingWheel<String> expiry;
+    private final Counter expired;
+
+    public PresenceRegistry(
+            WebSocketPresenceProperties properties,
+            OutboundSessionRegistry outboundSessionRegistry,
+            @Lazy SimpMessagingTemplate messagingTemplate,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.outboundSessionRegistry = outboundSessionRegistry;
+        this.messagingTemplate = messagingTemplate;
+        this.expiry = new TimingWheel<>(properties.getTick(), properties.getWheelSlots());
+        this.expired = Counter.builder("websocket.presence.expired")
+                .description("STOMP sessions dropped from presence without a disconnect event")
+                .register(meterRegistry);
+        Gauge.builder("websocket.presence.users", users, Map::size)
+                .description("Users with at least one open STOMP session")
+                .register(meterRegistry);
+        Gauge.builder("websocket.presence.sessions", sessions, Map::size)
+                .description("STOMP sessions tracked for presence")
+                .register(meterRegistry);
+    }
+
+    public void connected(String sessionId, String user) {
+        if (sessionId == null || user == null || sessions.putIfAbsent(sessionId, new SessionEntry(user)) != null) {
+            return;
+        }
+        expiry.schedule(sessionId, properties.getIdleTimeout());
+        boolean cameOnline = users.compute(user, (u, current) -> current == null
+                ? new UserPresence(Set.of(sessionId), LocalDateTime.now())
+                : current.with(sessionId)).sessionIds().size() == 1;
+        if (cameOnline) {
+            publish(user, PresenceEvent.Status.ONLINE);
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        SessionEntry entry = sessionId == null ? null : sessions.remove(sessionId);
+        if (entry == null) {
+            return;
+        }
+        boolean wentOffline = users.computeIfPresent(entry.user(), (u, current) -> current.without(sessionId)) == null;
+        if (wentOffline) {
+            publish(entry.user(), PresenceEvent.Status.OFFLINE);
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionEntry entry = sessionId == null ? null : sessions.get(sessionId);
+        if (entry != null) {
+            entry.lastActiveAt = System.nanoTime();
+        }
+        return message;
+    }
+
+    public boolean isOnline(String user) {
+        return users.containsKey(user);
+    }
+
+    public List<PresenceResponse> getPresence(Collection<String> requested) {
+        return requested.stream()
+                .distinct()
+                .map(user -> {
+                    UserPresence presence = users.get(user);
+                    return PresenceResponse.builder()
+                            .user(user)
+                            .online(presence != null)
+                            .sessions(presence == null ? 0 : presence.sessionIds().size())
+                            .onlineSince(presence == null ? null : presence.since())
+                            .build();
+                })
+                .toList();
+    }
+
+    @Scheduled(fixedRateString = "${activity.websocket.presence.tick:1s}")
+    public void expireIdleSessions() {
+        expiry.advance(this::checkIdle);
+    }
+
+    private void checkIdle(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return;
+        }
+        long idleNanos = System.nanoTime() - entry.lastActiveAt;
+        Duration timeout = properties.getIdleTimeout();
+        if (idleNanos < timeout.toNanos()) {
+            // Touched since it was scheduled: rather than reschedule on every frame, push it back once here.
+            expiry.schedule(sessionId, timeout.minusNanos(idleNanos));
+        } else if (outboundSessionRegistry.isOpen(sessionId)) {
+            expiry.schedule(sessionId, timeout);
+        } else {
+            log.debug("Expiring presence for STOMP session {} of {} without a disconnect", sessionId, entry.user());
+            expired.increment();
+            disconnected(sessionId);
+        }
+    }
+
+    private void publish(String user, PresenceEvent.Status status) {
+        try {
+            messagingTemplate.convertAndSend(properties.getTopic(), PresenceEvent.builder()
+                    .user(user)
+                    .status(status)
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        } catch (MessagingException e) {
+            log.warn("Failed to publish {} presence for {}: {}", status, user, e.getMessage());
+        }
+    }
+
+    private static final class SessionEntry {
+        private final String user;
+        private volatile long lastActiveAt = System.nanoTime();
+
+        private SessionEntry(String user) {
+            this.user = user;
+        }
+
+        String user() {
+            return user;
+        }
+    }
+
+    private record UserPresence(Set<String> sessionIds, LocalDateTime since) {
+
+        UserPresence with(String sessionId) {
+            Set<String> ids = new HashSet<>(sessionIds);
+            ids.add(sessionId);
+            return new UserPresence(Set.copyOf(ids), since);
+        }
+
+        /** Null once the last session is gone, which removes the user from the map. */
+        UserPresence without(String sessionId) {
+            Set<String> ids = new HashSet<>(sessionIds);
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : new UserPresence(Set.copyOf(ids), since);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketAuthProperties;
+import com.richard.activitytracker.security.TokenDenylist;
+import com.richard.activitytracker.util.TimingWheel;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Closes STOMP sessions whose token runs out while they are connected. A session is authenticated
+ * once, at handshake or CONNECT, and its frames are not re-validated; instead each session is
+ * scheduled on a timing wheel for when its token expires, and meanwhile every
+ * {@code revocation-check-interval} to see whether the token was revoked.
+ */
+@Slf4j
+@Component
+public class SessionTokenExpiry {
+    static final CloseStatus TOKEN_EXPIRED = CloseStatus.POLICY_VIOLATION.withReason("Token expired");
+    static final CloseStatus TOKEN_REVOKED = CloseStatus.POLICY_VIOLATION.withReason("Token revoked");
+
+    private final WebSocketAuthProperties properties;
+    private final TokenDenylist tokenDenylist;
+    private final OutboundSessionRegistry outboundSessionRegistry;
+    private final ConcurrentMap<String, TokenLease> sessions = new ConcurrentHashMap<>();
+    private final TimingWheel<String> checks;
+    private final Counter expired;
+    private final Counter revoked;
+
+    public SessionTokenExpiry(
+            WebSocketAuthProperties properties,
+            TokenDenylist tokenDenylist,
+            OutboundSessionRegistry outboundSessionRegistry,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tokenDenylist = tokenDenylist;
+        this.outboundSessionRegistry = outboundSessionRegistry;
+        this.checks = new TimingWheel<>(properties.getTick(), properties.getWheelSlots());
+        this.expired = closed(meterRegistry, "expired");
+        this.revoked = closed(meterRegistry, "revoked");
+    }
+
+    /** Starts watching the token a session authenticated with. */
+    public void track(String sessionId, Claims claims) {
+        if (sessionId == null || claims.getExpiration() == null) {
+            return;
+        }
+        TokenLease lease = new TokenLease(claims.getSubject(), claims.getId(), claims.getExpiration().getTime());
+        if (sessions.put(sessionId, lease) == null) {
+            checks.schedule(sessionId, nextCheck(lease));
+        }
+    }
+
+    public void untrack(String sessionId) {
+        if (sessionId != null) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${activity.websocket.auth.tick:1s}")
+    public void checkSessions() {
+        checks.advance(this::check);
+    }
+
+    private void check(String sessionId) {
+        TokenLease lease = sessions.get(sessionId);
+        if (lease == null) {
+            return;
+        }
+        if (lease.expiresAt() <= System.currentTimeMillis()) {
+            close(sessionId, lease, TOKEN_EXPIRED, expired);
+        } else if (tokenDenylist.isRevoked(lease.tokenId())) {
+            close(sessionId, lease, TOKEN_REVOKED, revoked);
+        } else {
+            checks.schedule(sessionId, nextCheck(lease));
+        }
+    }
+
+    private void close(String sessionId, TokenLease lease, CloseStatus status, Counter counter) {
+        sessions.remove(sessionId, lease);
+        log.info("Closing WebSocket session {} of {}: {}", sessionId, lease.user(), status.getReason());
+        counter.increment();
+        outboundSessionRegistry.close(sessionId, status);
+    }
+
+    private Duration nextCheck(TokenLease lease) {
+        Duration untilExpiry = Duration.ofMillis(lease.expiresAt() - System.currentTimeMillis());
+        return untilExpiry.compareTo(properties.getRevocationCheckInterval()) < 0
+                ? untilExpiry
+                : properties.getRevocationCheckInterval();
+    }
+
+    private static Counter closed(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("websocket.auth.closed")
+                .description("STOMP sessions closed because their token expired or was revoked")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private record TokenLease(String user, String tokenId, long expiresAt) {
+    }
+}
@@ -0,0 +1,7 @@
+CREATE TABLE user_last_activity (
+    user_id BIGINT PRIMARY KEY,
+    activity_id BIGINT NOT NULL,
+    action VARCHAR(255) NOT NULL,
+    last_seen_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id)
+);
@@ -0,0 +1,6 @@
+CREATE TABLE retention_checkpoint (
+    policy_key VARCHAR(255) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    rows_purged BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,6 @@
+ALTER TABLE retention_checkpoint ADD COLUMN locked_by VARCHAR(255);
+ALTER TABLE retention_checkpoint ADD COLUMN locked_until TIMESTAMP;
+
+-- Lease row: the node named in locked_by runs the purge until locked_until.
+INSERT INTO retention_checkpoint (policy_key, last_id, rows_purged, updated_at)
+VALUES ('lock', 0, 0, CURRENT_TIMESTAMP);
@@ -1,13 +1,31 @@
 package com.richard.activitytracker;
 
+import com.richard.activitytracker.config.WebSocketChannelInterceptor;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.support.AbstractMessageChannel;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 
 @SpringBootTest
 class ActivityTrackerApplicationTests {
 
+    @Autowired
+    @Qualifier("clientInboundChannel")
+    private AbstractMessageChannel clientInboundChannel;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void clientInboundChannel_AuthenticatesBeforeAnyOtherInterceptor() {
+        // The broker adds its own interceptors; among ours, authentication must run first.
+        assertInstanceOf(WebSocketChannelInterceptor.class, clientInboundChannel.getInterceptors().stream()
+                .filter(interceptor -> interceptor.getClass().getName().startsWith("com.richard."))
+                .findFirst().orElseThrow());
+    }
+
 }
@@ -0,0 +1,54 @@
+package com.richard.activitytracker.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowTopKTest {
+
+    @Test
+    void top_ReturnsMostFrequentKeysFirst() {
+        SlidingWindowTopK<String> topK = new SlidingWindowTopK<>(Duration.ofMinutes(1), 6, 16);
+        for (int i = 0; i < 5; i++) topK.record("login", 1_000);
+        for (int i = 0; i < 3; i++) topK.record("view", 1_000);
+        topK.record("logout", 1_000);
+
+        List<SlidingWindowTopK.HeavyHitter<String>> top = topK.top(2, 1_000);
+
+        assertEquals(2, top.size());
+        assertEquals("login", top.get(0).key());
+        assertEquals(5, top.get(0).count());
+        assertEquals("view", top.get(1).key());
+    }
+
+    @Test
+    void top_DropsBucketsThatSlidOutOfTheWindow() {
+        SlidingWindowTopK<String> topK = new SlidingWindowTopK<>(Duration.ofMinutes(1), 6, 16);
+        topK.record("old", 0);
+        topK.record("recent", 55_000);
+
+        assertEquals(2, topK.top(10, 55_000).size());
+        List<SlidingWindowTopK.HeavyHitter<String>> later = topK.top(10, 65_000);
+        assertEquals(1, later.size());
+        assertEquals("recent", later.get(0).key());
+    }
+
+    @Test
+    void record_EvictsMinimumWhenCapacityIsReached() {
+        SlidingWindowTopK<String> topK = new SlidingWindowTopK<>(Duration.ofMinutes(1), 1, 2);
+        topK.record("a", 0);
+        topK.record("a", 0);
+        topK.record("b", 0);
+        topK.record("c", 0);
+
+        List<SlidingWindowTopK.HeavyHitter<String>> top = topK.top(10, 0);
+        assertEquals(2, top.size());
+        assertEquals("a", top.get(0).key());
+        assertEquals("c", top.get(1).key());
+        assertEquals(2, top.get(1).count());
+        assertEquals(1, top.get(1).error());
+    }
+}
@@ -0,0 +1,84 @@
+package com.richard.activitytracker.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.CompactActivityPage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode time per activity page for the JSON default and the compact binary encodings.
+ * Serialized sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivityPageEncodingBenchmark {
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private ObjectMapper smile;
+    private Page<ActivityResponse> page;
+    private CompactActivityPage compactPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        json = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        cbor = new CBORMapper();
+        smile = new SmileMapper();
+
+        List<ActivityResponse> activities = new ArrayList<>(pageSize);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < pageSize; i++) {
+            activities.add(ActivityResponse.builder()
+                    .id(10_000L + i)
+                    .userId((long) (i % 7))
+                    .username("user" + (i % 7))
+                    .action(i % 3 == 0 ? "LOGIN" : "VIEW_DASHBOARD")
+                    .details("Opened dashboard widget " + i + " from the main navigation")
+                    .timestamp(now.minusSeconds(i))
+                    .build());
+        }
+        page = new PageImpl<>(activities, PageRequest.of(0, pageSize, Sort.by("timestamp").descending()), 1_000);
+        compactPage = CompactActivityPage.from(page);
+
+        System.out.printf("%nBytes per page (%d items): json=%d cbor=%d smile=%d%n", pageSize,
+                json.writeValueAsBytes(page).length,
+                cbor.writeValueAsBytes(compactPage).length,
+                smile.writeValueAsBytes(compactPage).length);
+    }
+
+    @Benchmark
+    public byte[] jsonPage() throws Exception {
+        return json.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] cborCompactPage() throws Exception {
+        return cbor.writeValueAsBytes(CompactActivityPage.from(page));
+    }
+
+    @Benchmark
+    public byte[] smileCompactPage() throws Exception {
+        return smile.writeValueAsBytes(CompactActivityPage.from(page));
+    }
+}
@@ -0,0 +1,83 @@
+package com.richard.activitytracker.benchmark;
+
+import com.richard.activitytracker.security.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checking cost per authenticated request. {@code previousPath} repeats what the filter did
+ * before: three parses and signature checks, each with a new parser and a freshly decoded key.
+ * {@code verifyUncached} is one parse with the prebuilt parser, as for a token seen for the first
+ * time, and {@code verifyCached} is the steady state for a client reusing its token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET =
+            "51015d92267ac92bbeb60b3a6306a613bdfaa48e9bc63300ff8efc5b1457675ea318da25f7bcec00a1a2d7b85f92ba52419085e466718d90542be71aa7ce7fe100";
+
+    private final UserDetails user = new User("alice@example.com", "x", List.of());
+    private JwtService cached;
+    private JwtService uncached;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cached = jwtService(10_000);
+        uncached = jwtService(0);
+        token = cached.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean previousPath() {
+        String username = parse().getSubject();
+        return username.equals(user.getUsername())
+                && parse().getSubject().equals(user.getUsername())
+                && parse().getExpiration().after(new Date());
+    }
+
+    @Benchmark
+    public boolean verifyUncached() {
+        return uncached.isTokenValid(uncached.verify(token), user);
+    }
+
+    @Benchmark
+    public boolean verifyCached() {
+        return cached.isTokenValid(cached.verify(token), user);
+    }
+
+    private Claims parse() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static JwtService jwtService(int cacheSize) throws Exception {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", cacheSize);
+        Method init = JwtService.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(jwtService);
+        return jwtService;
+    }
+}
@@ -0,0 +1,143 @@
+package com.richard.activitytracker.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.richard.activitytracker.dto.ActivityResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.TextMessage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of publishing one activity (or one batch) through the simple broker to every
+ * subscribed session, including the per-session STOMP framing the WebSocket handler does.
+ * {@code convertAndSend} converts the payload once per destination; the serialize-once path
+ * encodes it once and shares the bytes. One destination carries all sessions; the others model
+ * the filtered per-user and per-action topics with a handful of subscribers each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StompFanOutBenchmark {
+
+    @Param({"100", "10000"})
+    private int sessions;
+
+    @Param({"1", "3"})
+    private int destinationCount;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private SimpMessagingTemplate template;
+    private ObjectMapper objectMapper;
+    private List<String> destinations;
+    private Object payload;
+    private long framedBytes;
+    private long messageIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        StompEncoder encoder = new StompEncoder();
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        // What StompSubProtocolHandler does for every MESSAGE routed to a session.
+        clientOutbound.subscribe(message -> {
+            SimpMessageHeaderAccessor routed = SimpMessageHeaderAccessor.wrap(message);
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setDestination(routed.getDestination());
+            accessor.setSubscriptionId(routed.getSubscriptionId());
+            accessor.setContentType(routed.getContentType());
+            accessor.setMessageId(routed.getSessionId() + "-" + messageIds++);
+            byte[] frame = encoder.encode(accessor.getMessageHeaders(), (byte[]) message.getPayload());
+            framedBytes += new TextMessage(frame).getPayloadLength();
+        });
+
+        SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+
+        destinations = new ArrayList<>();
+        destinations.add("/topic/activities");
+        for (int i = 1; i < destinationCount; i++) {
+            destinations.add("/topic/activities/filtered-" + i);
+        }
+        for (int s = 0; s < sessions; s++) {
+            subscribe(broker, "session-" + s, destinations.get(0));
+        }
+        for (int d = 1; d < destinationCount; d++) {
+            for (int s = 0; s < 5; s++) {
+                subscribe(broker, "session-" + s, destinations.get(d));
+            }
+        }
+
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(converter);
+
+        List<ActivityResponse> activities = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            activities.add(ActivityResponse.builder()
+                    .id(10_000L + i)
+                    .userId((long) (i % 7))
+                    .username("user" + (i % 7))
+                    .action("VIEW_DASHBOARD")
+                    .details("Opened dashboard widget " + i + " from the main navigation")
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+        payload = batchSize == 1 ? activities.get(0) : activities;
+    }
+
+    @Benchmark
+    public long convertAndSendPerDestination() {
+        for (String destination : destinations) {
+            template.convertAndSend(destination, payload);
+        }
+        return framedBytes;
+    }
+
+    @Benchmark
+    public long serializeOnce() throws Exception {
+        byte[] body = objectMapper.writeValueAsBytes(payload);
+        for (String destination : destinations) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setLeaveMutable(true);
+            template.send(destination, MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+        }
+        return framedBytes;
+    }
+
+    private static void subscribe(SimpleBrokerMessageHandler broker, String sessionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-" + destination.hashCode());
+        accessor.setDestination(destination);
+        Message<byte[]> subscribe = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        broker.handleMessage(subscribe);
+    }
+}
@@ -0,0 +1,140 @@
+package com.richard.activitytracker.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.richard.activitytracker.dto.ActivityResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Bytes on the wire and CPU per delivered activity when one activity fans out to {@value #SESSIONS}
+ * sessions, for JSON text frames and CBOR binary frames, with and without permessage-deflate. The
+ * payload is encoded once per activity; STOMP framing and compression happen per session, the
+ * latter with a deflater per session that keeps its window between frames (context takeover, as
+ * the container negotiates it) and drops the 4-byte sync-flush tail the extension strips.
+ * Time is reported per delivered message; bytes per message on the wire, WebSocket frame header
+ * included, is {@code wireBytes} over {@code messages}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(WireEncodingBenchmark.SESSIONS)
+public class WireEncodingBenchmark {
+    static final int SESSIONS = 100;
+    private static final MimeType APPLICATION_CBOR = MimeType.valueOf("application/cbor");
+    private static final String[] ACTIONS = {"LOGIN", "VIEW_DASHBOARD", "UPDATE_PROFILE", "EXPORT_REPORT", "LOGOUT"};
+
+    @Param({"json", "cbor"})
+    private String encoding;
+
+    @Param({"false", "true"})
+    private boolean deflate;
+
+    private final StompEncoder encoder = new StompEncoder();
+    private final CBORFactory cborFactory = new CBORFactory();
+    private final byte[] deflated = new byte[8 * 1024];
+    private ObjectMapper objectMapper;
+    private Deflater[] deflaters;
+    private long activityIds;
+    private long messageIds;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Wire {
+        public long wireBytes;
+        public long messages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+            messages = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        deflaters = new Deflater[SESSIONS];
+        for (int s = 0; s < SESSIONS; s++) {
+            deflaters[s] = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (Deflater deflater : deflaters) {
+            deflater.end();
+        }
+    }
+
+    @Benchmark
+    public long fanOut(Wire wire) throws Exception {
+        long id = activityIds++;
+        ActivityResponse activity = ActivityResponse.builder()
+                .id(id)
+                .userId(id % 97)
+                .username("user" + (id % 97))
+                .action(ACTIONS[(int) (id % ACTIONS.length)])
+                .details("Opened dashboard widget " + (id % 13) + " from the main navigation after filtering by team " + (id % 7))
+                .timestamp(LocalDateTime.now())
+                .sequence(id)
+                .stream("2c9f1e7a")
+                .build();
+        byte[] body = objectMapper.writeValueAsBytes(activity);
+        MimeType contentType = MimeTypeUtils.APPLICATION_JSON;
+        if (encoding.equals("cbor")) {
+            body = toCbor(body);
+            contentType = APPLICATION_CBOR;
+        }
+        for (int s = 0; s < SESSIONS; s++) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setDestination("/topic/activities");
+            accessor.setSubscriptionId("sub-0");
+            accessor.setContentType(contentType);
+            accessor.setMessageId("session-" + s + "-" + messageIds++);
+            byte[] frame = encoder.encode(accessor.getMessageHeaders(), body);
+            int payloadLength = deflate ? deflate(deflaters[s], frame) : frame.length;
+            wire.wireBytes += frameHeaderLength(payloadLength) + payloadLength;
+            wire.messages++;
+        }
+        return wire.wireBytes;
+    }
+
+    private byte[] toCbor(byte[] json) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = objectMapper.getFactory().createParser(json);
+             JsonGenerator generator = cborFactory.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return out.toByteArray();
+    }
+
+    private int deflate(Deflater deflater, byte[] frame) {
+        deflater.setInput(frame);
+        int length = deflater.deflate(deflated, 0, deflated.length, Deflater.SYNC_FLUSH);
+        return length - 4;
+    }
+
+    /** Server frames are unmasked: 2 bytes, plus 2 or 8 for the extended payload length. */
+    private static int frameHeaderLength(int payloadLength) {
+        return payloadLength < 126 ? 2 : payloadLength < 65536 ? 4 : 10;
+    }
+}
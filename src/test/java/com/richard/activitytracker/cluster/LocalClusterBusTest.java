@@ -0,0 +1,64 @@
+package com.richard.activitytracker.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalClusterBusTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void publish_DeliversToPeersButNotBackToSender() {
+        SimpleMeterRegistry registryA = new SimpleMeterRegistry();
+        SimpleMeterRegistry registryB = new SimpleMeterRegistry();
+        LocalClusterBus nodeA = new LocalClusterBus("node-a", objectMapper, registryA);
+        LocalClusterBus nodeB = new LocalClusterBus("node-b", objectMapper, registryB);
+        List<Ping> receivedByA = new CopyOnWriteArrayList<>();
+        List<Ping> receivedByB = new CopyOnWriteArrayList<>();
+        nodeA.subscribe("test-echo", Ping.class, receivedByA::add);
+        nodeB.subscribe("test-echo", Ping.class, receivedByB::add);
+
+        nodeA.publish("test-echo", new Ping(42L, "hello"));
+
+        assertTrue(receivedByA.isEmpty());
+        assertEquals(List.of(new Ping(42L, "hello")), receivedByB);
+        assertEquals(1, registryB.get("cluster.bus.propagation").tag("channel", "test-echo").timer().count());
+        assertEquals(1.0, registryA.get("cluster.bus.published").tag("channel", "test-echo").counter().count());
+    }
+
+    @Test
+    void close_StopsDeliveryToTheClosedNodeOnly() {
+        LocalClusterBus nodeA = new LocalClusterBus("node-a", objectMapper, new SimpleMeterRegistry());
+        LocalClusterBus nodeB = new LocalClusterBus("node-b", objectMapper, new SimpleMeterRegistry());
+        LocalClusterBus nodeC = new LocalClusterBus("node-c", objectMapper, new SimpleMeterRegistry());
+        List<Ping> receivedByB = new CopyOnWriteArrayList<>();
+        List<Ping> receivedByC = new CopyOnWriteArrayList<>();
+        nodeB.subscribe("test-close", Ping.class, receivedByB::add);
+        nodeC.subscribe("test-close", Ping.class, receivedByC::add);
+
+        nodeB.close();
+        nodeA.publish("test-close", new Ping(7L, "after close"));
+
+        assertTrue(receivedByB.isEmpty());
+        assertEquals(List.of(new Ping(7L, "after close")), receivedByC);
+        nodeC.close();
+    }
+
+    @Test
+    void constructor_BlankNodeId_GeneratesUniqueIds() {
+        LocalClusterBus first = new LocalClusterBus("", objectMapper, new SimpleMeterRegistry());
+        LocalClusterBus second = new LocalClusterBus(null, objectMapper, new SimpleMeterRegistry());
+
+        assertFalse(first.nodeId().isBlank());
+        assertNotEquals(first.nodeId(), second.nodeId());
+    }
+
+    record Ping(Long id, String text) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.richard.activitytracker.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConcurrencyLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final DatabaseConcurrencyLimitFilter filter =
+            new DatabaseConcurrencyLimitFilter(1, 50, objectMapper, meterRegistry);
+
+    @Test
+    void doFilter_Rejects503WithRetryAfterWhileEveryPermitIsHeld() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> filter(request("/api/activities"), (req, res) -> {
+            entered.countDown();
+            await(release);
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = filter(request("/api/activities"), new MockFilterChain());
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals("/api/activities", objectMapper.readTree(rejected.getContentAsString()).get("path").asText());
+        assertEquals(1.0, meterRegistry.get("http.server.requests.db.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("http.server.requests.db.inflight").gauge().value());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertEquals(200, filter(request("/api/activities"), new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void doFilter_ReleasesThePermitWhenTheChainThrows() throws Exception {
+        FilterChain failing = (req, res) -> {
+            throw new ServletException("query failed");
+        };
+
+        assertThrows(ServletException.class,
+                () -> filter.doFilter(request("/api/activities"), new MockHttpServletResponse(), failing));
+
+        assertEquals(0.0, meterRegistry.get("http.server.requests.db.inflight").gauge().value());
+        assertEquals(200, filter(request("/api/activities"), new MockFilterChain()).getStatus());
+        assertEquals(0.0, meterRegistry.get("http.server.requests.db.rejected").counter().count());
+    }
+
+    @Test
+    void doFilter_LeavesNonApiRequestsUnlimited() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> filter(request("/api/activities"), (req, res) -> {
+            entered.countDown();
+            await(release);
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertEquals(200, filter(request("/actuator/health"), new MockFilterChain()).getStatus());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request, FilterChain chain) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
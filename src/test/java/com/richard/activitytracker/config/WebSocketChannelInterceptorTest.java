@@ -0,0 +1,126 @@
+package com.richard.activitytracker.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.model.User;
+import com.richard.activitytracker.security.AuthenticatedUser;
+import com.richard.activitytracker.security.JwtAuthenticationFilter;
+import com.richard.activitytracker.security.JwtService;
+import com.richard.activitytracker.security.TokenDenylist;
+import com.richard.activitytracker.websocket.SessionTokenExpiry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WebSocketChannelInterceptorTest {
+
+    private static final String SECRET = "NTEwMTVkOTIyNjdhYzkyYmJlYjYwYjNhNjMwNmE2MTNiZGZhYTQ4ZTliYzYzMzAw";
+
+    private final JwtService jwtService = jwtService();
+    private final SessionTokenExpiry sessionTokenExpiry = mock(SessionTokenExpiry.class);
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final WebSocketChannelInterceptor interceptor = new WebSocketChannelInterceptor(jwtService,
+            new JwtAuthenticationFilter(jwtService, userDetailsService, new ObjectMapper()), sessionTokenExpiry);
+    private final User user = User.builder().id(42L).username("alice@example.com").role(Role.USER).build();
+
+    @Test
+    void connect_KeepsThePrincipalBoundAtHandshakeWithoutVerifyingAgain() {
+        JwtService verifier = spy(jwtService);
+        WebSocketChannelInterceptor interceptor = new WebSocketChannelInterceptor(verifier,
+                new JwtAuthenticationFilter(verifier, userDetailsService, new ObjectMapper()), sessionTokenExpiry);
+        Claims claims = jwtService.verify(jwtService.generateToken(user));
+        Authentication handshakeUser = new UsernamePasswordAuthenticationToken("alice@example.com", null, List.of());
+        StompHeaderAccessor accessor = connect(null);
+        accessor.getSessionAttributes().put(WebSocketHandshakeInterceptor.CLAIMS_ATTRIBUTE, claims);
+        accessor.setUser(handshakeUser);
+
+        Message<?> result = interceptor.preSend(message(accessor), null);
+
+        assertNotNull(result);
+        assertSame(handshakeUser, user(result));
+        verify(verifier, never()).verify(anyString());
+        verify(sessionTokenExpiry).track("s1", claims);
+    }
+
+    @Test
+    void connect_VerifiesTheAuthorizationHeaderAndBindsItsUser() {
+        Message<?> result = interceptor.preSend(message(connect(jwtService.generateToken(user))), null);
+
+        assertNotNull(result);
+        assertEquals(new AuthenticatedUser(42L, "alice@example.com", Role.USER),
+                ((Authentication) user(result)).getPrincipal());
+        verify(sessionTokenExpiry).track(eq("s1"), any(Claims.class));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void connect_RejectsRefreshMissingAndInvalidTokens() {
+        assertNull(interceptor.preSend(message(connect(jwtService.generateRefreshToken(user))), null));
+        assertNull(interceptor.preSend(message(connect(null)), null));
+        assertNull(interceptor.preSend(message(connect("not-a-token")), null));
+
+        verifyNoInteractions(sessionTokenExpiry, userDetailsService);
+    }
+
+    @Test
+    void subscribe_RequiresAnAuthenticatedSession() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("s1");
+        accessor.setDestination("/topic/activities");
+        accessor.setLeaveMutable(true);
+
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message(accessor), null));
+    }
+
+    private static StompHeaderAccessor connect(String token) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(new HashMap<>());
+        if (token != null) {
+            accessor.setNativeHeader("Authorization", "Bearer " + token);
+        }
+        accessor.setLeaveMutable(true);
+        return accessor;
+    }
+
+    private static Message<byte[]> message(StompHeaderAccessor accessor) {
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Principal user(Message<?> message) {
+        return StompHeaderAccessor.getUser(message.getHeaders());
+    }
+
+    private static JwtService jwtService() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "tokenDenylist", new TokenDenylist(
+                mock(ClusterBus.class), new TokenDenylistProperties(), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 600_000L);
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 100);
+        ReflectionTestUtils.setField(jwtService, "stateless", true);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+}
@@ -0,0 +1,98 @@
+package com.richard.activitytracker.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.model.User;
+import com.richard.activitytracker.security.AuthenticatedUser;
+import com.richard.activitytracker.security.JwtAuthenticationFilter;
+import com.richard.activitytracker.security.JwtService;
+import com.richard.activitytracker.security.TokenDenylist;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class WebSocketHandshakeInterceptorTest {
+
+    private static final String SECRET = "NTEwMTVkOTIyNjdhYzkyYmJlYjYwYjNhNjMwNmE2MTNiZGZhYTQ4ZTliYzYzMzAw";
+
+    private final JwtService jwtService = jwtService();
+    private final WebSocketHandshakeInterceptor interceptor = new WebSocketHandshakeInterceptor(jwtService,
+            new JwtAuthenticationFilter(jwtService, mock(UserDetailsService.class), new ObjectMapper()));
+    private final User user = User.builder().id(42L).username("alice@example.com").role(Role.USER).build();
+
+    @Test
+    void beforeHandshake_BindsTheUserOfAValidTokenFromQueryOrHeader() {
+        MockHttpServletRequest query = new MockHttpServletRequest("GET", "/ws");
+        query.setQueryString("token=" + jwtService.generateToken(user));
+        MockHttpServletRequest header = new MockHttpServletRequest("GET", "/ws");
+        header.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generateToken(user));
+
+        for (MockHttpServletRequest request : new MockHttpServletRequest[] {query, header}) {
+            Map<String, Object> attributes = new HashMap<>();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            assertTrue(handshake(request, response, attributes));
+            assertEquals(new AuthenticatedUser(42L, "alice@example.com", Role.USER),
+                    ((Authentication) attributes.get(WebSocketHandshakeInterceptor.USER_ATTRIBUTE)).getPrincipal());
+            assertInstanceOf(Claims.class, attributes.get(WebSocketHandshakeInterceptor.CLAIMS_ATTRIBUTE));
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    @Test
+    void beforeHandshake_RefusesAnInvalidOrRefreshTokenWith401() {
+        for (String token : new String[] {"not-a-token", jwtService.generateRefreshToken(user)}) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws");
+            request.setQueryString("token=" + token);
+            Map<String, Object> attributes = new HashMap<>();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            assertFalse(handshake(request, response, attributes));
+            assertEquals(401, response.getStatus());
+            assertTrue(attributes.isEmpty());
+        }
+    }
+
+    @Test
+    void beforeHandshake_LetsATokenlessHandshakeThroughForConnectToAuthenticate() {
+        Map<String, Object> attributes = new HashMap<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(handshake(new MockHttpServletRequest("GET", "/ws"), response, attributes));
+        assertTrue(attributes.isEmpty());
+        assertEquals(200, response.getStatus());
+    }
+
+    private boolean handshake(MockHttpServletRequest request, MockHttpServletResponse response, Map<String, Object> attributes) {
+        return interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                new ServletServerHttpResponse(response), null, attributes);
+    }
+
+    private static JwtService jwtService() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "tokenDenylist", new TokenDenylist(
+                mock(ClusterBus.class), new TokenDenylistProperties(), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 600_000L);
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 100);
+        ReflectionTestUtils.setField(jwtService, "stateless", true);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+}
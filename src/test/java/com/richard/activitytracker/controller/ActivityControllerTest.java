@@ -0,0 +1,120 @@
+package com.richard.activitytracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.richard.activitytracker.config.TestConfig;
+import com.richard.activitytracker.config.TestSecurityConfig;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.security.JwtService;
+import com.richard.activitytracker.service.ActivityService;
+import com.richard.activitytracker.service.impl.ActivityVersionTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ActivityController.class)
+@Import({TestSecurityConfig.class, TestConfig.class, ActivityVersionTracker.class})
+@WithMockUser
+class ActivityControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ActivityVersionTracker activityVersionTracker;
+
+    @MockBean
+    private ActivityService activityService;
+
+    @MockBean
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        ActivityResponse activity = ActivityResponse.builder()
+                .id(1L)
+                .userId(7L)
+                .username("testuser")
+                .action("LOGIN")
+                .details("Logged in")
+                .timestamp(LocalDateTime.now())
+                .build();
+        when(activityService.getRecentActivities(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(activity)));
+        when(activityService.getActivitiesByUserId(eq(7L), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(activity)));
+    }
+
+    @Test
+    void getRecentActivities_MatchingETag_ReturnsNotModifiedWithoutQuerying() throws Exception {
+        String eTag = activityVersionTracker.globalETag();
+
+        mockMvc.perform(get("/api/activities").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        verifyNoInteractions(activityService);
+    }
+
+    @Test
+    void getRecentActivities_StaleETag_ReturnsPageWithNewETag() throws Exception {
+        String staleETag = activityVersionTracker.globalETag();
+        activityVersionTracker.recordWrite(7L, 42L);
+
+        mockMvc.perform(get("/api/activities").header(HttpHeaders.IF_NONE_MATCH, staleETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, activityVersionTracker.globalETag()))
+                .andExpect(jsonPath("$.content[0].action").value("LOGIN"));
+    }
+
+    @Test
+    void getActivitiesByUserId_WriteByOtherUser_KeepsValidator() throws Exception {
+        String eTag = activityVersionTracker.userETag(7L);
+        activityVersionTracker.recordWrite(8L, 43L);
+
+        mockMvc.perform(get("/api/activities/user/7").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        verify(activityService, never()).getActivitiesByUserId(any(), any());
+    }
+
+    @Test
+    void getRecentActivities_AcceptCbor_ReturnsCompactPage() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/activities").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new CBORMapper().readTree(body);
+        assertEquals(1, page.get("total").asLong());
+        assertEquals("LOGIN", page.get("items").get(0).get("action").asText());
+        assertTrue(page.get("items").get(0).get("timestamp").isIntegralNumber());
+        assertFalse(page.has("pageable"));
+    }
+
+    @Test
+    void getRecentActivities_NoAcceptHeader_DefaultsToJson() throws Exception {
+        mockMvc.perform(get("/api/activities"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.pageable").exists());
+    }
+}
@@ -0,0 +1,85 @@
+package com.richard.activitytracker.controller;
+
+import com.richard.activitytracker.analytics.StatsWindow;
+import com.richard.activitytracker.config.TestConfig;
+import com.richard.activitytracker.config.TestSecurityConfig;
+import com.richard.activitytracker.dto.HeavyHitterResponse;
+import com.richard.activitytracker.dto.TopKResponse;
+import com.richard.activitytracker.security.JwtService;
+import com.richard.activitytracker.service.ActivityStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ActivityStatsController.class)
+@Import({TestSecurityConfig.class, TestConfig.class})
+@WithMockUser
+class ActivityStatsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ActivityStatsService activityStatsService;
+
+    @MockBean
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        when(activityStatsService.getTopK(any(), anyInt())).thenAnswer(invocation -> TopKResponse.builder()
+                .window(invocation.<StatsWindow>getArgument(0).getLabel())
+                .generatedAt(LocalDateTime.now())
+                .actions(List.of(HeavyHitterResponse.builder().name("LOGIN").count(3).build()))
+                .users(List.of(HeavyHitterResponse.builder().userId(7L).name("testuser").count(3).build()))
+                .build());
+    }
+
+    @Test
+    void getTopK_DefaultsToTheOneMinuteWindowAndTenEntries() throws Exception {
+        mockMvc.perform(get("/api/stats/top"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.window").value("1m"))
+                .andExpect(jsonPath("$.actions[0].name").value("LOGIN"))
+                .andExpect(jsonPath("$.users[0].userId").value(7));
+
+        verify(activityStatsService).getTopK(StatsWindow.ONE_MINUTE, 10);
+    }
+
+    @Test
+    void getTopK_ClampsTheLimitAndMatchesWindowsIgnoringCase() throws Exception {
+        mockMvc.perform(get("/api/stats/top").param("window", "15M").param("limit", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.window").value("15m"));
+        mockMvc.perform(get("/api/stats/top").param("window", "1h").param("limit", "0"))
+                .andExpect(status().isOk());
+
+        verify(activityStatsService).getTopK(StatsWindow.FIFTEEN_MINUTES, 100);
+        verify(activityStatsService).getTopK(StatsWindow.ONE_HOUR, 1);
+    }
+
+    @Test
+    void getTopK_UnsupportedWindow_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/stats/top").param("window", "5m"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.path").value("/api/stats/top"))
+                .andExpect(jsonPath("$.message").value("Unsupported window: 5m (expected 1m, 15m or 1h)"));
+
+        verifyNoInteractions(activityStatsService);
+    }
+}
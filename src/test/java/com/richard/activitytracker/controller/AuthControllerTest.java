@@ -5,6 +5,7 @@ import com.richard.activitytracker.config.TestConfig;
 import com.richard.activitytracker.config.TestSecurityConfig;
 import com.richard.activitytracker.dto.AuthRequest;
 import com.richard.activitytracker.dto.AuthResponse;
+import com.richard.activitytracker.dto.RefreshRequest;
 import com.richard.activitytracker.dto.RegisterRequest;
 import com.richard.activitytracker.exception.AuthenticationException;
 import com.richard.activitytracker.model.Role;
@@ -149,4 +150,16 @@ class AuthControllerTest {
                 .content(objectMapper.writeValueAsString(authRequest)))
                 .andExpect(status().isBadRequest());
     }
-} 
+
+    @Test
+    void refresh_Success() throws Exception {
+        when(authService.refresh(any(RefreshRequest.class))).thenReturn(new AuthResponse("newToken", "newRefreshToken"));
+
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"refreshToken\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("newToken"))
+                .andExpect(jsonPath("$.refreshToken").value("newRefreshToken"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.richard.activitytracker.security;
+
+import com.richard.activitytracker.config.PasswordHashingProperties;
+import com.richard.activitytracker.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void matchesLegacyHashesAndAsksToUpgradeThem() {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(1);
+        properties.setBcryptStrength(5);
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(properties, new SimpleMeterRegistry())) {
+            String legacy = new BCryptPasswordEncoder(4).encode("secret");
+            String current = encoder.encode("secret");
+
+            assertTrue(current.startsWith("{bcrypt}"));
+            assertTrue(encoder.matches("secret", legacy));
+            assertTrue(encoder.matches("secret", current));
+            assertFalse(encoder.matches("wrong", current));
+            assertTrue(encoder.upgradeEncoding(legacy));
+            assertTrue(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret")));
+            assertFalse(encoder.upgradeEncoding(current));
+        }
+    }
+
+    @Test
+    void rejectsWhenThePoolAndQueueAreFull() throws Exception {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setBcryptStrength(12);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(properties, meterRegistry)) {
+            callers.submit(() -> encoder.encode("first"));
+            callers.submit(() -> encoder.encode("second"));
+            while (meterRegistry.get("auth.password.queue.size").gauge().value() < 1) {
+                Thread.sleep(5);
+            }
+
+            TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class, () -> encoder.encode("third"));
+            assertEquals(1, rejected.getRetryAfterSeconds());
+            assertEquals(1.0, meterRegistry.get("auth.rejected").tag("reason", "hashing-queue-full").counter().count());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.richard.activitytracker.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.config.TokenDenylistProperties;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "NTEwMTVkOTIyNjdhYzkyYmJlYjYwYjNhNjMwNmE2MTNiZGZhYTQ4ZTliYzYzMzAw";
+
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final JwtService jwtService = jwtService();
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userDetailsService, new ObjectMapper());
+    private final User user = User.builder().id(42L).username("alice@example.com").role(Role.USER).build();
+
+    @Test
+    void getAuthentication_RejectsRefreshTokenWithoutLoadingTheUser() {
+        assertNull(filter.getAuthentication(jwtService.generateRefreshToken(user)));
+
+        ReflectionTestUtils.setField(jwtService, "stateless", false);
+        assertNull(filter.getAuthentication(jwtService.generateRefreshToken(user)));
+
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void getAuthentication_BuildsPrincipalFromAccessTokenClaims() {
+        Authentication authentication = filter.getAuthentication(jwtService.generateToken(user));
+
+        assertEquals(new AuthenticatedUser(42L, "alice@example.com", Role.USER), authentication.getPrincipal());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    private static JwtService jwtService() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "tokenDenylist", new TokenDenylist(
+                mock(ClusterBus.class), new TokenDenylistProperties(), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 600_000L);
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 100);
+        ReflectionTestUtils.setField(jwtService, "stateless", true);
+        jwtService.init();
+        return jwtService;
+    }
+}
@@ -0,0 +1,119 @@
+package com.richard.activitytracker.security;
+
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.config.TokenDenylistProperties;
+import com.richard.activitytracker.model.Role;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "NTEwMTVkOTIyNjdhYzkyYmJlYjYwYjNhNjMwNmE2MTNiZGZhYTQ4ZTliYzYzMzAw";
+
+    private final UserDetails alice = new User("alice@example.com", "x", List.of());
+
+    @Test
+    void verify_ReturnsCachedClaimsForARepeatedToken() {
+        JwtService jwtService = jwtService(60_000);
+        String token = jwtService.generateToken(alice);
+
+        Claims first = jwtService.verify(token);
+
+        assertSame(first, jwtService.verify(token));
+        assertEquals("alice@example.com", jwtService.extractUsername(token));
+        assertTrue(jwtService.isTokenValid(first, alice));
+        assertFalse(jwtService.isTokenValid(first, new User("bob@example.com", "x", List.of())));
+    }
+
+    @Test
+    void verify_RejectsTamperedAndExpiredTokens() throws Exception {
+        JwtService jwtService = jwtService(1500);
+        String token = jwtService.generateToken(alice);
+        jwtService.verify(token);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(RuntimeException.class, () -> jwtService.verify(tampered));
+        Thread.sleep(1600); // exp has second precision
+        assertThrows(TokenExpiredException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void verify_EvictsLeastRecentlyUsedTokenWhenFullAndPrunesExpiredOnes() throws Exception {
+        JwtService jwtService = jwtService(1500);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 2);
+        jwtService.init();
+        String first = jwtService.generateToken(alice);
+        String second = jwtService.generateToken(alice);
+        String third = jwtService.generateToken(alice);
+
+        Claims firstClaims = jwtService.verify(first);
+        Claims secondClaims = jwtService.verify(second);
+        assertSame(firstClaims, jwtService.verify(first));
+        jwtService.verify(third);
+
+        assertSame(firstClaims, jwtService.verify(first));
+        assertNotSame(secondClaims, jwtService.verify(second));
+        Thread.sleep(1600); // exp has second precision
+        jwtService.pruneVerified();
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(jwtService, "verified")).isEmpty());
+    }
+
+    @Test
+    void toPrincipal_BuildsUserFromIdAndRoleClaimsOnlyInStatelessMode() {
+        JwtService jwtService = jwtService(60_000);
+        com.richard.activitytracker.model.User user = com.richard.activitytracker.model.User.builder()
+                .id(42L).username("alice@example.com").role(Role.ADMIN).build();
+
+        Claims claims = jwtService.verify(jwtService.generateToken(user));
+
+        assertEquals(new AuthenticatedUser(42L, "alice@example.com", Role.ADMIN), jwtService.toPrincipal(claims));
+        assertNull(jwtService.toPrincipal(jwtService.verify(jwtService.generateToken(alice))));
+        ReflectionTestUtils.setField(jwtService, "stateless", false);
+        assertNull(jwtService.toPrincipal(claims));
+    }
+
+    @Test
+    void revokeAndRefresh_RevokedTokensFailAndRefreshTokensAreNotAccessTokens() {
+        JwtService jwtService = jwtService(60_000);
+        com.richard.activitytracker.model.User user = com.richard.activitytracker.model.User.builder()
+                .id(42L).username("alice@example.com").role(Role.USER).build();
+        String access = jwtService.generateToken(user);
+        String refresh = jwtService.generateRefreshToken(user);
+
+        Claims refreshClaims = jwtService.verifyRefreshToken(refresh);
+        assertNull(jwtService.toPrincipal(refreshClaims));
+        assertFalse(jwtService.isTokenValid(refreshClaims, alice));
+        assertThrows(TokenTypeMismatchException.class, () -> jwtService.verifyRefreshToken(access));
+
+        Claims accessClaims = jwtService.verify(access);
+        assertNotNull(accessClaims.getId());
+        assertTrue(jwtService.revoke(accessClaims));
+        assertFalse(jwtService.revoke(accessClaims));
+        assertEquals(accessClaims.getId(),
+                assertThrows(TokenRevokedException.class, () -> jwtService.verify(access)).getTokenId());
+        assertNotNull(jwtService.verify(refresh));
+    }
+
+    private static JwtService jwtService(long expirationMillis) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "tokenDenylist", new TokenDenylist(
+                mock(ClusterBus.class), new TokenDenylistProperties(), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", expirationMillis * 10);
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", expirationMillis);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 100);
+        ReflectionTestUtils.setField(jwtService, "stateless", true);
+        jwtService.init();
+        return jwtService;
+    }
+}
@@ -0,0 +1,57 @@
+package com.richard.activitytracker.security;
+
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.config.TokenDenylistProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TokenDenylistTest {
+
+    private final ClusterBus clusterBus = mock(ClusterBus.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenDenylist denylist = new TokenDenylist(clusterBus, new TokenDenylistProperties(), meterRegistry);
+
+    @Test
+    void revoke_AppliesLocallyPublishesOnceAndIsPrunedOnExpiry() throws Exception {
+        long now = System.currentTimeMillis();
+
+        assertTrue(denylist.revoke("a", now + 60_000));
+        assertTrue(denylist.revoke("b", now + 50));
+        assertFalse(denylist.revoke("a", now + 60_000));
+        assertFalse(denylist.revoke("expired", now - 1));
+
+        assertTrue(denylist.isRevoked("a"));
+        assertTrue(denylist.isRevoked("b"));
+        assertFalse(denylist.isRevoked("c"));
+        assertFalse(denylist.isRevoked(null));
+        verify(clusterBus, times(2)).publish(eq(TokenDenylist.CHANNEL), any(TokenDenylist.Revocation.class));
+
+        Thread.sleep(60);
+        denylist.prune();
+
+        assertTrue(denylist.isRevoked("a"));
+        assertFalse(denylist.isRevoked("b"));
+        assertEquals(1.0, meterRegistry.get("auth.denylist.size").gauge().value());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void subscribe_AppliesRevocationsFromOtherNodesWithoutRepublishing() {
+        ArgumentCaptor<Consumer<TokenDenylist.Revocation>> handler = ArgumentCaptor.forClass(Consumer.class);
+        denylist.subscribe();
+        verify(clusterBus).subscribe(eq(TokenDenylist.CHANNEL), eq(TokenDenylist.Revocation.class), handler.capture());
+
+        handler.getValue().accept(new TokenDenylist.Revocation("remote", System.currentTimeMillis() + 60_000));
+
+        assertTrue(denylist.isRevoked("remote"));
+        verify(clusterBus, never()).publish(any(), any());
+    }
+}
@@ -0,0 +1,67 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivityEventLogTest {
+
+    @Test
+    void since_WithinBuffer_ReturnsMissedEntriesInOrder() {
+        ActivityEventLog eventLog = new ActivityEventLog(4);
+        for (long id = 1; id <= 6; id++) {
+            eventLog.append(activity(id));
+        }
+
+        List<ActivityEventLog.Entry> missed = eventLog.since(3);
+
+        assertEquals(List.of(4L, 5L, 6L), missed.stream().map(ActivityEventLog.Entry::sequence).toList());
+        assertEquals(6L, missed.get(2).activity().getId());
+        assertTrue(eventLog.since(6).isEmpty());
+    }
+
+    @Test
+    void since_EvictedOrUnknownSequence_ReturnsNull() {
+        ActivityEventLog eventLog = new ActivityEventLog(4);
+        for (long id = 1; id <= 6; id++) {
+            eventLog.append(activity(id));
+        }
+
+        assertNull(eventLog.since(1));
+        assertNull(eventLog.since(7));
+    }
+
+    @Test
+    void parseEventId_RoundTripsOwnIdsAndRejectsOthers() {
+        ActivityEventLog eventLog = new ActivityEventLog(4);
+
+        assertEquals(42L, eventLog.parseEventId(eventLog.eventId(42)));
+        assertEquals(-1L, eventLog.parseEventId("abc-42"));
+        assertEquals(-1L, eventLog.parseEventId(null));
+    }
+
+    @Test
+    void append_StampsSequenceAndStreamOnACopyOfTheActivity() {
+        ActivityEventLog eventLog = new ActivityEventLog(2);
+        ActivityResponse last = null;
+        for (long id = 1; id <= 3; id++) {
+            last = activity(id);
+            eventLog.append(last);
+        }
+
+        List<ActivityEventLog.Entry> retained = eventLog.retained();
+
+        assertEquals(List.of(2L, 3L), retained.stream().map(e -> e.activity().getSequence()).toList());
+        assertEquals(eventLog.stream(), retained.get(0).activity().getStream());
+        assertEquals(3L, retained.get(1).activity().getId());
+        assertNull(last.getSequence());
+        assertNull(last.getStream());
+    }
+
+    private static ActivityResponse activity(long id) {
+        return ActivityResponse.builder().id(id).userId(1L).action("LOGIN").build();
+    }
+}
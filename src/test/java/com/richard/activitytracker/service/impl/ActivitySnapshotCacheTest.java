@@ -0,0 +1,108 @@
+package com.richard.activitytracker.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.service.ActivityService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ActivitySnapshotCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ActivityEventLog eventLog = new ActivityEventLog(16);
+    private final ActivityVersionTracker versionTracker = new ActivityVersionTracker();
+    private final ActivityService activityService = mock(ActivityService.class);
+    private final ActivitySnapshotCache cache = new ActivitySnapshotCache(activityService, eventLog, versionTracker,
+            objectMapper, mock(PlatformTransactionManager.class), meterRegistry, 3);
+
+    @Test
+    void get_LoadsOnceThenFollowsAppendsWithoutTheDatabase() throws Exception {
+        when(activityService.getRecentActivities(any())).thenReturn(new PageImpl<>(List.of(activity(2), activity(1))));
+
+        ActivitySnapshotCache.Snapshot loaded = cache.get();
+        assertEquals(List.of(2L, 1L), ids(loaded));
+        assertSame(loaded.json(), loaded.json());
+
+        eventLog.append(activity(3));
+        eventLog.append(activity(4));
+
+        ActivitySnapshotCache.Snapshot current = cache.get();
+        assertSame(cache.current(), current);
+        assertEquals(2, current.version());
+        assertEquals(List.of(4L, 3L, 2L), ids(current));
+        assertEquals(List.of(4L, 3L, 2L), objectMapper.readTree(current.json()).findValuesAsText("id").stream()
+                .map(Long::valueOf).toList());
+        verify(activityService, times(1)).getRecentActivities(any());
+        assertEquals(1.0, meterRegistry.get("activity.snapshot.loads").counter().count());
+        assertEquals(2.0, meterRegistry.get("activity.snapshot.renders").counter().count());
+    }
+
+    @Test
+    void onAppend_UpdatesTheSnapshotUnderTheLogLock() throws Exception {
+        when(activityService.getRecentActivities(any())).thenReturn(new PageImpl<>(List.of(activity(1))));
+        ActivitySnapshotCache.Snapshot loaded = cache.get();
+
+        eventLog.hold();
+        CompletableFuture<Void> append;
+        try {
+            append = CompletableFuture.runAsync(() -> eventLog.append(activity(2)));
+            Thread.sleep(50);
+            assertFalse(append.isDone());
+            assertSame(loaded, cache.current());
+        } finally {
+            eventLog.release();
+        }
+        append.get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of(2L, 1L), ids(cache.current()));
+    }
+
+    @Test
+    void get_FoldsInActivitiesCommittedWhileLoading() {
+        when(activityService.getRecentActivities(any())).thenAnswer(invocation -> {
+            eventLog.append(activity(2));
+            return new PageImpl<>(List.of(activity(2), activity(1)));
+        });
+
+        ActivitySnapshotCache.Snapshot loaded = cache.get();
+
+        assertEquals(1, loaded.version());
+        assertEquals(List.of(2L, 1L), ids(loaded));
+    }
+
+    @Test
+    void get_ReloadsAfterARetentionPurge() {
+        when(activityService.getRecentActivities(any()))
+                .thenReturn(new PageImpl<>(List.of(activity(2), activity(1))))
+                .thenReturn(new PageImpl<>(List.of(activity(2))));
+        ActivitySnapshotCache.Snapshot beforePurge = cache.get();
+
+        versionTracker.recordPurge();
+
+        assertSame(beforePurge, cache.current());
+        ActivitySnapshotCache.Snapshot afterPurge = cache.get();
+        assertNotSame(beforePurge, afterPurge);
+        assertEquals(List.of(2L), ids(afterPurge));
+        assertSame(afterPurge, cache.get());
+        assertEquals(2.0, meterRegistry.get("activity.snapshot.loads").counter().count());
+    }
+
+    private static List<Long> ids(ActivitySnapshotCache.Snapshot snapshot) {
+        return snapshot.activities().stream().map(ActivityResponse::getId).toList();
+    }
+
+    private static ActivityResponse activity(long id) {
+        return ActivityResponse.builder().id(id).userId(1L).action("LOGIN").build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.analytics.StatsWindow;
+import com.richard.activitytracker.cluster.ActivityClusterRelay;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.HeavyHitterResponse;
+import com.richard.activitytracker.dto.TopKResponse;
+import com.richard.activitytracker.event.ActivityRecordedEvent;
+import com.richard.activitytracker.exception.InvalidRequestException;
+import com.richard.activitytracker.service.LastSeenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Feeds the engine through the real after-commit listener, so only committed activities count. */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ActivityStatsServiceImpl.class, ActivityRecordedListener.class})
+class ActivityStatsServiceImplTest {
+
+    @Autowired
+    private ActivityStatsServiceImpl activityStatsService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+    @MockBean
+    private ActivityVersionTracker activityVersionTracker;
+    @MockBean
+    private LastSeenService lastSeenService;
+    @MockBean
+    private ActivityEventLog activityEventLog;
+    @MockBean
+    private ActivityClusterRelay activityClusterRelay;
+
+    @Test
+    void record_CountsAnActivityOnlyOnceItsTransactionCommits() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new ActivityRecordedEvent(activity(7L, "alice", "edit")));
+            status.setRollbackOnly();
+        });
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new ActivityRecordedEvent(activity(7L, "alice", "login")));
+            assertTrue(activityStatsService.getTopK(StatsWindow.ONE_MINUTE, 10).getActions().isEmpty());
+        });
+        eventPublisher.publishEvent(new ActivityRecordedEvent(activity(8L, "bob", "login")));
+
+        TopKResponse top = activityStatsService.getTopK(StatsWindow.ONE_MINUTE, 10);
+        assertEquals(List.of("login:2"), counts(top.getActions()));
+        assertEquals(List.of("alice:1", "bob:1"), counts(top.getUsers()).stream().sorted().toList());
+    }
+
+    @Test
+    void getTopK_ReturnsAtMostTheLimitHeaviestFirstForTheRequestedWindow() {
+        ActivityStatsServiceImpl activityStatsService =
+                new ActivityStatsServiceImpl(messagingTemplate, 256, 10, "/topic/stats/top");
+        for (String action : List.of("view", "view", "view", "edit", "edit", "login")) {
+            activityStatsService.record(activity(7L, "alice", action));
+        }
+
+        TopKResponse top = activityStatsService.getTopK(StatsWindow.fromLabel("1H"), 2);
+
+        assertEquals("1h", top.getWindow());
+        assertEquals(List.of("view:3", "edit:2"), counts(top.getActions()));
+        assertEquals(List.of("alice:6"), counts(top.getUsers()));
+        InvalidRequestException rejected = assertThrows(InvalidRequestException.class, () -> StatsWindow.fromLabel("5m"));
+        assertTrue(rejected.getMessage().contains("5m"));
+    }
+
+    private static List<String> counts(List<HeavyHitterResponse> hitters) {
+        return hitters.stream().map(hitter -> hitter.getName() + ":" + hitter.getCount()).toList();
+    }
+
+    private static ActivityResponse activity(Long userId, String username, String action) {
+        return ActivityResponse.builder()
+                .id(1L)
+                .userId(userId)
+                .username(username)
+                .action(action)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,211 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.controller.ActivityStreamController;
+import com.richard.activitytracker.dto.ActivityResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/** Streams through the controller on MockMvc so events are written by the real SSE machinery. */
+class ActivityStreamServiceImplTest {
+
+    private static final Pattern EVENT = Pattern.compile("id:\\S+-(\\d+)\\nevent:(\\w+)\\n");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GatedJsonConverter json = new GatedJsonConverter();
+    private final List<ActivityStreamServiceImpl> services = new ArrayList<>();
+    private volatile boolean appendWhileSubscribing;
+
+    /** A commit landing between a stream's registration and its read of the log reaches it both ways. */
+    private final ActivityEventLog eventLog = new ActivityEventLog(4) {
+        @Override
+        public List<Entry> since(long sequence) {
+            if (appendWhileSubscribing) {
+                appendWhileSubscribing = false;
+                append(activity(7L, "login"));
+            }
+            return super.since(sequence);
+        }
+    };
+
+    @AfterEach
+    void shutdown() {
+        json.open();
+        services.forEach(ActivityStreamServiceImpl::shutdown);
+    }
+
+    @Test
+    void subscribe_WithoutLastEventIdOnlySendsNewActivities() throws Exception {
+        eventLog.append(activity(7L, "login"));
+        MockMvc mockMvc = mockMvc(service(100));
+
+        MvcResult result = stream(mockMvc, get("/api/activities/stream"));
+        eventLog.append(activity(7L, "view"));
+
+        assertEquals(List.of("activity:2"), awaitEvents(result, 1));
+    }
+
+    @Test
+    void subscribe_ReplaysMissedActivitiesOnceEvenIfTheyAlsoArriveLive() throws Exception {
+        eventLog.append(activity(7L, "login"));
+        eventLog.append(activity(7L, "view"));
+        eventLog.append(activity(7L, "edit"));
+        MockMvc mockMvc = mockMvc(service(100));
+
+        appendWhileSubscribing = true;
+        MvcResult result = stream(mockMvc, get("/api/activities/stream")
+                .header("Last-Event-ID", eventLog.eventId(1)));
+        eventLog.append(activity(7L, "logout"));
+
+        assertEquals(List.of("activity:2", "activity:3", "activity:4", "activity:5"), awaitEvents(result, 4));
+    }
+
+    @Test
+    void subscribe_ResyncsWhenTheGapIsNoLongerBufferedOrTheIdIsStale() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            eventLog.append(activity(7L, "view"));
+        }
+        MockMvc mockMvc = mockMvc(service(100));
+
+        MvcResult evicted = stream(mockMvc, get("/api/activities/stream").header("Last-Event-ID", eventLog.eventId(1)));
+        MvcResult stale = stream(mockMvc, get("/api/activities/stream").header("Last-Event-ID", "older-process-3"));
+        eventLog.append(activity(7L, "view"));
+
+        assertEquals(List.of("resync:6", "activity:7"), awaitEvents(evicted, 2));
+        assertEquals(List.of("resync:6", "activity:7"), awaitEvents(stale, 2));
+    }
+
+    @Test
+    void subscribe_FiltersByUserAndActionIgnoringCase() throws Exception {
+        MockMvc mockMvc = mockMvc(service(100));
+
+        MvcResult byUser = stream(mockMvc, get("/api/activities/stream").param("userId", "7"));
+        MvcResult byAction = stream(mockMvc, get("/api/activities/stream").param("action", "LOGIN"));
+        MvcResult both = stream(mockMvc, get("/api/activities/stream").param("userId", "8").param("action", "login"));
+        eventLog.append(activity(7L, "login"));
+        eventLog.append(activity(8L, "view"));
+        eventLog.append(activity(8L, "login"));
+        eventLog.append(activity(7L, "view"));
+
+        assertEquals(List.of("activity:1", "activity:4"), awaitEvents(byUser, 2));
+        assertEquals(List.of("activity:1", "activity:3"), awaitEvents(byAction, 2));
+        assertEquals(List.of("activity:3"), awaitEvents(both, 1));
+    }
+
+    @Test
+    void offer_ClosesAStreamThatFallsBehindWithoutBlockingThePublisher() throws Exception {
+        ActivityStreamServiceImpl service = service(2);
+        MvcResult result = stream(mockMvc(service), get("/api/activities/stream"));
+        json.close();
+
+        eventLog.append(activity(7L, "view"));
+        assertTrue(json.entered.await(5, TimeUnit.SECONDS));
+        eventLog.append(activity(7L, "view"));
+        eventLog.append(activity(7L, "view"));
+        assertEquals(1, service.openStreams());
+        // The client is stuck writing the first event for up to 5 s; this append must not wait for it.
+        long start = System.nanoTime();
+        eventLog.append(activity(7L, "view"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(0, service.openStreams());
+        assertEquals(1.0, meterRegistry.get("activity.stream.overflows").counter().count());
+        json.open();
+        assertEquals(List.of("activity:1"), awaitEvents(result, 1));
+        result.getAsyncResult(5000); // throws unless the emitter completed
+        assertEquals(List.of("activity:1"), events(result));
+    }
+
+    private ActivityStreamServiceImpl service(int maxQueued) {
+        ActivityStreamServiceImpl service = new ActivityStreamServiceImpl(eventLog, meterRegistry, 60_000, maxQueued);
+        services.add(service);
+        return service;
+    }
+
+    private MockMvc mockMvc(ActivityStreamServiceImpl service) {
+        return MockMvcBuilders.standaloneSetup(new ActivityStreamController(service))
+                .setMessageConverters(new StringHttpMessageConverter(), json)
+                .build();
+    }
+
+    private static MvcResult stream(MockMvc mockMvc, MockHttpServletRequestBuilder builder) throws Exception {
+        return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private static List<String> awaitEvents(MvcResult result, int count) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<String> events = events(result);
+        while (events.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            events = events(result);
+        }
+        Thread.sleep(50); // anything sent after the expected events would show up as a mismatch
+        return events(result);
+    }
+
+    private static List<String> events(MvcResult result) throws Exception {
+        Matcher matcher = EVENT.matcher(result.getResponse().getContentAsString());
+        List<String> events = new ArrayList<>();
+        while (matcher.find()) {
+            events.add(matcher.group(2) + ":" + matcher.group(1));
+        }
+        return events;
+    }
+
+    private static ActivityResponse activity(Long userId, String action) {
+        return ActivityResponse.builder()
+                .id(1L)
+                .userId(userId)
+                .action(action)
+                .details("d")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    /** JSON writes that can be held, standing in for a client that stops reading. */
+    private static final class GatedJsonConverter extends MappingJackson2HttpMessageConverter {
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile CountDownLatch entered = new CountDownLatch(1);
+
+        void close() {
+            entered = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            entered.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivitySubscriptionIndexTest {
+
+    private final ActivitySubscriptionIndex index = new ActivitySubscriptionIndex(new SimpleMeterRegistry());
+
+    @Test
+    void destinationsFor_OnlyReturnsSubscribedDestinations() {
+        index.subscribed("s1", "sub-0", "/topic/activities/user/7");
+        index.subscribed("s2", "sub-0", "/topic/activities/action/LOGIN");
+
+        assertEquals(List.of("/topic/activities/user/7", "/topic/activities/action/LOGIN"),
+                index.destinationsFor(activity(7L, "LOGIN")));
+        assertEquals(List.of("/topic/activities/user/7"), index.destinationsFor(activity(7L, "login")));
+        assertTrue(index.destinationsFor(activity(8L, "VIEW")).isEmpty());
+
+        index.subscribed("s3", "sub-0", "/topic/activities");
+        assertEquals(List.of("/topic/activities"), index.destinationsFor(activity(8L, "VIEW")));
+    }
+
+    @Test
+    void unsubscribeAndDisconnect_RemoveDestinationOnceLastSubscriberLeaves() {
+        index.subscribed("s1", "sub-0", "/topic/activities/user/7");
+        index.subscribed("s1", "sub-1", "/topic/activities/action/LOGIN");
+        index.subscribed("s2", "sub-0", "/topic/activities/user/7");
+
+        index.unsubscribed("s2", "sub-0");
+        assertTrue(index.hasSubscribers("/topic/activities/user/7"));
+
+        index.disconnected("s1");
+        assertFalse(index.hasSubscribers("/topic/activities/user/7"));
+        assertFalse(index.hasSubscribers("/topic/activities/action/LOGIN"));
+        index.disconnected("s1");
+        index.unsubscribed("s2", "sub-0");
+        assertTrue(index.destinationsFor(activity(7L, "LOGIN")).isEmpty());
+    }
+
+    @Test
+    void isActivityDestination_RejectsPatternsAndMalformedFilters() {
+        assertTrue(ActivitySubscriptionIndex.isActivityDestination("/topic/activities"));
+        assertTrue(ActivitySubscriptionIndex.isActivityDestination("/topic/activities/user/42"));
+        assertTrue(ActivitySubscriptionIndex.isActivityDestination("/topic/activities/action/VIEW_DASHBOARD"));
+        assertFalse(ActivitySubscriptionIndex.isActivityDestination("/topic/activities/user/abc"));
+        assertFalse(ActivitySubscriptionIndex.isActivityDestination("/topic/activities/action/"));
+        assertFalse(ActivitySubscriptionIndex.isActivityDestination("/topic/activities/action/*"));
+        assertFalse(ActivitySubscriptionIndex.isActivityDestination("/topic/activities/**"));
+    }
+
+    private static ActivityResponse activity(Long userId, String action) {
+        return ActivityResponse.builder().id(1L).userId(userId).action(action).build();
+    }
+}
@@ -2,19 +2,24 @@ package com.richard.activitytracker.service.impl;
 
 import com.richard.activitytracker.dto.AuthRequest;
 import com.richard.activitytracker.dto.AuthResponse;
+import com.richard.activitytracker.dto.RefreshRequest;
 import com.richard.activitytracker.dto.RegisterRequest;
 import com.richard.activitytracker.exception.AuthenticationException;
 import com.richard.activitytracker.exception.TokenGenerationException;
 import com.richard.activitytracker.model.Role;
 import com.richard.activitytracker.model.User;
 import com.richard.activitytracker.repository.UserRepository;
+import com.richard.activitytracker.security.AuthAdmission;
 import com.richard.activitytracker.security.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -32,6 +37,9 @@ class AuthServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDirectory userDirectory;
+
     @Mock
     private PasswordEncoder passwordEncoder;
 
@@ -41,6 +49,9 @@ class AuthServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private AuthAdmission authAdmission;
+
     @InjectMocks
     private AuthService authService;
 
@@ -71,8 +82,8 @@ class AuthServiceTest {
     @Test
     void register_Success() {
         // Arrange
-        when(userRepository.existsByUsername(anyString())).thenReturn(false);
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
+        when(userDirectory.usernameTaken(anyString())).thenReturn(false);
+        when(userDirectory.emailTaken(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(jwtService.generateToken(any(User.class))).thenReturn("jwtToken");
@@ -84,12 +95,13 @@ class AuthServiceTest {
         assertNotNull(response);
         assertEquals("jwtToken", response.getToken());
         verify(userRepository).save(any(User.class));
+        verify(userDirectory).changed(user);
     }
 
     @Test
     void register_UsernameExists() {
         // Arrange
-        when(userRepository.existsByUsername(anyString())).thenReturn(true);
+        when(userDirectory.usernameTaken(anyString())).thenReturn(true);
 
         // Act & Assert
         AuthenticationException exception = assertThrows(AuthenticationException.class,
@@ -100,8 +112,8 @@ class AuthServiceTest {
     @Test
     void register_EmailExists() {
         // Arrange
-        when(userRepository.existsByUsername(anyString())).thenReturn(false);
-        when(userRepository.existsByEmail(anyString())).thenReturn(true);
+        when(userDirectory.usernameTaken(anyString())).thenReturn(false);
+        when(userDirectory.emailTaken(anyString())).thenReturn(true);
 
         // Act & Assert
         AuthenticationException exception = assertThrows(AuthenticationException.class,
@@ -109,6 +121,21 @@ class AuthServiceTest {
         assertEquals("User with email test@example.com already exists", exception.getMessage());
     }
 
+    @Test
+    void register_ConcurrentDuplicate_ReturnsConflict() {
+        // Arrange
+        when(userDirectory.usernameTaken(anyString())).thenReturn(false);
+        when(userDirectory.emailTaken(anyString())).thenReturn(false);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("unique"));
+
+        // Act & Assert
+        AuthenticationException exception = assertThrows(AuthenticationException.class,
+                () -> authService.register(registerRequest));
+        assertEquals(409, exception.getStatus());
+        verify(userDirectory, never()).changed(any(User.class));
+    }
+
     @Test
     void login_Success() {
         // Arrange
@@ -158,4 +185,51 @@ class AuthServiceTest {
                 () -> authService.login(authRequest));
         assertEquals("Failed to generate authentication token", exception.getMessage());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void refresh_RotatesTheRefreshToken() {
+        // Arrange
+        Claims claims = refreshClaims();
+        when(jwtService.verifyRefreshToken("refreshToken")).thenReturn(claims);
+        when(userDirectory.find(7L)).thenReturn(Optional.of(new UserDirectory.UserSummary(7L, "testuser", "test@example.com", Role.USER)));
+        when(jwtService.revoke(claims)).thenReturn(true);
+        when(jwtService.generateToken(any(User.class))).thenReturn("newToken");
+        when(jwtService.generateRefreshToken(any(User.class))).thenReturn("newRefreshToken");
+
+        // Act
+        AuthResponse response = authService.refresh(refreshRequest("refreshToken"));
+
+        // Assert
+        assertEquals("newToken", response.getToken());
+        assertEquals("newRefreshToken", response.getRefreshToken());
+        verify(jwtService).revoke(claims);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void refresh_AlreadyUsedToken() {
+        // Arrange
+        Claims claims = refreshClaims();
+        when(jwtService.verifyRefreshToken("refreshToken")).thenReturn(claims);
+        when(userDirectory.find(7L)).thenReturn(Optional.of(new UserDirectory.UserSummary(7L, "testuser", "test@example.com", Role.USER)));
+        when(jwtService.revoke(claims)).thenReturn(false);
+
+        // Act & Assert
+        AuthenticationException exception = assertThrows(AuthenticationException.class,
+                () -> authService.refresh(refreshRequest("refreshToken")));
+        assertEquals("Invalid or expired refresh token", exception.getMessage());
+        verify(jwtService, never()).generateToken(any(User.class));
+    }
+
+    private static Claims refreshClaims() {
+        Claims claims = Jwts.claims().setSubject("testuser").setId("jti-1");
+        claims.put(JwtService.USER_ID_CLAIM, 7L);
+        return claims;
+    }
+
+    private static RefreshRequest refreshRequest(String refreshToken) {
+        RefreshRequest request = new RefreshRequest();
+        request.setRefreshToken(refreshToken);
+        return request;
+    }
+}
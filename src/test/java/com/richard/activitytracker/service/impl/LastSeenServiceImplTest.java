@@ -0,0 +1,222 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.dto.LastSeenResponse;
+import com.richard.activitytracker.model.UserLastActivity;
+import com.richard.activitytracker.repository.ActivityRepository;
+import com.richard.activitytracker.repository.UserLastActivityRepository;
+import com.richard.activitytracker.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/** Runs against the Flyway schema on H2; batches commit for real, so the test itself is not transactional. */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LastSeenServiceImplTest {
+
+    @Autowired
+    private UserLastActivityRepository userLastActivityRepository;
+    @Autowired
+    private ActivityRepository activityRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+    private UserLastActivityRepository rows;
+    private ActivityRepository activities;
+    private UserRepository users;
+
+    @BeforeEach
+    void seedUsers() {
+        jdbcTemplate.update("DELETE FROM user_last_activity");
+        jdbcTemplate.update("DELETE FROM activities");
+        jdbcTemplate.update("DELETE FROM users");
+        for (long id = 1; id <= 5; id++) {
+            jdbcTemplate.update("INSERT INTO users (id, username, password, email, role) VALUES (?, ?, 'x', ?, 'USER')",
+                    id, "user" + id, "user" + id + "@example.com");
+        }
+        rows = mock(UserLastActivityRepository.class, delegatesTo(userLastActivityRepository));
+        activities = mock(ActivityRepository.class, delegatesTo(activityRepository));
+        users = mock(UserRepository.class, delegatesTo(userRepository));
+    }
+
+    @Test
+    void record_AppliesOnlyAfterCommitAndKeepsTheNewest() {
+        LastSeenServiceImpl lastSeen = lastSeen(200, Duration.ofSeconds(30), 100);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            lastSeen.record(activity(10, 1, "rolled-back"));
+            status.setRollbackOnly();
+        });
+        lastSeen.flush();
+        assertTrue(lastSeen.getLastSeen(List.of(1L)).isEmpty());
+
+        transaction.executeWithoutResult(status -> {
+            lastSeen.record(activity(12, 1, "edit"));
+            assertTrue(lastSeen.getLastSeen(List.of(1L)).isEmpty());
+        });
+        lastSeen.record(activity(11, 1, "late"));
+        assertEquals(12L, only(lastSeen.getLastSeen(List.of(1L))).getActivityId());
+
+        // A peer's write moves the read cache only; the peer persists its own row.
+        lastSeen.observe(activity(13, 1, "peer"));
+        lastSeen.flush();
+
+        assertEquals(13L, only(lastSeen.getLastSeen(List.of(1L, 1L))).getActivityId());
+        UserLastActivity row = userLastActivityRepository.findById(1L).orElseThrow();
+        assertEquals(12L, row.getActivityId());
+        assertEquals("edit", row.getAction());
+    }
+
+    @Test
+    void flush_UpsertsInBatchesAndNeverMovesARowBackwards() {
+        jdbcTemplate.update("INSERT INTO user_last_activity (user_id, activity_id, action, last_seen_at) VALUES (1, 50, 'newer', ?)",
+                LocalDateTime.now());
+        LastSeenServiceImpl lastSeen = lastSeen(2, Duration.ofSeconds(30), 100);
+        lastSeen.record(activity(40, 1, "older"));
+        lastSeen.record(activity(41, 2, "view"));
+        lastSeen.record(activity(42, 3, "view"));
+
+        lastSeen.flush();
+
+        verify(rows, times(2)).saveAll(anyIterable());
+        assertEquals(List.of(50L, 41L, 42L), persistedActivityIds());
+        lastSeen.flush();
+        verify(rows, times(2)).saveAll(anyIterable());
+    }
+
+    @Test
+    void flush_RequeuesAFailedBatchAndRetriesItOnTheNextFlush() {
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .doAnswer(delegatesTo(userLastActivityRepository))
+                .when(rows).saveAll(anyIterable());
+        LastSeenServiceImpl lastSeen = lastSeen(200, Duration.ofSeconds(30), 100);
+        lastSeen.record(activity(41, 2, "view"));
+
+        lastSeen.flush();
+        assertEquals(List.of(), persistedActivityIds());
+
+        lastSeen.record(activity(40, 2, "older"));
+        lastSeen.flush();
+
+        assertEquals(List.of(41L), persistedActivityIds());
+    }
+
+    @Test
+    void getLastSeen_RemembersUsersWithoutARowUntilTheTtlPasses() throws Exception {
+        jdbcTemplate.update("INSERT INTO user_last_activity (user_id, activity_id, action, last_seen_at) VALUES (1, 50, 'view', ?)",
+                LocalDateTime.now());
+        LastSeenServiceImpl lastSeen = lastSeen(200, Duration.ofMillis(500), 2);
+
+        assertEquals(List.of(1L), userIds(lastSeen.getLastSeen(List.of(1L, 2L))));
+        assertEquals(List.of(1L), userIds(lastSeen.getLastSeen(List.of(1L, 2L))));
+        verify(rows, times(1)).findAllById(any());
+
+        lastSeen.record(activity(60, 2, "view"));
+        assertEquals(List.of(1L, 2L), userIds(lastSeen.getLastSeen(List.of(1L, 2L))));
+        verify(rows, times(1)).findAllById(any());
+
+        // Least recently asked goes first once more users are missing than max-missing.
+        lastSeen.getLastSeen(List.of(3L));
+        lastSeen.getLastSeen(List.of(4L));
+        lastSeen.getLastSeen(List.of(5L));
+        lastSeen.getLastSeen(List.of(4L, 5L));
+        lastSeen.getLastSeen(List.of(3L));
+        verify(rows, times(2)).findAllById(List.of(3L));
+        verify(rows, times(1)).findAllById(List.of(4L));
+
+        Thread.sleep(600);
+        lastSeen.getLastSeen(List.of(4L));
+        verify(rows, times(2)).findAllById(List.of(4L));
+    }
+
+    @Test
+    void reconcile_WalksUsersByKeysetAndUpsertsEachOnesNewestActivity() {
+        insertActivity(101, 1);
+        insertActivity(102, 2);
+        insertActivity(103, 3);
+        insertActivity(104, 5);
+        insertActivity(105, 1);
+        jdbcTemplate.update("INSERT INTO user_last_activity (user_id, activity_id, action, last_seen_at) VALUES (1, 101, 'view', ?)",
+                LocalDateTime.now());
+        LastSeenServiceImpl lastSeen = lastSeen(2, Duration.ofSeconds(30), 100);
+
+        lastSeen.reconcile();
+
+        assertEquals(List.of(105L, 102L, 103L, 104L), persistedActivityIds());
+        verify(users).findIdsAfter(0L, Limit.of(2));
+        verify(users).findIdsAfter(2L, Limit.of(2));
+        verify(users).findIdsAfter(4L, Limit.of(2));
+        verifyNoMoreInteractions(users);
+        verify(activities).findLatestForUsers(List.of(1L, 2L));
+        verify(activities).findLatestForUsers(List.of(3L, 4L));
+        verify(activities).findLatestForUsers(List.of(5L));
+
+        assertEquals(List.of(105L, 104L), lastSeen.getLastSeen(List.of(1L, 5L)).stream()
+                .map(LastSeenResponse::getActivityId).toList());
+        verify(rows, never()).findAllById(List.of(1L, 5L));
+    }
+
+    @Test
+    void reconcileOnStartup_HandsTheRebuildToTheScheduler() {
+        LastSeenServiceImpl lastSeen = lastSeen(200, Duration.ofSeconds(30), 100);
+
+        lastSeen.reconcileOnStartup();
+
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        verifyNoInteractions(users, activities);
+    }
+
+    private LastSeenServiceImpl lastSeen(int batchSize, Duration negativeTtl, int maxMissing) {
+        return new LastSeenServiceImpl(rows, activities, users, transactionManager, taskScheduler,
+                batchSize, negativeTtl, maxMissing);
+    }
+
+    private void insertActivity(long id, long userId) {
+        jdbcTemplate.update("INSERT INTO activities (id, user_id, action, details, timestamp) VALUES (?, ?, 'view', 'd', ?)",
+                id, userId, LocalDateTime.now());
+    }
+
+    private List<Long> persistedActivityIds() {
+        return jdbcTemplate.queryForList("SELECT activity_id FROM user_last_activity ORDER BY user_id", Long.class);
+    }
+
+    private static ActivityResponse activity(long id, long userId, String action) {
+        return ActivityResponse.builder().id(id).userId(userId).action(action).timestamp(LocalDateTime.now()).build();
+    }
+
+    private static List<Long> userIds(List<LastSeenResponse> entries) {
+        return entries.stream().map(LastSeenResponse::getUserId).toList();
+    }
+
+    private static LastSeenResponse only(List<LastSeenResponse> entries) {
+        assertEquals(1, entries.size());
+        return entries.get(0);
+    }
+}
@@ -0,0 +1,275 @@
+package com.richard.activitytracker.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.cluster.LocalClusterBus;
+import com.richard.activitytracker.config.RetentionProperties;
+import com.richard.activitytracker.dto.RetentionPolicyStatus;
+import com.richard.activitytracker.model.RetentionCheckpoint;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.repository.ActivityRepository;
+import com.richard.activitytracker.repository.RetentionCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/** Runs against the Flyway schema on H2; chunks commit for real, so the test itself is not transactional. */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RetentionServiceImplTest {
+
+    private static final long USER_ID = 1;
+    private static final long ADMIN_ID = 2;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+    @Autowired
+    private RetentionCheckpointRepository checkpointRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<LocalClusterBus> buses = new ArrayList<>();
+    private final RetentionProperties properties = new RetentionProperties();
+    private final WriteLatencyMonitor writeLatencyMonitor = mock(WriteLatencyMonitor.class);
+    private ActivityRepository activities;
+
+    @BeforeEach
+    void seedUsers() {
+        jdbcTemplate.update("DELETE FROM user_last_activity");
+        jdbcTemplate.update("DELETE FROM activities");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM retention_checkpoint WHERE policy_key <> 'lock'");
+        jdbcTemplate.update("UPDATE retention_checkpoint SET locked_by = NULL, locked_until = NULL");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, email, role) VALUES (?, 'user', 'x', 'user@example.com', 'USER')", USER_ID);
+        jdbcTemplate.update("INSERT INTO users (id, username, password, email, role) VALUES (?, 'admin', 'x', 'admin@example.com', 'ADMIN')", ADMIN_ID);
+        activities = mock(ActivityRepository.class, delegatesTo(activityRepository));
+        properties.setEnabled(true);
+        properties.setChunkSize(2);
+        properties.setPauseBetweenChunks(Duration.ZERO);
+        properties.getRoles().put(Role.USER, Duration.ofDays(10));
+        when(writeLatencyMonitor.average()).thenReturn(Duration.ofMillis(80));
+    }
+
+    @AfterEach
+    void closeBuses() {
+        buses.forEach(LocalClusterBus::close);
+    }
+
+    @Test
+    void purge_DeletesOnlyRowsPastTheirPolicyInCheckpointedChunks() {
+        properties.getRoles().put(Role.ADMIN, Duration.ofDays(100));
+        properties.getActions().put("login", Duration.ofDays(1));
+        properties.getActions().put("audit", Duration.ofDays(365));
+        insert(101, USER_ID, "view", Duration.ofDays(30));
+        insert(102, USER_ID, "audit", Duration.ofDays(29));
+        insert(103, ADMIN_ID, "view", Duration.ofDays(28));
+        insert(104, USER_ID, "view", Duration.ofDays(27));
+        insert(105, USER_ID, "view", Duration.ofDays(26));
+        insert(201, ADMIN_ID, "login", Duration.ofDays(3));
+        insert(202, USER_ID, "view", Duration.ofDays(2));
+        insert(203, USER_ID, "login", Duration.ofHours(1));
+        ActivityVersionTracker tracker = new ActivityVersionTracker();
+
+        retention("node-a", tracker).purge();
+
+        assertEquals(List.of(102L, 103L, 202L, 203L), remainingIds());
+        InOrder chunks = inOrder(activities);
+        // From the checkpoint the first chunk jumps to the lowest id, and a gap in ids is skipped the same way.
+        chunks.verify(activities).deleteByActionInRange(eq("login"), any(), eq(100L), eq(102L));
+        chunks.verify(activities).deleteByActionInRange(eq("login"), any(), eq(102L), eq(104L));
+        chunks.verify(activities).deleteByActionInRange(eq("login"), any(), eq(104L), eq(106L));
+        chunks.verify(activities).deleteByActionInRange(eq("login"), any(), eq(200L), eq(202L));
+        // Ending at the frontier, the newest row older than the cutoff.
+        chunks.verify(activities).deleteByRoleInRangeExcludingActions(eq(Role.USER), any(), any(), eq(100L), eq(102L));
+        chunks.verify(activities).deleteByRoleInRangeExcludingActions(eq(Role.USER), any(), any(), eq(102L), eq(104L));
+        chunks.verify(activities).deleteByRoleInRangeExcludingActions(eq(Role.USER), any(), any(), eq(104L), eq(105L));
+        verify(activities, never()).deleteByActionInRange(eq("audit"), any(), anyLong(), anyLong());
+        verify(activities, never()).deleteByRoleInRange(any(), any(), anyLong(), anyLong());
+        assertEquals(7, meterRegistry.get("activity.retention.chunk.duration").timer().count());
+
+        assertCheckpoint("action:login", 202, 1);
+        assertCheckpoint("role:USER", 105, 3);
+        assertTrue(checkpointRepository.findById("action:audit").isEmpty());
+        assertEquals(3.0, meterRegistry.get("activity.retention.rows.purged").tag("policy", "role:USER").counter().count());
+        // Only chunks that deleted something move the validators: the last login chunk and all three role chunks.
+        assertEquals(4, tracker.purgeGeneration());
+        assertNull(checkpointRepository.findById(RetentionServiceImpl.LOCK_KEY).orElseThrow().getLockedBy());
+    }
+
+    @Test
+    void purge_StopsWhileWritesAreSlowAndResumesFromTheCheckpoint() {
+        for (long id = 101; id <= 105; id++) {
+            insert(id, USER_ID, "view", Duration.ofDays(30));
+        }
+        when(writeLatencyMonitor.exceeds(any())).thenReturn(false, true);
+        RetentionServiceImpl retention = retention("node-a", new ActivityVersionTracker());
+
+        retention.purge();
+
+        assertEquals(List.of(103L, 104L, 105L), remainingIds());
+        assertCheckpoint("role:USER", 102, 2);
+        assertTrue(retention.getStatus().isPaused());
+        assertEquals(1.0, meterRegistry.get("activity.retention.paused").counter().count());
+
+        when(writeLatencyMonitor.exceeds(any())).thenReturn(false);
+        retention.purge();
+
+        assertEquals(List.of(), remainingIds());
+        assertFalse(retention.getStatus().isPaused());
+        verify(activities).deleteByRoleInRange(eq(Role.USER), any(), eq(102L), eq(104L));
+        assertCheckpoint("role:USER", 105, 5);
+    }
+
+    @Test
+    void purge_ResumesFromTheLastCommittedChunkAfterOneRollsBack() {
+        for (long id = 101; id <= 105; id++) {
+            insert(id, USER_ID, "view", Duration.ofDays(30));
+        }
+        ActivityVersionTracker tracker = mock(ActivityVersionTracker.class);
+        doNothing().doThrow(new IllegalStateException("boom")).doNothing().when(tracker).recordPurge();
+
+        assertThrows(IllegalStateException.class, () -> retention("node-a", tracker).purge());
+
+        assertEquals(List.of(103L, 104L, 105L), remainingIds());
+        assertCheckpoint("role:USER", 102, 2);
+        assertNull(checkpointRepository.findById(RetentionServiceImpl.LOCK_KEY).orElseThrow().getLockedBy());
+
+        // A restarted node only has the stored checkpoint to go on.
+        activities = mock(ActivityRepository.class, delegatesTo(activityRepository));
+        retention("node-a", tracker).purge();
+
+        assertEquals(List.of(), remainingIds());
+        verify(activities).deleteByRoleInRange(eq(Role.USER), any(), eq(102L), eq(104L));
+        verify(activities, never()).deleteByRoleInRange(eq(Role.USER), any(), eq(100L), anyLong());
+        assertCheckpoint("role:USER", 105, 5);
+    }
+
+    @Test
+    void purge_RescansFromTheStartWhenRowsLandBehindTheCheckpoint() {
+        insert(101, USER_ID, "view", Duration.ofDays(30));
+        insert(102, USER_ID, "view", Duration.ofDays(1));
+        RetentionServiceImpl retention = retention("node-a", new ActivityVersionTracker());
+        retention.purge();
+        assertCheckpoint("role:USER", 101, 1);
+
+        insert(50, USER_ID, "view", Duration.ofDays(20));
+        retention.purge();
+
+        RetentionPolicyStatus status = retention.getStatus().getPolicies().get(0);
+        assertTrue(status.getLagSeconds() >= Duration.ofDays(10).toSeconds());
+        assertEquals(0L, status.getLastPurgedId());
+        assertEquals(List.of(50L, 102L), remainingIds());
+
+        retention.purge();
+
+        assertEquals(List.of(102L), remainingIds());
+        assertEquals(0L, retention.getStatus().getPolicies().get(0).getLagSeconds());
+        assertCheckpoint("role:USER", 50, 2);
+    }
+
+    @Test
+    void purge_RunsOnlyOnTheLeaseHolderAndStopsWhenTheLeaseIsTaken() {
+        for (long id = 101; id <= 105; id++) {
+            insert(id, USER_ID, "view", Duration.ofDays(30));
+        }
+        lease("node-b", Duration.ofMinutes(1));
+        RetentionServiceImpl retention = retention("node-a", new ActivityVersionTracker());
+
+        retention.purge();
+
+        assertEquals(5, remainingIds().size());
+        assertEquals("node-b", checkpointRepository.findById(RetentionServiceImpl.LOCK_KEY).orElseThrow().getLockedBy());
+
+        // node-b's lease runs out; node-a takes over until node-b grabs it back after the first chunk.
+        lease("node-b", Duration.ofMinutes(-1));
+        AtomicInteger checks = new AtomicInteger();
+        when(writeLatencyMonitor.exceeds(any())).thenAnswer(invocation -> {
+            if (checks.incrementAndGet() == 2) {
+                lease("node-b", Duration.ofMinutes(1));
+            }
+            return false;
+        });
+        retention.purge();
+
+        assertEquals(List.of(103L, 104L, 105L), remainingIds());
+        assertCheckpoint("role:USER", 102, 2);
+        assertEquals("node-b", checkpointRepository.findById(RetentionServiceImpl.LOCK_KEY).orElseThrow().getLockedBy());
+    }
+
+    @Test
+    void purge_PublishesCommittedPurgesSoPeersMoveTheirValidators() {
+        insert(101, USER_ID, "view", Duration.ofDays(30));
+        insert(102, USER_ID, "view", Duration.ofDays(30));
+        insert(103, USER_ID, "view", Duration.ofDays(30));
+        ActivityVersionTracker local = new ActivityVersionTracker();
+        ActivityVersionTracker peer = new ActivityVersionTracker();
+        RetentionServiceImpl nodeA = retention("node-a", local);
+        retention("node-b", peer);
+        String before = peer.globalETag();
+
+        nodeA.purge();
+
+        assertEquals(List.of(), remainingIds());
+        assertEquals(2, local.purgeGeneration());
+        assertEquals(2, peer.purgeGeneration());
+        assertNotEquals(before, peer.globalETag());
+    }
+
+    private RetentionServiceImpl retention(String nodeId, ActivityVersionTracker tracker) {
+        RetentionServiceImpl retention = new RetentionServiceImpl(properties, activities, checkpointRepository, tracker,
+                writeLatencyMonitor, bus(nodeId), meterRegistry, transactionManager);
+        retention.subscribe();
+        return retention;
+    }
+
+    private ClusterBus bus(String nodeId) {
+        LocalClusterBus bus = new LocalClusterBus(nodeId, objectMapper, new SimpleMeterRegistry());
+        buses.add(bus);
+        return bus;
+    }
+
+    private void insert(long id, long userId, String action, Duration age) {
+        jdbcTemplate.update("INSERT INTO activities (id, user_id, action, details, timestamp) VALUES (?, ?, ?, 'd', ?)",
+                id, userId, action, LocalDateTime.now().minus(age));
+    }
+
+    private void lease(String nodeId, Duration remaining) {
+        jdbcTemplate.update("UPDATE retention_checkpoint SET locked_by = ?, locked_until = ? WHERE policy_key = ?",
+                nodeId, LocalDateTime.now().plus(remaining), RetentionServiceImpl.LOCK_KEY);
+    }
+
+    private List<Long> remainingIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM activities ORDER BY id", Long.class);
+    }
+
+    private void assertCheckpoint(String policy, long lastId, long rowsPurged) {
+        RetentionCheckpoint checkpoint = checkpointRepository.findById(policy).orElseThrow();
+        assertEquals(lastId, checkpoint.getLastId());
+        assertEquals(rowsPurged, checkpoint.getRowsPurged());
+    }
+}
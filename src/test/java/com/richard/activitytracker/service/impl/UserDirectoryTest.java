@@ -0,0 +1,91 @@
+package com.richard.activitytracker.service.impl;
+
+import com.richard.activitytracker.cluster.ClusterBus;
+import com.richard.activitytracker.config.UserDirectoryProperties;
+import com.richard.activitytracker.model.Role;
+import com.richard.activitytracker.model.User;
+import com.richard.activitytracker.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserDirectoryTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ClusterBus clusterBus = mock(ClusterBus.class);
+    private final UserDirectory directory =
+            new UserDirectory(userRepository, clusterBus, new UserDirectoryProperties(), new SimpleMeterRegistry());
+    private final User alice = User.builder().id(7L).username("alice").email("alice@example.com").role(Role.USER).build();
+
+    @Test
+    void find_CachesFoundAndMissingUsersUntilAChangeArrives() {
+        when(userRepository.findById(7L)).thenReturn(Optional.of(alice));
+        when(userRepository.findById(8L)).thenReturn(Optional.empty());
+
+        assertEquals("alice", directory.find(7L).orElseThrow().username());
+        assertTrue(directory.exists(7L));
+        assertFalse(directory.exists(8L));
+        assertFalse(directory.exists(8L));
+        verify(userRepository, times(1)).findById(7L);
+        verify(userRepository, times(1)).findById(8L);
+
+        directory.changed(User.builder().id(8L).username("bob").email("bob@example.com").role(Role.ADMIN).build());
+
+        assertEquals(Role.ADMIN, directory.find(8L).orElseThrow().role());
+        verify(userRepository, times(1)).findById(8L);
+        verify(clusterBus).publish(eq(UserDirectory.CHANNEL), any(UserDirectory.UserSummary.class));
+    }
+
+    @Test
+    void find_EvictsTheLeastRecentlyLookedUpUserWhenFull() {
+        UserDirectoryProperties properties = new UserDirectoryProperties();
+        properties.setMaxEntries(2);
+        UserDirectory directory = new UserDirectory(userRepository, clusterBus, properties, new SimpleMeterRegistry());
+        when(userRepository.findById(any())).thenReturn(Optional.empty());
+
+        directory.find(1L);
+        directory.find(2L);
+        directory.find(1L);
+        directory.find(3L);
+        directory.find(1L);
+        directory.find(2L);
+
+        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, times(2)).findById(2L);
+        verify(userRepository, times(1)).findById(3L);
+    }
+
+    @Test
+    void usernameTaken_SkipsTheQueryOnlyForNamesTheFilterHasNeverSeen() {
+        when(userRepository.findAllIdentitiesBy()).thenReturn(List.of(identity("alice", "alice@example.com")));
+        when(userRepository.existsByUsername("alice")).thenReturn(true);
+        directory.loadFilters();
+
+        assertTrue(directory.usernameTaken("alice"));
+        assertFalse(directory.usernameTaken("carol"));
+        assertFalse(directory.emailTaken("carol@example.com"));
+        verify(userRepository, never()).existsByUsername("carol");
+        verify(userRepository, never()).existsByEmail(any());
+    }
+
+    private static UserRepository.Identity identity(String username, String email) {
+        return new UserRepository.Identity() {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+}
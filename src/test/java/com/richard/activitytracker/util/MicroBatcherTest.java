@@ -0,0 +1,57 @@
+package com.richard.activitytracker.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void offer_AfterQuietWindow_EmitsImmediately() {
+        MicroBatcher<Integer> batcher = new MicroBatcher<>(Duration.ofSeconds(10), 100, batches::add, scheduler);
+
+        batcher.offer(1);
+
+        assertEquals(List.of(List.of(1)), batches);
+    }
+
+    @Test
+    void offer_BurstWithinWindow_EmitsOneBatchWhenWindowCloses() throws Exception {
+        MicroBatcher<Integer> batcher = new MicroBatcher<>(Duration.ofMillis(100), 100, batches::add, scheduler);
+
+        batcher.offer(1);
+        batcher.offer(2);
+        batcher.offer(3);
+        assertEquals(List.of(List.of(1)), batches);
+
+        scheduler.schedule(() -> { }, 200, TimeUnit.MILLISECONDS).get();
+        assertEquals(List.of(List.of(1), List.of(2, 3)), batches);
+    }
+
+    @Test
+    void offer_BatchFull_EmitsWithoutWaitingForWindow() {
+        MicroBatcher<Integer> batcher = new MicroBatcher<>(Duration.ofSeconds(10), 3, batches::add, scheduler);
+
+        for (int i = 1; i <= 4; i++) {
+            batcher.offer(i);
+        }
+
+        assertEquals(List.of(List.of(1), List.of(2, 3, 4)), batches);
+    }
+}
@@ -0,0 +1,87 @@
+package com.richard.activitytracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_ConcurrentCallersWithSameKey_ShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        try {
+            Future<SingleFlight.Result<Integer>> leader = executor.submit(() -> singleFlight.execute("page-0", () -> {
+                executions.incrementAndGet();
+                leaderStarted.countDown();
+                await(release);
+                return 42;
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            List<Future<SingleFlight.Result<Integer>>> followers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("page-0", () -> {
+                    executions.incrementAndGet();
+                    return -1;
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            assertFalse(leader.get(5, TimeUnit.SECONDS).shared());
+            for (Future<SingleFlight.Result<Integer>> follower : followers) {
+                SingleFlight.Result<Integer> result = follower.get(5, TimeUnit.SECONDS);
+                assertEquals(42, result.value());
+                assertTrue(result.shared());
+            }
+            assertEquals(1, executions.get());
+            assertEquals(0, singleFlight.inFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_AfterCompletion_RunsLoaderAgain() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("page-0", executions::incrementAndGet);
+        SingleFlight.Result<Integer> second = singleFlight.execute("page-0", executions::incrementAndGet);
+
+        assertEquals(2, second.value());
+        assertFalse(second.shared());
+    }
+
+    @Test
+    void execute_LoaderFails_ExceptionPropagatesAndKeyIsReleased() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("page-0", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.richard.activitytracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    void advance_FiresItemsOnceTheirDelayHasPassedAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 8, now::get);
+        wheel.schedule("a", Duration.ofMillis(25));
+        wheel.schedule("b", Duration.ofMillis(10));
+
+        advanceTo(Duration.ofMillis(20), wheel);
+        assertEquals(List.of("b"), fired);
+
+        advanceTo(Duration.ofMillis(29), wheel);
+        assertEquals(List.of("b"), fired);
+
+        advanceTo(Duration.ofMillis(30), wheel);
+        assertEquals(List.of("b", "a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_KeepsItemsBeyondOneRevolutionForTheirRound() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 4, now::get);
+        wheel.schedule("far", Duration.ofMillis(100));
+
+        advanceTo(Duration.ofMillis(60), wheel);
+        assertTrue(fired.isEmpty());
+        assertEquals(1, wheel.size());
+
+        advanceTo(Duration.ofMillis(100), wheel);
+        assertEquals(List.of("far"), fired);
+    }
+
+    @Test
+    void advance_CatchesUpAfterMissingManyTicks() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 4, now::get);
+        for (int i = 0; i < 10; i++) {
+            wheel.schedule("item" + i, Duration.ofMillis(10L * i));
+        }
+
+        advanceTo(Duration.ofSeconds(5), wheel);
+
+        assertEquals(10, fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    private void advanceTo(Duration elapsed, TimingWheel<String> wheel) {
+        now.set(elapsed.toNanos());
+        wheel.advance(fired::add);
+    }
+}
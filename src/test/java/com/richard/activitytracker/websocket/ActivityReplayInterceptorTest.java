@@ -0,0 +1,255 @@
+package com.richard.activitytracker.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.richard.activitytracker.config.BroadcastProperties;
+import com.richard.activitytracker.config.WebSocketEncodingProperties;
+import com.richard.activitytracker.dto.ActivityResponse;
+import com.richard.activitytracker.service.ActivityService;
+import com.richard.activitytracker.service.impl.ActivityEventLog;
+import com.richard.activitytracker.service.impl.ActivitySnapshotCache;
+import com.richard.activitytracker.service.impl.ActivityVersionTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ActivityReplayInterceptorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ActivityEventLog eventLog = new ActivityEventLog(4);
+    private final ActivityService activityService = mock(ActivityService.class);
+    private final ActivitySnapshotCache snapshotCache = new ActivitySnapshotCache(activityService, eventLog,
+            new ActivityVersionTracker(), objectMapper, mock(PlatformTransactionManager.class), meterRegistry, 10);
+    private final MessageHandler clientMessageHandler = mock(MessageHandler.class);
+    private final SimpleBrokerMessageHandler broker = mock(SimpleBrokerMessageHandler.class);
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    private final ActivityReplayInterceptor interceptor = new ActivityReplayInterceptor(
+            eventLog, activityService, snapshotCache, new BroadcastProperties(), objectMapper, clientMessageHandler,
+            new PayloadEncodingInterceptor(new WebSocketEncodingProperties(), objectMapper, meterRegistry),
+            meterRegistry, 3, 2);
+
+    @Test
+    void subscribe_WithoutCursor_SendsTheSnapshot() throws Exception {
+        when(activityService.getRecentActivities(any())).thenReturn(new PageImpl<>(List.of(activity(2), activity(1))));
+
+        subscribe(Map.of(), null);
+
+        List<JsonNode> bodies = delivered();
+        assertEquals(1, bodies.size());
+        assertEquals(List.of(2L, 1L), ids(bodies.get(0)));
+        assertReplayed("snapshot");
+    }
+
+    @Test
+    void subscribe_WithCursorFromConnect_ReplaysMissedEntriesFromTheLog() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            eventLog.append(activity(id));
+        }
+        connect(Map.of(ActivityReplayInterceptor.STREAM_HEADER, eventLog.stream(),
+                ActivityReplayInterceptor.LAST_SEQ_HEADER, "1"));
+
+        subscribe(Map.of(), null);
+
+        assertEquals(List.of(2L, 3L), delivered().stream().map(body -> body.get("id").asLong()).toList());
+        assertReplayed("log");
+        verify(activityService, never()).getActivitiesAfter(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void subscribe_WithCursorFromAnotherStream_ReplaysFromTheDatabaseAndNewerLogEntries() throws Exception {
+        when(activityService.getActivitiesAfter(eq(10L), any(), any(), eq(3))).thenReturn(List.of(activity(11), activity(12)));
+        eventLog.append(activity(12));
+        eventLog.append(activity(13));
+
+        subscribe(Map.of(ActivityReplayInterceptor.STREAM_HEADER, "earlier",
+                ActivityReplayInterceptor.LAST_SEQ_HEADER, "40",
+                ActivityReplayInterceptor.LAST_ID_HEADER, "10"), null);
+
+        assertEquals(List.of(11L, 12L, 13L), delivered().stream().map(body -> body.get("id").asLong()).toList());
+        assertReplayed("database");
+    }
+
+    @Test
+    void subscribe_WithGapTooLargeOrUnknown_SendsResync() throws Exception {
+        when(activityService.getActivitiesAfter(eq(10L), any(), any(), eq(3)))
+                .thenReturn(List.of(activity(11), activity(12), activity(13)));
+
+        subscribe(Map.of(ActivityReplayInterceptor.LAST_ID_HEADER, "10"), null);
+
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(clientMessageHandler).handleMessage(sent.capture());
+        assertEquals("true", SimpMessageHeaderAccessor.wrap(sent.getValue()).getFirstNativeHeader("resync"));
+        assertEquals("resync", objectMapper.readTree((byte[]) sent.getValue().getPayload()).get("type").asText());
+        assertReplayed("resync");
+    }
+
+    @Test
+    void subscribe_NeverHoldsTheLogSoWritersAreNotStalled() throws Exception {
+        when(activityService.getRecentActivities(any())).thenReturn(new PageImpl<>(List.of(activity(1))));
+        Message<byte[]> message = subscribeMessage(Map.of());
+
+        interceptor.beforeHandle(message, null, broker);
+        CompletableFuture.runAsync(() -> eventLog.append(activity(2))).get(1, TimeUnit.SECONDS);
+        interceptor.afterMessageHandled(message, null, broker, null);
+
+        assertEquals(List.of(2L, 1L), ids(delivered().get(0)));
+    }
+
+    @Test
+    void liveGate_ParksLiveFramesUntilTheReplayIsOutAndDropsThoseItCovered() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            eventLog.append(activity(id));
+        }
+        Message<byte[]> message = subscribeMessage(Map.of(ActivityReplayInterceptor.STREAM_HEADER, eventLog.stream(),
+                ActivityReplayInterceptor.LAST_SEQ_HEADER, "1"));
+        interceptor.beforeHandle(message, null, broker);
+
+        // Queued on an async broker before the subscription existed, or published while it replays.
+        assertNull(interceptor.liveGate().preSend(live(3), null));
+        eventLog.append(activity(4));
+        assertNull(interceptor.liveGate().preSend(live(4), null));
+        assertNull(interceptor.liveGate().preSend(live(5), null));
+        interceptor.afterMessageHandled(message, null, broker, null);
+
+        assertEquals(List.of(2L, 3L, 4L, 5L), delivered().stream().map(body -> body.get("id").asLong()).toList());
+        assertEquals(2.0, meterRegistry.get("activity.replay.overlap").counter().count());
+        Message<?> next = live(6);
+        assertSame(next, interceptor.liveGate().preSend(next, null));
+    }
+
+    @Test
+    void liveGate_DropsFramesAtOrBelowTheReplayUntilOnePassesIt() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            eventLog.append(activity(id));
+        }
+        subscribe(Map.of(ActivityReplayInterceptor.STREAM_HEADER, eventLog.stream(),
+                ActivityReplayInterceptor.LAST_SEQ_HEADER, "1"), null);
+
+        assertNull(interceptor.liveGate().preSend(live(2), null));
+        assertNull(interceptor.liveGate().preSend(live(3), null));
+        Message<?> newer = live(4);
+        assertSame(newer, interceptor.liveGate().preSend(newer, null));
+        Message<?> older = live(3);
+        assertSame(older, interceptor.liveGate().preSend(older, null));
+        assertEquals(2.0, meterRegistry.get("activity.replay.overlap").counter().count());
+    }
+
+    @Test
+    void afterMessageHandled_ReleasesParkedFramesWhenSubscribingOrReplayingFails() throws Exception {
+        when(activityService.getActivitiesAfter(eq(10L), any(), any(), eq(3)))
+                .thenReturn(List.of(activity(11), activity(12), activity(13)));
+        Message<byte[]> rejected = subscribeMessage(Map.of(ActivityReplayInterceptor.LAST_ID_HEADER, "10"));
+        interceptor.beforeHandle(rejected, null, broker);
+        interceptor.afterMessageHandled(rejected, null, broker, new MessagingException("broker rejected"));
+
+        verifyNoInteractions(clientMessageHandler);
+        Message<?> unaffected = live(1);
+        assertSame(unaffected, interceptor.liveGate().preSend(unaffected, null));
+
+        doThrow(new MessagingException("session closed")).doNothing().when(clientMessageHandler).handleMessage(any());
+        Message<byte[]> failing = subscribeMessage(Map.of(ActivityReplayInterceptor.LAST_ID_HEADER, "10"));
+        interceptor.beforeHandle(failing, null, broker);
+        assertNull(interceptor.liveGate().preSend(live(2), null));
+        interceptor.afterMessageHandled(failing, null, broker, null);
+
+        verify(clientMessageHandler, times(2)).handleMessage(any());
+        Message<?> next = live(3);
+        assertSame(next, interceptor.liveGate().preSend(next, null));
+    }
+
+    @Test
+    void beforeHandle_IgnoresSubscriptionsNotBoundForTheBroker() throws Exception {
+        Message<byte[]> message = subscribeMessage(Map.of());
+
+        assertSame(message, interceptor.beforeHandle(message, null, mock(MessageHandler.class)));
+        interceptor.afterMessageHandled(message, null, mock(MessageHandler.class), null);
+
+        verifyNoInteractions(clientMessageHandler, activityService);
+        Message<?> frame = live(1);
+        assertSame(frame, interceptor.liveGate().preSend(frame, null));
+    }
+
+    private void connect(Map<String, String> headers) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(sessionAttributes);
+        headers.forEach(accessor::setNativeHeader);
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    private void subscribe(Map<String, String> headers, Exception handlingFailure) {
+        Message<byte[]> message = subscribeMessage(headers);
+        interceptor.beforeHandle(message, null, broker);
+        interceptor.afterMessageHandled(message, null, broker, handlingFailure);
+    }
+
+    private Message<byte[]> subscribeMessage(Map<String, String> headers) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/activities");
+        accessor.setSessionAttributes(sessionAttributes);
+        headers.forEach(accessor::setNativeHeader);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private List<JsonNode> delivered() throws Exception {
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(clientMessageHandler, atLeastOnce()).handleMessage(sent.capture());
+        List<JsonNode> bodies = new ArrayList<>();
+        for (Message<?> message : sent.getAllValues()) {
+            assertEquals("sub-0", SimpMessageHeaderAccessor.wrap(message).getSubscriptionId());
+            bodies.add(objectMapper.readTree((byte[]) message.getPayload()));
+        }
+        return bodies;
+    }
+
+    private static List<Long> ids(JsonNode array) {
+        List<Long> ids = new ArrayList<>();
+        array.forEach(node -> ids.add(node.get("id").asLong()));
+        return ids;
+    }
+
+    private void assertReplayed(String source) {
+        assertEquals(1.0, meterRegistry.get("activity.replay").tag("source", source).counter().count());
+    }
+
+    /** A live frame for the test subscription, as the broker hands it to the outbound channel. */
+    private Message<byte[]> live(long sequence) throws Exception {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/activities");
+        accessor.setNativeHeader(ActivityReplayInterceptor.SEQUENCE_HEADER, Long.toString(sequence));
+        byte[] body = objectMapper.writeValueAsBytes(activity(sequence).toBuilder().sequence(sequence).build());
+        return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+    }
+
+    private static ActivityResponse activity(long id) {
+        return ActivityResponse.builder().id(id).userId(1L).action("LOGIN").build();
+    }
+}
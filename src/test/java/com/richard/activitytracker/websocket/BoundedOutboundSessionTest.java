@@ -0,0 +1,118 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketOutboundProperties;
+import com.richard.activitytracker.config.WebSocketOutboundProperties.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BoundedOutboundSessionTest {
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseWrites = new CountDownLatch(1);
+    private OutboundSessionRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        releaseWrites.countDown();
+        if (registry != null) {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    void conflate_ReplacesQueuedActivityFramesWithOneResyncFramePerSubscription() throws Exception {
+        WebSocketSession delegate = blockingDelegate();
+        BoundedOutboundSession session = new BoundedOutboundSession(delegate, registry(OverflowPolicy.CONFLATE));
+
+        session.sendMessage(frame("sub-0", "/topic/activities", 0));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        // Frames are ~270 bytes against a 1000 byte limit: the fourth queued one overflows.
+        for (int i = 1; i <= 7; i++) {
+            session.sendMessage(frame("sub-0", "/topic/activities", i));
+        }
+        releaseWrites.countDown();
+
+        awaitWritten(5);
+        assertTrue(written.get(0).endsWith("activity-0\0"));
+        assertTrue(written.get(1).contains("subscription:sub-0\n"));
+        assertTrue(written.get(1).contains("destination:/topic/activities\n"));
+        assertTrue(written.get(1).contains("resync:true\n"));
+        assertTrue(written.get(1).endsWith("{\"type\":\"resync\",\"missed\":4}\0"));
+        assertTrue(written.get(2).endsWith("activity-5\0"));
+        assertTrue(written.get(4).endsWith("activity-7\0"));
+        assertEquals(0, session.getQueuedBytes());
+        verify(delegate, never()).close(any());
+    }
+
+    @Test
+    void disconnect_ClosesSessionOnceQueueOverflows() throws Exception {
+        WebSocketSession delegate = blockingDelegate();
+        BoundedOutboundSession session = new BoundedOutboundSession(delegate, registry(OverflowPolicy.DISCONNECT));
+
+        session.sendMessage(frame("sub-0", "/topic/activities", 0));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            session.sendMessage(frame("sub-0", "/topic/activities", i));
+        }
+
+        verify(delegate, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, session.getQueuedFrames());
+    }
+
+    @Test
+    void messageTarget_ReadsSubscriptionAndDestinationOfMessageFramesOnly() {
+        assertArrayEquals(new String[]{"sub-3", "/topic/activities/user/7"},
+                BoundedOutboundSession.messageTarget(frame("sub-3", "/topic/activities/user/7", 1)));
+        assertNull(BoundedOutboundSession.messageTarget(new TextMessage("CONNECTED\nversion:1.2\n\n\0")));
+        assertNull(BoundedOutboundSession.messageTarget(new TextMessage("\n")));
+    }
+
+    private OutboundSessionRegistry registry(OverflowPolicy policy) {
+        WebSocketOutboundProperties properties = new WebSocketOutboundProperties();
+        properties.setBufferSizeLimit(DataSize.ofBytes(1000));
+        properties.setOverflow(policy);
+        registry = new OutboundSessionRegistry(properties, new SimpleMeterRegistry());
+        return registry;
+    }
+
+    private WebSocketSession blockingDelegate() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("s1");
+        doAnswer(invocation -> {
+            firstWriteStarted.countDown();
+            assertTrue(releaseWrites.await(5, TimeUnit.SECONDS));
+            written.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(delegate).sendMessage(any(WebSocketMessage.class));
+        return delegate;
+    }
+
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (written.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, written.size(), () -> "written: " + written);
+    }
+
+    private static TextMessage frame(String subscription, String destination, int n) {
+        return new TextMessage("MESSAGE\ndestination:" + destination + "\ncontent-type:application/json\nsubscription:"
+                + subscription + "\nmessage-id:m-" + n + "\n\n" + "x".repeat(200) + "activity-" + n + "\0");
+    }
+}
@@ -0,0 +1,97 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketChannelProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelExecutorsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void outbound_RunsOnCallerAndCountsRejectionWhenPoolAndQueueAreFull() throws Exception {
+        WebSocketChannelProperties properties = new WebSocketChannelProperties();
+        properties.getOutbound().setCorePoolSize(1);
+        properties.getOutbound().setMaxPoolSize(1);
+        properties.getOutbound().setQueueCapacity(1);
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) new ChannelExecutors(
+                properties, new MockEnvironment(), meterRegistry).outbound();
+        executor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicReference<Thread> overflowThread = new AtomicReference<>();
+        try {
+            executor.execute(() -> await(release, done));
+            executor.execute(() -> await(release, done));
+            executor.execute(() -> overflowThread.set(Thread.currentThread()));
+
+            assertSame(Thread.currentThread(), overflowThread.get());
+            assertEquals(1.0, meterRegistry.get("websocket.channel.rejected").tag("channel", "outbound").counter().count());
+            assertEquals(1.0, meterRegistry.get("websocket.channel.queue.size").tag("channel", "outbound").gauge().value());
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(3, meterRegistry.get("websocket.channel.task.run").tag("channel", "outbound").timer().count());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void broker_KeepsPublishOrderByBlockingThePublisherWhenFull() throws Exception {
+        WebSocketChannelProperties properties = new WebSocketChannelProperties();
+        properties.getBroker().setAsync(true);
+        properties.getBroker().setQueueCapacity(1);
+        ChannelExecutors channelExecutors = new ChannelExecutors(properties, new MockEnvironment(), meterRegistry);
+        ThreadPoolTaskExecutor broker = (ThreadPoolTaskExecutor) channelExecutors.broker();
+        broker.initialize();
+        StringBuffer handled = new StringBuffer();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            broker.execute(() -> {
+                awaitQuietly(release);
+                handled.append(0);
+            });
+            broker.execute(() -> handled.append(1));
+            Thread publisher = new Thread(() -> broker.execute(() -> handled.append(2)));
+            publisher.start();
+            publisher.join(100);
+
+            assertTrue(publisher.isAlive());
+            release.countDown();
+            publisher.join(5000);
+            broker.getThreadPoolExecutor().shutdown();
+            assertTrue(broker.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals("012", handled.toString());
+            assertEquals(1.0, meterRegistry.get("websocket.channel.rejected").tag("channel", "broker").counter().count());
+        } finally {
+            release.countDown();
+            broker.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch release, CountDownLatch done) {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        done.countDown();
+    }
+}
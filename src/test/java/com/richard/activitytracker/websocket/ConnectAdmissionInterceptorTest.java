@@ -0,0 +1,78 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketAdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectAdmissionInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void beforeHandshake_RejectsBeyondTheBurstWithA503AndJitteredRetryAfter() {
+        ConnectAdmissionInterceptor interceptor = interceptor(true, 1, 1, Duration.ofSeconds(30));
+        assertNull(handshake(interceptor));
+
+        Set<Long> retryAfters = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            Long retryAfter = handshake(interceptor);
+            assertNotNull(retryAfter);
+            assertTrue(retryAfter >= 1 && retryAfter <= 30, "Retry-After " + retryAfter);
+            retryAfters.add(retryAfter);
+        }
+
+        assertTrue(retryAfters.size() > 1, "Retry-After was not spread: " + retryAfters);
+        assertEquals(1.0, meterRegistry.get("websocket.admission").tag("outcome", "admitted").counter().count());
+        assertEquals(50.0, meterRegistry.get("websocket.admission").tag("outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void beforeHandshake_CapsRetryAfterAtTheConfiguredMaximum() {
+        ConnectAdmissionInterceptor interceptor = interceptor(true, 0.01, 1, Duration.ofSeconds(5));
+        handshake(interceptor);
+
+        assertEquals(5L, handshake(interceptor));
+    }
+
+    @Test
+    void beforeHandshake_AdmitsEverythingWhenDisabled() {
+        ConnectAdmissionInterceptor interceptor = interceptor(false, 1, 1, Duration.ofSeconds(30));
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(handshake(interceptor));
+        }
+    }
+
+    private ConnectAdmissionInterceptor interceptor(boolean enabled, double rate, int burst, Duration maxRetryAfter) {
+        WebSocketAdmissionProperties properties = new WebSocketAdmissionProperties();
+        properties.setEnabled(enabled);
+        properties.setRate(rate);
+        properties.setBurst(burst);
+        properties.setMaxRetryAfter(maxRetryAfter);
+        return new ConnectAdmissionInterceptor(properties, meterRegistry);
+    }
+
+    /** Null when admitted, otherwise the Retry-After of the 503. */
+    private static Long handshake(ConnectAdmissionInterceptor interceptor) {
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
+        if (interceptor.beforeHandshake(new ServletServerHttpRequest(new MockHttpServletRequest()), response,
+                null, new HashMap<>())) {
+            return null;
+        }
+        assertEquals(503, servletResponse.getStatus());
+        return Long.valueOf(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
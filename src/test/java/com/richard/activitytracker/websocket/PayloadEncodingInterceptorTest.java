@@ -0,0 +1,103 @@
+package com.richard.activitytracker.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.richard.activitytracker.config.WebSocketEncodingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadEncodingInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PayloadEncodingInterceptor interceptor =
+            new PayloadEncodingInterceptor(new WebSocketEncodingProperties(), new ObjectMapper(), meterRegistry);
+
+    @Test
+    void encode_TranscodesSharedPayloadOnceForEveryCborSession() throws Exception {
+        Map<String, Object> attributes = connect("session-1", "cbor");
+        connect("session-2", "CBOR");
+        connect("session-3", null);
+        byte[] json = "{\"id\":7,\"action\":\"LOGIN\",\"details\":\"from the dashboard\"}".getBytes(StandardCharsets.UTF_8);
+
+        Message<?> first = interceptor.preSend(message("session-1", json), null);
+        Message<?> second = interceptor.preSend(message("session-2", json), null);
+        Message<?> plain = interceptor.preSend(message("session-3", json), null);
+
+        assertEquals(Boolean.TRUE, attributes.get(PayloadEncodingInterceptor.BINARY_ATTRIBUTE));
+        assertEquals(PayloadEncodingInterceptor.APPLICATION_CBOR, SimpMessageHeaderAccessor.wrap(first).getContentType());
+        assertSame(first.getPayload(), second.getPayload());
+        JsonNode decoded = new CBORMapper().readTree((byte[]) first.getPayload());
+        assertEquals(new ObjectMapper().readTree(json), decoded);
+        assertSame(json, plain.getPayload());
+        assertEquals(1.0, meterRegistry.get("websocket.payload.transcoded").counter().count());
+    }
+
+    @Test
+    void encode_LeavesNonJsonAndUnnegotiatedSessionsAlone() {
+        connect("session-1", "protobuf");
+        connect("session-2", "cbor");
+        byte[] text = "plain".getBytes(StandardCharsets.UTF_8);
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("session-2");
+        accessor.setContentType(MimeTypeUtils.TEXT_PLAIN);
+        Message<byte[]> textMessage = MessageBuilder.createMessage(text, accessor.getMessageHeaders());
+        Message<byte[]> unsupported = message("session-1", "{}".getBytes(StandardCharsets.UTF_8));
+
+        assertSame(textMessage, interceptor.preSend(textMessage, null));
+        assertSame(unsupported, interceptor.preSend(unsupported, null));
+    }
+
+    @Test
+    void connectNegotiation_PassesInboundSendThroughUnchanged() {
+        connect("session-1", "cbor");
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setSessionId("session-1");
+        accessor.setDestination("/app/activities");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        byte[] json = "{\"action\":\"LOGIN\"}".getBytes(StandardCharsets.UTF_8);
+        Message<byte[]> send = MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+
+        Message<?> inbound = interceptor.connectNegotiation().preSend(send, null);
+
+        assertSame(send, inbound);
+        assertSame(json, inbound.getPayload());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, SimpMessageHeaderAccessor.wrap(inbound).getContentType());
+        assertEquals(0.0, meterRegistry.get("websocket.payload.transcoded").counter().count());
+    }
+
+    private Map<String, Object> connect(String sessionId, String encoding) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        Map<String, Object> attributes = new HashMap<>();
+        accessor.setSessionAttributes(attributes);
+        if (encoding != null) {
+            accessor.setNativeHeader(PayloadEncodingInterceptor.ENCODING_HEADER, encoding);
+        }
+        interceptor.connectNegotiation().preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+        return attributes;
+    }
+
+    private static Message<byte[]> message(String sessionId, byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/activities");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,74 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketPresenceProperties;
+import com.richard.activitytracker.dto.PresenceEvent;
+import com.richard.activitytracker.dto.PresenceResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PresenceRegistryTest {
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final OutboundSessionRegistry outboundSessionRegistry = mock(OutboundSessionRegistry.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void connectedAndDisconnected_PublishOnlyFirstAndLastSessionTransitions() {
+        PresenceRegistry registry = registry(Duration.ofMinutes(1));
+
+        registry.connected("s1", "alice");
+        registry.connected("s2", "alice");
+        registry.disconnected("s1");
+        assertEquals(List.of(status("alice", true, 1)), withoutSince(registry.getPresence(List.of("alice"))));
+
+        registry.disconnected("s2");
+        registry.disconnected("s2");
+
+        ArgumentCaptor<PresenceEvent> events = ArgumentCaptor.forClass(PresenceEvent.class);
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/presence"), events.capture());
+        assertEquals(List.of(PresenceEvent.Status.ONLINE, PresenceEvent.Status.OFFLINE),
+                events.getAllValues().stream().map(PresenceEvent::getStatus).toList());
+        assertEquals(List.of(status("alice", false, 0), status("bob", false, 0)),
+                withoutSince(registry.getPresence(List.of("alice", "bob"))));
+    }
+
+    @Test
+    void expireIdleSessions_DropsIdleSessionsOnlyOnceTheirSocketIsClosed() throws Exception {
+        PresenceRegistry registry = registry(Duration.ofMillis(30));
+        when(outboundSessionRegistry.isOpen("open")).thenReturn(true);
+        registry.connected("open", "alice");
+        registry.connected("gone", "bob");
+
+        Thread.sleep(80);
+        registry.expireIdleSessions();
+
+        assertTrue(registry.isOnline("alice"));
+        assertFalse(registry.isOnline("bob"));
+        assertEquals(1.0, meterRegistry.get("websocket.presence.expired").counter().count());
+    }
+
+    private PresenceRegistry registry(Duration idleTimeout) {
+        WebSocketPresenceProperties properties = new WebSocketPresenceProperties();
+        properties.setIdleTimeout(idleTimeout);
+        properties.setTick(Duration.ofMillis(10));
+        return new PresenceRegistry(properties, outboundSessionRegistry, messagingTemplate, meterRegistry);
+    }
+
+    private static PresenceResponse status(String user, boolean online, int sessions) {
+        return PresenceResponse.builder().user(user).online(online).sessions(sessions).build();
+    }
+
+    private static List<PresenceResponse> withoutSince(List<PresenceResponse> presence) {
+        presence.forEach(p -> p.setOnlineSince(null));
+        return presence;
+    }
+}
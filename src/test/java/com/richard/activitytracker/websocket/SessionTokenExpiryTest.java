@@ -0,0 +1,64 @@
+package com.richard.activitytracker.websocket;
+
+import com.richard.activitytracker.config.WebSocketAuthProperties;
+import com.richard.activitytracker.security.TokenDenylist;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.mockito.Mockito.*;
+
+class SessionTokenExpiryTest {
+
+    private final TokenDenylist tokenDenylist = mock(TokenDenylist.class);
+    private final OutboundSessionRegistry outboundSessionRegistry = mock(OutboundSessionRegistry.class);
+
+    @Test
+    void checkSessions_ClosesSessionsOnceTheirTokenExpires() throws Exception {
+        SessionTokenExpiry expiry = expiry(Duration.ofSeconds(30));
+        expiry.track("s1", claims("t1", 40));
+        expiry.track("s2", claims("t2", 60_000));
+
+        expiry.checkSessions();
+        verifyNoInteractions(outboundSessionRegistry);
+
+        Thread.sleep(80);
+        expiry.checkSessions();
+
+        verify(outboundSessionRegistry).close("s1", SessionTokenExpiry.TOKEN_EXPIRED);
+        verifyNoMoreInteractions(outboundSessionRegistry);
+    }
+
+    @Test
+    void checkSessions_ClosesRevokedSessionsAtTheNextRecheckUnlessDisconnected() throws Exception {
+        SessionTokenExpiry expiry = expiry(Duration.ofMillis(20));
+        when(tokenDenylist.isRevoked(anyString())).thenReturn(true);
+        expiry.track("s1", claims("t1", 60_000));
+        expiry.track("s2", claims("t2", 60_000));
+        expiry.untrack("s2");
+
+        Thread.sleep(60);
+        expiry.checkSessions();
+
+        verify(outboundSessionRegistry).close("s1", SessionTokenExpiry.TOKEN_REVOKED);
+        verifyNoMoreInteractions(outboundSessionRegistry);
+    }
+
+    private SessionTokenExpiry expiry(Duration revocationCheckInterval) {
+        WebSocketAuthProperties properties = new WebSocketAuthProperties();
+        properties.setTick(Duration.ofMillis(10));
+        properties.setRevocationCheckInterval(revocationCheckInterval);
+        return new SessionTokenExpiry(properties, tokenDenylist, outboundSessionRegistry, new SimpleMeterRegistry());
+    }
+
+    private static Claims claims(String tokenId, long expiresInMillis) {
+        return Jwts.claims()
+                .setSubject("alice")
+                .setId(tokenId)
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMillis));
+    }
+}